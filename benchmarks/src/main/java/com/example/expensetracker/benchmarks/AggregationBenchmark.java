@@ -0,0 +1,91 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.analytics.AnalyticsReport;
+import com.example.expensetracker.analytics.ExpenseColumns;
+import com.example.expensetracker.dao.CategoryTotal;
+import com.example.expensetracker.dao.InMemoryExpenseRepository;
+import com.example.expensetracker.dao.PeriodTotal;
+import com.example.expensetracker.model.SyntheticExpenses;
+import com.example.expensetracker.service.AnalyticsService;
+import com.example.expensetracker.service.ExpenseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals and aggregations over the in-memory engine at growing history sizes, so the
+ * scaling of each is visible without a database:
+ * <ul>
+ *   <li>{@code refreshSummary}: the count and total that {@code refreshTable} reads</li>
+ *   <li>{@code scanTotal}: the same total summed row by row, as before it was incremental</li>
+ *   <li>{@code categoryTotals} and {@code monthlyTotals}: the repository aggregations</li>
+ *   <li>{@code columnsByCategory} and {@code analytics}: the columnar and fork-join paths</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AggregationBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private InMemoryExpenseRepository repository;
+    private ExpenseColumns columns;
+    private AnalyticsService analytics;
+
+    @Setup
+    public void setUp() {
+        repository = new InMemoryExpenseRepository();
+        repository.insertExpenses(SyntheticExpenses.generate(rows, 42));
+        columns = ExpenseColumns.load(repository, null, null, ZoneId.systemDefault());
+        analytics = new AnalyticsService(repository);
+    }
+
+    @Benchmark
+    public ExpenseSummary refreshSummary() {
+        return new ExpenseSummary(repository.countExpenses(), repository.totalCents());
+    }
+
+    @Benchmark
+    public long scanTotal() {
+        long[] total = new long[1];
+        repository.scan(null, null, expense -> total[0] += expense.getAmountCents());
+        return total[0];
+    }
+
+    @Benchmark
+    public List<CategoryTotal> categoryTotals() {
+        return repository.categoryTotals(null, null);
+    }
+
+    @Benchmark
+    public List<PeriodTotal> monthlyTotals() {
+        return repository.monthlyTotals(null, null);
+    }
+
+    @Benchmark
+    public long[] columnsByCategory() {
+        return columns.sumByCategory();
+    }
+
+    @Benchmark
+    public AnalyticsReport analytics() {
+        return analytics.analyze(columns, 10);
+    }
+}
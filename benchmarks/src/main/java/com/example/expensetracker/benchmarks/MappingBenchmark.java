@@ -0,0 +1,107 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.db.ExpenseCodec;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.SyntheticExpenses;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of mapping expenses to and from BSON: the {@link Document} path of
+ * {@link Expense#toDocument()} / {@link Expense#fromDocument} against {@link ExpenseCodec}.
+ * Rows cycle through a fixed synthetic set so branch and cache behaviour stays realistic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private final Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+    private final ExpenseCodec expenseCodec = new ExpenseCodec();
+
+    private Expense[] expenses;
+    private Document[] documents;
+    private byte[][] encoded;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Expense> generated = SyntheticExpenses.generate(ROWS, 42);
+        expenses = generated.toArray(new Expense[0]);
+        documents = new Document[ROWS];
+        encoded = new byte[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            documents[i] = expenses[i].toDocument();
+            BasicOutputBuffer out = new BasicOutputBuffer(256);
+            expenseCodec.encode(new BsonBinaryWriter(out), expenses[i], EncoderContext.builder().build());
+            encoded[i] = out.toByteArray();
+        }
+    }
+
+    private int nextRow() {
+        int row = next;
+        next = row + 1 == ROWS ? 0 : row + 1;
+        return row;
+    }
+
+    @Benchmark
+    public Document toDocument() {
+        return expenses[nextRow()].toDocument();
+    }
+
+    @Benchmark
+    public Expense fromDocument() {
+        return Expense.fromDocument(documents[nextRow()]);
+    }
+
+    @Benchmark
+    public int encodeViaDocument() {
+        BasicOutputBuffer out = new BasicOutputBuffer(256);
+        documentCodec.encode(new BsonBinaryWriter(out), expenses[nextRow()].toDocument(), EncoderContext.builder().build());
+        return out.getPosition();
+    }
+
+    @Benchmark
+    public int encodeViaCodec() {
+        BasicOutputBuffer out = new BasicOutputBuffer(256);
+        expenseCodec.encode(new BsonBinaryWriter(out), expenses[nextRow()], EncoderContext.builder().build());
+        return out.getPosition();
+    }
+
+    @Benchmark
+    public Expense decodeViaDocument() {
+        BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded[nextRow()]));
+        return Expense.fromDocument(documentCodec.decode(reader, DecoderContext.builder().build()));
+    }
+
+    @Benchmark
+    public Expense decodeViaCodec() {
+        BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded[nextRow()]));
+        return expenseCodec.decode(reader, DecoderContext.builder().build());
+    }
+}
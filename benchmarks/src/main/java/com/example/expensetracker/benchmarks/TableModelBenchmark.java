@@ -0,0 +1,73 @@
+package com.example.expensetracker.benchmarks;
+
+import com.example.expensetracker.dao.InMemoryExpenseRepository;
+import com.example.expensetracker.model.SyntheticExpenses;
+import com.example.expensetracker.ui.ExpenseTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ExpenseTableModel#getValueAt} for one screen of cells, as the JTable
+ * renderer calls it on every repaint. All blocks are loaded in setup, so this measures
+ * the cache lookup and cell formatting, not the repository.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableModelBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int VISIBLE_ROWS = 30;
+    private static final int COLUMNS = 4;
+
+    private ExpenseTableModel model;
+    private int firstRow;
+
+    @Setup
+    public void setUp() throws Exception {
+        InMemoryExpenseRepository repository = new InMemoryExpenseRepository();
+        repository.insertExpenses(SyntheticExpenses.generate(ROWS, 42));
+
+        int blockSize = ExpenseTableModel.DEFAULT_BLOCK_SIZE;
+        int blocks = ROWS / blockSize + 1;
+        // Loads run inline; each result is handed to the EDT, which is drained below
+        model = new ExpenseTableModel(blockSize, blocks + 1, 0, Runnable::run);
+        SwingUtilities.invokeAndWait(() -> {
+            model.reset(ROWS, (offset, limit, previous) -> repository.findRowRange(offset, limit));
+            for (int row = 0; row < ROWS; row += blockSize) {
+                model.getRowAt(row);
+            }
+        });
+        SwingUtilities.invokeAndWait(() -> {});
+        if (model.getRowAt(ROWS - 1) == null) {
+            throw new IllegalStateException("Table blocks did not load");
+        }
+    }
+
+    // One repaint of a screen of rows, scrolling one screen further each call
+    @Benchmark
+    public void paintScreen(Blackhole sink) {
+        int first = firstRow;
+        for (int row = first; row < first + VISIBLE_ROWS; row++) {
+            for (int column = 0; column < COLUMNS; column++) {
+                sink.consume(model.getValueAt(row, column));
+            }
+        }
+        firstRow = first + VISIBLE_ROWS * 2 > ROWS ? 0 : first + VISIBLE_ROWS;
+    }
+}
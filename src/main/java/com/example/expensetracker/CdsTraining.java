@@ -0,0 +1,91 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.config.AppConfig;
+import com.example.expensetracker.dao.ExpenseRepositories;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.db.MongoConnection;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import com.example.expensetracker.service.AnalyticsService;
+import com.example.expensetracker.ui.ExpenseTableModel;
+import com.example.expensetracker.ui.ExpenseTracker;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import javax.swing.*;
+import java.awt.GraphicsEnvironment;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Training run for the class-data-sharing archive built by the {@code cds} Maven profile.
+ *
+ * Loads what a normal start loads - configuration, driver settings, client and codecs,
+ * BSON encoding, the repository and the Swing components of the main window - using the
+ * in-memory engine and a client that is closed before it connects, then exits. With a
+ * display the real window is built and disposed without being shown.
+ */
+public class CdsTraining {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spendwise.storage", "memory");
+        System.setProperty("spendwise.memory.seedRows", "5000");
+        System.setProperty("spendwise.anomaly.enabled", "false");
+        System.setProperty("spendwise.startup.cache", "false");
+        // Nothing listens here; the client is closed before its monitor gets anywhere
+        System.setProperty("spendwise.mongo.uri", "mongodb://127.0.0.1:1/?connectTimeoutMS=100");
+        AppConfig config = AppConfig.get();
+        long start = System.nanoTime();
+
+        // Driver: settings, listeners and client startup
+        try (MongoClient client = MongoClients.create(MongoConnection.buildSettings(config))) {
+            client.getDatabase("training").withCodecRegistry(MongoConnection.codecRegistry(new CategoryRegistry()));
+        }
+
+        // BSON and the expense codecs
+        ExpenseRepository repository = ExpenseRepositories.fromConfig(config);
+        Codec<Expense> codec = MongoConnection.codecRegistry(repository.categories()).get(Expense.class);
+        repository.scan(null, null, expense -> {
+            BasicOutputBuffer out = new BasicOutputBuffer(256);
+            codec.encode(new BsonBinaryWriter(out), expense, EncoderContext.builder().build());
+            codec.decode(new BsonBinaryReader(ByteBuffer.wrap(out.toByteArray())), DecoderContext.builder().build());
+        });
+
+        // Queries the window issues
+        List<ExpenseRow> rows = repository.findRowRange(0, ExpenseTableModel.DEFAULT_BLOCK_SIZE);
+        repository.categoryTotals(null, new Date());
+        repository.monthlyTotals(null, null);
+        new AnalyticsService(repository).analyze(null, null, 10);
+
+        // Swing
+        if (GraphicsEnvironment.isHeadless()) {
+            ExpenseTableModel model = new ExpenseTableModel();
+            model.preload(rows.size(), rows);
+            JPanel panel = new JPanel();
+            panel.add(new JScrollPane(new JTable(model)));
+            panel.add(new JComboBox<>(new String[] {"Food"}));
+            panel.add(new JSpinner(new SpinnerDateModel()));
+            panel.add(new JTextArea());
+            panel.add(new JButton());
+            panel.add(new JProgressBar());
+            panel.doLayout();
+        } else {
+            SwingUtilities.invokeAndWait(() -> {
+                ExpenseTracker tracker = new ExpenseTracker();
+                tracker.pack();
+                tracker.dispose();
+            });
+        }
+
+        System.out.printf("CDS training run finished in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        System.exit(0);
+    }
+}
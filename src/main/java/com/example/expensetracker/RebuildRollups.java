@@ -0,0 +1,41 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.dao.ExpenseAggregations;
+import com.example.expensetracker.dao.ExpenseRollups;
+import com.example.expensetracker.db.MongoConnection;
+
+/**
+ * Maintenance entry point for the monthly rollups.
+ *
+ * {@code RebuildRollups [parallelism]} recomputes them from the raw collection;
+ * {@code RebuildRollups --check} compares their total with the raw collection and marks
+ * them dirty if they drifted. The app never rebuilds on its own; run this while it is idle.
+ */
+public class RebuildRollups {
+    public static void main(String[] args) {
+        try {
+            ExpenseRollups rollups = new ExpenseRollups();
+            if (args.length > 0 && args[0].equals("--check")) {
+                boolean marked = rollups.checkState();
+                boolean matches = rollups.verify(new ExpenseAggregations());
+                System.out.println(matches && !marked
+                        ? "✅ Rollups match the expenses collection"
+                        : "⚠️ Rollups are dirty; run RebuildRollups to recompute them");
+                return;
+            }
+            int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+            long start = System.nanoTime();
+            long converted = rollups.rebuild(parallelism);
+            if (converted > 0) {
+                System.out.println("Converted " + converted + " expenses to category ids");
+            }
+            System.out.printf("✅ Rollups rebuilt with %d threads in %d ms%n",
+                    parallelism, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.out.println("❌ Rebuild failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            MongoConnection.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.dao.PeriodTotal;
+import com.example.expensetracker.model.ExpenseRow;
+
+import java.util.List;
+
+/**
+ * Result of one {@code AnalyticsService} run over a set of expenses.
+ */
+public class AnalyticsReport {
+    private final SpendingStats overall;
+    private final List<CategoryShare> categories;
+    private final List<PeriodTotal> months;
+    private final List<ExpenseRow> largest;
+
+    public AnalyticsReport(SpendingStats overall, List<CategoryShare> categories,
+                           List<PeriodTotal> months, List<ExpenseRow> largest) {
+        this.overall = overall;
+        this.categories = List.copyOf(categories);
+        this.months = List.copyOf(months);
+        this.largest = List.copyOf(largest);
+    }
+
+    // Count, total, mean and standard deviation of all expenses
+    public SpendingStats getOverall() { return overall; }
+    // Largest share first
+    public List<CategoryShare> getCategories() { return categories; }
+    // Every month ("yyyy-MM") from the first to the last expense, oldest first; empty months included
+    public List<PeriodTotal> getMonths() { return months; }
+    // Largest amounts first
+    public List<ExpenseRow> getLargest() { return largest; }
+}
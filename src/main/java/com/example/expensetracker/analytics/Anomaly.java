@@ -0,0 +1,40 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.model.Expense;
+
+/**
+ * One unusual expense reported by {@link AnomalyDetector}, in minor units.
+ */
+public class Anomaly {
+
+    public enum Kind {
+        /** The expense itself is far above the category's usual amount */
+        AMOUNT,
+        /** The category's total for the expense's day is far above its usual daily total */
+        DAILY_TOTAL
+    }
+
+    private final Kind kind;
+    private final Expense expense;
+    private final long valueCents;
+    private final double expectedCents;
+    private final double zScore;
+
+    public Anomaly(Kind kind, Expense expense, long valueCents, double expectedCents, double zScore) {
+        this.kind = kind;
+        this.expense = expense;
+        this.valueCents = valueCents;
+        this.expectedCents = expectedCents;
+        this.zScore = zScore;
+    }
+
+    public Kind getKind() { return kind; }
+    // The expense that triggered it
+    public Expense getExpense() { return expense; }
+    public String getCategory() { return expense.getCategory(); }
+    // The amount, or the day's running total for DAILY_TOTAL
+    public long getValueCents() { return valueCents; }
+    // Weighted mean the value was compared with
+    public double getExpectedCents() { return expectedCents; }
+    public double getZScore() { return zScore; }
+}
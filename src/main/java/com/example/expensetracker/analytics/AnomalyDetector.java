@@ -0,0 +1,292 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.dao.InsertListener;
+import com.example.expensetracker.model.Expense;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Flags unusual spending as expenses are stored, without re-reading history.
+ *
+ * Per category it keeps an exponentially weighted mean and variance of single amounts and
+ * of closed daily totals, plus the running total of the current day: a fixed handful of
+ * numbers however long the history. Each new expense is scored against the weights from
+ * before it; an amount, or a day's running total, more than {@code zThreshold} standard
+ * deviations above the weighted mean is reported once to the listeners. Nothing is
+ * reported for a category until it has {@code warmup} observations of that kind.
+ *
+ * Days that pass with no expense in a category count as zero days when the next one
+ * arrives. Back-dated expenses update the amount weights only. The state is written to
+ * a checkpoint file periodically and on {@link #close()}, and read back on startup;
+ * expenses stored by other clients in the meantime are not seen.
+ *
+ * Register it with {@code ExpenseRepository.addInsertListener}. Safe for concurrent use;
+ * listeners run on the inserting thread.
+ */
+public class AnomalyDetector implements InsertListener, AutoCloseable {
+
+    private static final int MAGIC = 0x53574144; // "SWAD"
+    private static final int VERSION = 1;
+
+    // Zero days folded in per gap; beyond this the weights have decayed anyway
+    private static final int MAX_IDLE_DAYS = 366;
+
+    private final Path checkpoint;
+    private final double zThreshold;
+    private final double alpha;
+    private final int warmup;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Map<String, CategoryState> categories = new HashMap<>();
+    private final List<Consumer<Anomaly>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService checkpointer;
+    private boolean dirty;
+
+    /**
+     * @param checkpoint      state file; read now if it exists
+     * @param zThreshold      standard deviations above the mean that count as unusual
+     * @param alpha           weight of the newest observation, in (0, 1]
+     * @param warmup          observations a category needs before it is scored
+     * @param checkpointMillis how often changed state is written; 0 writes only on close
+     */
+    public AnomalyDetector(Path checkpoint, double zThreshold, double alpha, int warmup, long checkpointMillis) throws IOException {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.checkpoint = checkpoint;
+        this.zThreshold = zThreshold;
+        this.alpha = alpha;
+        this.warmup = warmup;
+        load();
+
+        if (checkpointMillis > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "anomaly-checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpointQuietly, checkpointMillis, checkpointMillis, TimeUnit.MILLISECONDS);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    public void addListener(Consumer<Anomaly> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void inserted(List<? extends Expense> stored) {
+        List<Anomaly> found = new ArrayList<>();
+        synchronized (this) {
+            for (Expense expense : stored) {
+                observe(expense, found);
+            }
+            dirty = true;
+        }
+        for (Anomaly anomaly : found) {
+            for (Consumer<Anomaly> listener : listeners) {
+                listener.accept(anomaly);
+            }
+        }
+    }
+
+    /**
+     * Writes the state if it changed since the last checkpoint. The file is replaced
+     * atomically, so a crash leaves either the old or the new state. Writing and moving
+     * the temporary file happen under the lock, so two checkpoints never share it.
+     */
+    public void checkpoint() throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        synchronized (this) {
+            if (!dirty) return;
+            Files.createDirectories(checkpoint.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(categories.size());
+                for (Map.Entry<String, CategoryState> entry : categories.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+            try {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        }
+    }
+
+    /**
+     * Stops the periodic checkpoints, letting a running one finish rather than
+     * interrupting it mid-write, then writes the final state.
+     */
+    @Override
+    public void close() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+            try {
+                if (!checkpointer.awaitTermination(10, TimeUnit.SECONDS)) {
+                    System.err.println("Anomaly checkpoint still running at close; writing the final state anyway");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpoint();
+    }
+
+    // ========== Scoring ==========
+
+    private void observe(Expense expense, List<Anomaly> found) {
+        if (expense.getDate() == null) return;
+        String category = expense.getCategory() != null ? expense.getCategory() : "";
+        CategoryState state = categories.computeIfAbsent(category, c -> new CategoryState());
+        long cents = expense.getAmountCents();
+
+        long day = Instant.ofEpochMilli(expense.getDate().getTime()).atZone(zone).toLocalDate().toEpochDay();
+        if (state.count == 0) {
+            // The first amount is the starting mean, and its day the first open day
+            state.count = 1;
+            state.mean = cents;
+            state.day = day;
+        } else {
+            double z = zScore(cents, state.mean, state.variance);
+            if (state.count >= warmup && z > zThreshold) {
+                found.add(new Anomaly(Anomaly.Kind.AMOUNT, expense, cents, state.mean, z));
+            }
+            state.count++;
+            double delta = cents - state.mean;
+            state.mean += alpha * delta;
+            state.variance = (1 - alpha) * (state.variance + alpha * delta * delta);
+        }
+
+        if (day < state.day) return; // Back-dated: the day it belongs to is already closed
+        if (day > state.day) {
+            closeDay(state, day);
+        }
+        state.daySum += cents;
+        double dayZ = zScore(state.daySum, state.dayMean, state.dayVariance);
+        if (!state.dayFlagged && state.days >= warmup && dayZ > zThreshold) {
+            state.dayFlagged = true;
+            found.add(new Anomaly(Anomaly.Kind.DAILY_TOTAL, expense, state.daySum, state.dayMean, dayZ));
+        }
+    }
+
+    // Folds the finished day, and the idle days after it, into the daily weights
+    private void closeDay(CategoryState state, long newDay) {
+        foldDay(state, state.daySum);
+        long idle = Math.min(newDay - state.day - 1, MAX_IDLE_DAYS);
+        for (long i = 0; i < idle; i++) {
+            foldDay(state, 0);
+        }
+        state.day = newDay;
+        state.daySum = 0;
+        state.dayFlagged = false;
+    }
+
+    private void foldDay(CategoryState state, long total) {
+        if (state.days++ == 0) {
+            state.dayMean = total;
+            return;
+        }
+        double delta = total - state.dayMean;
+        state.dayMean += alpha * delta;
+        state.dayVariance = (1 - alpha) * (state.dayVariance + alpha * delta * delta);
+    }
+
+    // Standard deviation floored at one minor unit, so a perfectly regular history still scores
+    private static double zScore(long value, double mean, double variance) {
+        return (value - mean) / Math.max(1, Math.sqrt(variance));
+    }
+
+    // ========== Checkpoint ==========
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an anomaly checkpoint: " + checkpoint);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + " in " + checkpoint);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                categories.put(in.readUTF(), CategoryState.read(in));
+            }
+        } catch (NoSuchFileException e) {
+            // First run: start with no history
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            System.err.println("Anomaly checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Weights of one category, in minor units.
+     */
+    private static final class CategoryState {
+        long count;
+        double mean;
+        double variance;
+
+        long day;        // Epoch day of the open day
+        long daySum;     // Running total of the open day
+        long days;       // Closed days folded into the daily weights
+        double dayMean;
+        double dayVariance;
+        boolean dayFlagged;
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(count);
+            out.writeDouble(mean);
+            out.writeDouble(variance);
+            out.writeLong(day);
+            out.writeLong(daySum);
+            out.writeLong(days);
+            out.writeDouble(dayMean);
+            out.writeDouble(dayVariance);
+            out.writeBoolean(dayFlagged);
+        }
+
+        static CategoryState read(DataInputStream in) throws IOException {
+            CategoryState state = new CategoryState();
+            state.count = in.readLong();
+            state.mean = in.readDouble();
+            state.variance = in.readDouble();
+            state.day = in.readLong();
+            state.daySum = in.readLong();
+            state.days = in.readLong();
+            state.dayMean = in.readDouble();
+            state.dayVariance = in.readDouble();
+            state.dayFlagged = in.readBoolean();
+            return state;
+        }
+    }
+}
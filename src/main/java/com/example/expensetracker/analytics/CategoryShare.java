@@ -0,0 +1,24 @@
+package com.example.expensetracker.analytics;
+
+/**
+ * Sum and count of one category and its fraction of the overall total, in minor units.
+ */
+public class CategoryShare {
+    private final String category;
+    private final long sumCents;
+    private final long count;
+    private final double share;
+
+    public CategoryShare(String category, long sumCents, long count, double share) {
+        this.category = category;
+        this.sumCents = sumCents;
+        this.count = count;
+        this.share = share;
+    }
+
+    public String getCategory() { return category; }
+    public long getSumCents() { return sumCents; }
+    public long getCount() { return count; }
+    // 0..1 of the overall sum; 0 when the overall sum is 0
+    public double getShare() { return share; }
+}
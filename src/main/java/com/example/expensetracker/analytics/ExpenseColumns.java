@@ -0,0 +1,318 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, column-oriented copy of a set of expenses for repeated analytics scans.
+ *
+ * Each field is one primitive array indexed by row: the calendar day as epoch day, the
+ * month as {@code year * 12 + month - 1}, the amount in minor units and the category as a
+ * {@code short} code into a small dictionary. Descriptions are packed into one shared
+ * {@code char[]} with per-row offsets. The kernels below are plain counted loops over
+ * these arrays with no per-row objects, so the JIT can unroll and vectorize them. Ids and
+ * exact timestamps are kept only to turn single rows back into {@link ExpenseRow}s.
+ *
+ * Rows keep the order they were added in; {@link #load} adds them oldest first.
+ */
+public final class ExpenseColumns {
+
+    /** Category argument of the filter kernels that matches every category */
+    public static final int ANY_CATEGORY = -1;
+
+    private final int size;
+    private final ZoneId zone;
+    private final ObjectId[] ids;
+    private final long[] dateMillis;
+    private final int[] epochDays;
+    private final int[] months;
+    private final long[] amountCents;
+    private final short[] categories;
+    private final String[] categoryNames;
+    private final int[] descriptionOffsets;
+    private final char[] descriptionChars;
+
+    private ExpenseColumns(Builder builder) {
+        size = builder.size;
+        zone = builder.zone;
+        ids = Arrays.copyOf(builder.ids, size);
+        dateMillis = Arrays.copyOf(builder.dateMillis, size);
+        epochDays = Arrays.copyOf(builder.epochDays, size);
+        months = Arrays.copyOf(builder.months, size);
+        amountCents = Arrays.copyOf(builder.amountCents, size);
+        categories = Arrays.copyOf(builder.categories, size);
+        categoryNames = builder.categoryNames.toArray(new String[0]);
+        descriptionOffsets = Arrays.copyOf(builder.descriptionOffsets, size + 1);
+        descriptionChars = Arrays.copyOf(builder.descriptionChars, builder.descriptionOffsets[size]);
+    }
+
+    /**
+     * Streams the expenses dated in [from, to) out of a repository into columns.
+     */
+    public static ExpenseColumns load(ExpenseRepository repository, Date from, Date to, ZoneId zone) {
+        Builder builder = new Builder(zone);
+        repository.scan(from, to, builder::add);
+        return builder.build();
+    }
+
+    // ========== Row access ==========
+
+    public int size() { return size; }
+
+    public int epochDay(int row) { return epochDays[row]; }
+
+    public int month(int row) { return months[row]; }
+
+    public long amountCents(int row) { return amountCents[row]; }
+
+    public int categoryCode(int row) { return categories[row]; }
+
+    public String category(int row) { return categoryNames[categories[row]]; }
+
+    // Builds a String; meant for showing single rows, not for scans
+    public String description(int row) {
+        int start = descriptionOffsets[row];
+        return new String(descriptionChars, start, descriptionOffsets[row + 1] - start);
+    }
+
+    // Table row view of one row, for showing results such as the largest expenses
+    public ExpenseRow row(int row) {
+        return ExpenseRow.of(ids[row], dateMillis[row], category(row), amountCents[row], description(row), zone);
+    }
+
+    // ========== Dictionaries ==========
+
+    public int categoryCount() { return categoryNames.length; }
+
+    public String categoryName(int code) { return categoryNames[code]; }
+
+    // Code of a category name, or ANY_CATEGORY - 1 if no row has it, so filters match nothing
+    public int categoryCode(String name) {
+        for (int code = 0; code < categoryNames.length; code++) {
+            if (categoryNames[code].equals(name)) return code;
+        }
+        return ANY_CATEGORY - 1;
+    }
+
+    // Month key of a calendar month, comparable with month(row)
+    public static int monthKey(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    public static YearMonth yearMonth(int monthKey) {
+        return YearMonth.of(Math.floorDiv(monthKey, 12), Math.floorMod(monthKey, 12) + 1);
+    }
+
+    // ========== Kernels ==========
+
+    public long sumCents() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += amountCents[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Sum of rows with epoch day in [fromDay, toDay) and the given category code
+     * ({@link #ANY_CATEGORY} for all). Branch-free: each row contributes its amount
+     * masked by the predicate.
+     */
+    public long sumCents(int fromDay, int toDay, int category) {
+        boolean anyCategory = category == ANY_CATEGORY;
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            int day = epochDays[i];
+            boolean match = day >= fromDay & day < toDay & (anyCategory | categories[i] == category);
+            sum += match ? amountCents[i] : 0;
+        }
+        return sum;
+    }
+
+    /**
+     * Writes the indexes of the rows that pass the same filter as {@link #sumCents(int, int, int)}
+     * into {@code selection}, which must hold {@link #size()} ints, and returns how many matched.
+     * The selection can then be fed to the selection-vector kernels.
+     */
+    public int select(int fromDay, int toDay, int category, int[] selection) {
+        boolean anyCategory = category == ANY_CATEGORY;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int day = epochDays[i];
+            selection[count] = i;
+            count += (day >= fromDay & day < toDay & (anyCategory | categories[i] == category)) ? 1 : 0;
+        }
+        return count;
+    }
+
+    public long sumCents(int[] selection, int count) {
+        long sum = 0;
+        for (int k = 0; k < count; k++) {
+            sum += amountCents[selection[k]];
+        }
+        return sum;
+    }
+
+    // Sum per category code
+    public long[] sumByCategory() {
+        long[] sums = new long[categoryNames.length];
+        for (int i = 0; i < size; i++) {
+            sums[categories[i]] += amountCents[i];
+        }
+        return sums;
+    }
+
+    // Row count per category code
+    public long[] countByCategory() {
+        long[] counts = new long[categoryNames.length];
+        for (int i = 0; i < size; i++) {
+            counts[categories[i]]++;
+        }
+        return counts;
+    }
+
+    // Smallest month key present; with monthSpan() the index base of the month kernels
+    public int firstMonth() {
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            first = Math.min(first, months[i]);
+        }
+        return size > 0 ? first : 0;
+    }
+
+    // Months from firstMonth() through the last month present, inclusive
+    public int monthSpan() {
+        if (size == 0) return 0;
+        int last = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            last = Math.max(last, months[i]);
+        }
+        return last - firstMonth() + 1;
+    }
+
+    // Sum per month, index month - firstMonth()
+    public long[] sumByMonth() {
+        int base = firstMonth();
+        long[] sums = new long[monthSpan()];
+        for (int i = 0; i < size; i++) {
+            sums[months[i] - base] += amountCents[i];
+        }
+        return sums;
+    }
+
+    // Sum per [month - firstMonth()][category code]
+    public long[][] sumByMonthAndCategory() {
+        int base = firstMonth();
+        long[][] sums = new long[monthSpan()][categoryNames.length];
+        for (int i = 0; i < size; i++) {
+            sums[months[i] - base][categories[i]] += amountCents[i];
+        }
+        return sums;
+    }
+
+    // ========== Building ==========
+
+    /**
+     * Accumulates expenses into growable columns. Not thread-safe.
+     *
+     * Expenses without a date are left out, as the anomaly detector and budget engine do:
+     * every kernel is keyed by day or month, and an unbounded scan can return them.
+     */
+    public static final class Builder {
+
+        private final ZoneId zone;
+        private int size;
+        private ObjectId[] ids = new ObjectId[1024];
+        private long[] dateMillis = new long[1024];
+        private int[] epochDays = new int[1024];
+        private int[] months = new int[1024];
+        private long[] amountCents = new long[1024];
+        private short[] categories = new short[1024];
+        private int[] descriptionOffsets = new int[1025];
+        private char[] descriptionChars = new char[16 * 1024];
+
+        private final List<String> categoryNames = new ArrayList<>();
+        private final Map<String, Short> categoryCodes = new HashMap<>();
+
+        // Expenses of one day share the date conversion
+        private long dayStartMillis = Long.MAX_VALUE;
+        private long dayEndMillis = Long.MIN_VALUE;
+        private int day;
+        private int month;
+
+        public Builder(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        public Builder add(Expense expense) {
+            if (expense.getDate() == null) return this;
+            if (size == epochDays.length) grow();
+            long millis = expense.getDate().getTime();
+            if (millis < dayStartMillis || millis >= dayEndMillis) {
+                LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+                day = (int) date.toEpochDay();
+                month = monthKey(YearMonth.from(date));
+                dayStartMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+                dayEndMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            }
+            ids[size] = expense.getId();
+            dateMillis[size] = millis;
+            epochDays[size] = day;
+            months[size] = month;
+            amountCents[size] = expense.getAmountCents();
+            categories[size] = code(expense.getCategory());
+
+            String description = expense.getDescription() != null ? expense.getDescription() : "";
+            int start = descriptionOffsets[size];
+            int end = start + description.length();
+            if (end > descriptionChars.length) {
+                descriptionChars = Arrays.copyOf(descriptionChars, Math.max(end, descriptionChars.length * 2));
+            }
+            description.getChars(0, description.length(), descriptionChars, start);
+            descriptionOffsets[++size] = end;
+            return this;
+        }
+
+        public ExpenseColumns build() {
+            return new ExpenseColumns(this);
+        }
+
+        private short code(String category) {
+            String name = category != null ? category : "";
+            Short code = categoryCodes.get(name);
+            if (code == null) {
+                if (categoryNames.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("More than " + (Short.MAX_VALUE + 1) + " categories");
+                }
+                code = (short) categoryNames.size();
+                categoryNames.add(name);
+                categoryCodes.put(name, code);
+            }
+            return code;
+        }
+
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            dateMillis = Arrays.copyOf(dateMillis, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            months = Arrays.copyOf(months, capacity);
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity + 1);
+        }
+    }
+}
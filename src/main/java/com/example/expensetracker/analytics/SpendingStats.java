@@ -0,0 +1,71 @@
+package com.example.expensetracker.analytics;
+
+/**
+ * Count, exact sum, mean, variance, minimum and maximum of a set of amounts in minor units.
+ *
+ * Mean and variance are kept with Welford's update, so adding one amount never subtracts
+ * two large, nearly equal numbers. Two accumulators built over disjoint parts of the data
+ * combine with {@link #merge} (Chan et al.), giving the same result as one pass over the
+ * whole; that is what lets the parts be computed in parallel. Not thread-safe.
+ */
+public final class SpendingStats {
+
+    private long count;
+    private long sumCents;
+    private double mean;
+    private double m2; // Sum of squared differences from the mean
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+
+    public void add(long cents) {
+        count++;
+        sumCents += cents;
+        double delta = cents - mean;
+        mean += delta / count;
+        m2 += delta * (cents - mean);
+        minCents = Math.min(minCents, cents);
+        maxCents = Math.max(maxCents, cents);
+    }
+
+    // Folds other into this one; other is left unchanged
+    public SpendingStats merge(SpendingStats other) {
+        if (other.count == 0) return this;
+        if (count == 0) {
+            count = other.count;
+            sumCents = other.sumCents;
+            mean = other.mean;
+            m2 = other.m2;
+            minCents = other.minCents;
+            maxCents = other.maxCents;
+            return this;
+        }
+        long combined = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / combined;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / combined);
+        count = combined;
+        sumCents += other.sumCents;
+        minCents = Math.min(minCents, other.minCents);
+        maxCents = Math.max(maxCents, other.maxCents);
+        return this;
+    }
+
+    public long getCount() { return count; }
+    public long getSumCents() { return sumCents; }
+    // In minor units; 0 when empty
+    public double getMeanCents() { return mean; }
+
+    // Population variance, in minor units squared
+    public double getVariance() {
+        return count > 0 ? m2 / count : 0;
+    }
+
+    // Population standard deviation, in minor units
+    public double getStdDevCents() {
+        return Math.sqrt(getVariance());
+    }
+
+    // 0 when empty
+    public long getMinCents() { return count > 0 ? minCents : 0; }
+    public long getMaxCents() { return count > 0 ? maxCents : 0; }
+}
@@ -0,0 +1,30 @@
+package com.example.expensetracker.budget;
+
+/**
+ * Spending limit for one category, or for all categories, per calendar period, in minor units.
+ */
+public class Budget {
+    private final String category;
+    private final BudgetPeriod period;
+    private final long limitCents;
+
+    /**
+     * @param category Category the limit applies to, or null for the total of all categories
+     */
+    public Budget(String category, BudgetPeriod period, long limitCents) {
+        if (limitCents <= 0) throw new IllegalArgumentException("Budget limit must be positive");
+        this.category = category;
+        this.period = period;
+        this.limitCents = limitCents;
+    }
+
+    // Null for a budget over all categories
+    public String getCategory() { return category; }
+    public BudgetPeriod getPeriod() { return period; }
+    public long getLimitCents() { return limitCents; }
+
+    // "Food" or "All categories", for messages
+    public String describe() {
+        return category != null ? category : "All categories";
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.expensetracker.budget;
+
+import com.example.expensetracker.dao.CategoryTotal;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.dao.InsertListener;
+import com.example.expensetracker.model.Expense;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps period-to-date spending per budget and reports when it crosses a threshold.
+ *
+ * Each budget has a counter for its current period. {@link #seed} fills the counters with
+ * one {@code categoryTotals} aggregation per distinct period (usually just the month);
+ * after that every stored expense is added to the counters of its category and of the
+ * all-categories budgets, and compared with thresholds computed up front. Crossing the
+ * warning level or the limit is reported once per period to the listeners; nothing is
+ * re-read from the repository. A counter starts over at zero when its period ends.
+ *
+ * Register it with {@code ExpenseRepository.addInsertListener} before seeding: expenses
+ * stored while the totals are read are held back and added on top of them, so none is
+ * lost between the two. One stored just as the read starts may be counted twice. Safe
+ * for concurrent use; listeners run on the inserting thread.
+ */
+public class BudgetEngine implements InsertListener {
+
+    private static final Counter[] NONE = new Counter[0];
+
+    private final Clock clock;
+    private final ZoneId zone;
+    private final List<Counter> counters = new ArrayList<>();
+    private final Map<String, Counter[]> byCategory = new HashMap<>();
+    private final Counter[] allCategories;
+    private final List<Consumer<BudgetEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this; expenses stored while seed reads the totals, or null when not seeding
+    private List<Expense> heldBack;
+
+    /**
+     * @param warnAt Fraction of the limit at which a warning is reported, e.g. 0.8
+     */
+    public BudgetEngine(List<Budget> budgets, double warnAt) {
+        this(budgets, warnAt, Clock.systemDefaultZone());
+    }
+
+    public BudgetEngine(List<Budget> budgets, double warnAt, Clock clock) {
+        this.clock = clock;
+        this.zone = clock.getZone();
+        Map<String, List<Counter>> grouped = new HashMap<>();
+        List<Counter> all = new ArrayList<>();
+        LocalDate today = LocalDate.now(clock);
+        for (Budget budget : budgets) {
+            Counter counter = new Counter(budget, Math.round(budget.getLimitCents() * warnAt));
+            startPeriod(counter, today);
+            counters.add(counter);
+            if (budget.getCategory() == null) {
+                all.add(counter);
+            } else {
+                grouped.computeIfAbsent(budget.getCategory(), c -> new ArrayList<>()).add(counter);
+            }
+        }
+        grouped.forEach((category, list) -> byCategory.put(category, list.toArray(NONE)));
+        allCategories = all.toArray(NONE);
+    }
+
+    public void addListener(Consumer<BudgetEvent> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets every counter to the spending of its current period so far, plus whatever was
+     * stored while the totals were read. Blocks on the repository; call it off the Event
+     * Dispatch Thread.
+     */
+    public void seed(ExpenseRepository repository) {
+        LocalDate today = LocalDate.now(clock);
+        EnumSet<BudgetPeriod> periods = EnumSet.noneOf(BudgetPeriod.class);
+        for (Counter counter : counters) {
+            periods.add(counter.budget.getPeriod());
+        }
+        // Anything heard before this point is already in the totals read below
+        synchronized (this) {
+            heldBack = new ArrayList<>();
+        }
+        Map<BudgetPeriod, List<CategoryTotal>> totalsByPeriod = new HashMap<>();
+        try {
+            for (BudgetPeriod period : periods) {
+                LocalDate start = period.start(today);
+                totalsByPeriod.put(period, repository.categoryTotals(toDate(start), toDate(period.next(start))));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                heldBack = null;
+            }
+            throw e;
+        }
+
+        List<BudgetEvent> events = new ArrayList<>();
+        synchronized (this) {
+            for (Counter counter : counters) {
+                startPeriod(counter, today);
+                for (CategoryTotal total : totalsByPeriod.get(counter.budget.getPeriod())) {
+                    if (counter.budget.getCategory() == null || counter.budget.getCategory().equals(total.getCategory())) {
+                        counter.spentCents += total.getSumCents();
+                    }
+                }
+                // Levels already passed at startup are not reported again
+                counter.warned = counter.spentCents >= counter.warnCents;
+                counter.exceeded = counter.spentCents > counter.budget.getLimitCents();
+            }
+            List<Expense> stored = heldBack;
+            heldBack = null;
+            apply(stored, events);
+        }
+        publish(events);
+    }
+
+    /**
+     * Current period-to-date spending of every budget, in minor units.
+     */
+    public synchronized Map<Budget, Long> spending() {
+        Map<Budget, Long> spending = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now(clock);
+        long now = clock.millis();
+        for (Counter counter : counters) {
+            if (now >= counter.endMillis) startPeriod(counter, today);
+            spending.put(counter.budget, counter.spentCents);
+        }
+        return spending;
+    }
+
+    @Override
+    public void inserted(List<? extends Expense> stored) {
+        List<BudgetEvent> events = new ArrayList<>();
+        synchronized (this) {
+            if (heldBack != null) {
+                heldBack.addAll(stored);
+                return;
+            }
+            apply(stored, events);
+        }
+        publish(events);
+    }
+
+    // Caller holds the lock
+    private void apply(List<? extends Expense> stored, List<BudgetEvent> events) {
+        long now = clock.millis();
+        for (Expense expense : stored) {
+            if (expense.getDate() == null) continue;
+            Counter[] matching = expense.getCategory() != null ? byCategory.getOrDefault(expense.getCategory(), NONE) : NONE;
+            for (Counter counter : matching) {
+                add(counter, expense, now, events);
+            }
+            for (Counter counter : allCategories) {
+                add(counter, expense, now, events);
+            }
+        }
+    }
+
+    private void publish(List<BudgetEvent> events) {
+        for (BudgetEvent event : events) {
+            for (Consumer<BudgetEvent> listener : listeners) {
+                listener.accept(event);
+            }
+        }
+    }
+
+    private void add(Counter counter, Expense expense, long now, List<BudgetEvent> events) {
+        if (now >= counter.endMillis) {
+            startPeriod(counter, LocalDate.now(clock));
+        }
+        long millis = expense.getDate().getTime();
+        if (millis < counter.startMillis || millis >= counter.endMillis) return;
+
+        counter.spentCents += expense.getAmountCents();
+        if (!counter.exceeded && counter.spentCents > counter.budget.getLimitCents()) {
+            counter.exceeded = true;
+            counter.warned = true;
+            events.add(new BudgetEvent(counter.budget, BudgetEvent.Level.EXCEEDED, counter.spentCents));
+        } else if (!counter.warned && counter.spentCents >= counter.warnCents) {
+            counter.warned = true;
+            events.add(new BudgetEvent(counter.budget, BudgetEvent.Level.WARNING, counter.spentCents));
+        }
+    }
+
+    private void startPeriod(Counter counter, LocalDate today) {
+        BudgetPeriod period = counter.budget.getPeriod();
+        LocalDate start = period.start(today);
+        counter.startMillis = toDate(start).getTime();
+        counter.endMillis = toDate(period.next(start)).getTime();
+        counter.spentCents = 0;
+        counter.warned = false;
+        counter.exceeded = false;
+    }
+
+    private Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    /**
+     * Running total of one budget's current period, with its thresholds.
+     */
+    private static final class Counter {
+        final Budget budget;
+        final long warnCents;
+        long startMillis;
+        long endMillis;
+        long spentCents;
+        boolean warned;
+        boolean exceeded;
+
+        Counter(Budget budget, long warnCents) {
+            this.budget = budget;
+            this.warnCents = warnCents;
+        }
+    }
+}
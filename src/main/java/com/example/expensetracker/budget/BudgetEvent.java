@@ -0,0 +1,29 @@
+package com.example.expensetracker.budget;
+
+/**
+ * A budget's period-to-date spending crossed its warning level or its limit.
+ */
+public class BudgetEvent {
+
+    public enum Level {
+        /** Spending reached the warning fraction of the limit */
+        WARNING,
+        /** Spending went over the limit */
+        EXCEEDED
+    }
+
+    private final Budget budget;
+    private final Level level;
+    private final long spentCents;
+
+    public BudgetEvent(Budget budget, Level level, long spentCents) {
+        this.budget = budget;
+        this.level = level;
+        this.spentCents = spentCents;
+    }
+
+    public Budget getBudget() { return budget; }
+    public Level getLevel() { return level; }
+    // Period-to-date spending after the expense that crossed the level, in minor units
+    public long getSpentCents() { return spentCents; }
+}
@@ -0,0 +1,32 @@
+package com.example.expensetracker.budget;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Calendar period a budget limit applies to. Weeks start on Monday.
+ */
+public enum BudgetPeriod {
+    DAY, WEEK, MONTH, YEAR;
+
+    // First day of the period containing date
+    public LocalDate start(LocalDate date) {
+        switch (this) {
+            case DAY: return date;
+            case WEEK: return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH: return date.withDayOfMonth(1);
+            default: return date.withDayOfYear(1);
+        }
+    }
+
+    // First day of the period after the one starting at start
+    public LocalDate next(LocalDate start) {
+        switch (this) {
+            case DAY: return start.plusDays(1);
+            case WEEK: return start.plusWeeks(1);
+            case MONTH: return start.plusMonths(1);
+            default: return start.plusYears(1);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.expensetracker.budget;
+
+import com.example.expensetracker.model.Money;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Reads and writes budgets as a properties file, one limit per line:
+ * <pre>
+ * month.Food=5000
+ * week.Transport=750.50
+ * month.*=40000
+ * </pre>
+ * The key is the period ({@code day}, {@code week}, {@code month}, {@code year}) and the
+ * category, with {@code *} for all categories; the value is the limit in major units.
+ */
+public final class BudgetStore {
+
+    private static final String ALL_CATEGORIES = "*";
+
+    private BudgetStore() {}
+
+    /**
+     * @return the budgets in the file, or none if it does not exist
+     * @throws IllegalArgumentException for a malformed line
+     */
+    public static List<Budget> load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        List<Budget> budgets = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot <= 0 || dot == key.length() - 1) {
+                throw new IllegalArgumentException("Budget key must be <period>.<category>: " + key);
+            }
+            BudgetPeriod period = BudgetPeriod.valueOf(key.substring(0, dot).toUpperCase(Locale.ROOT));
+            String category = key.substring(dot + 1);
+            budgets.add(new Budget(ALL_CATEGORIES.equals(category) ? null : category, period,
+                    Money.parse(properties.getProperty(key))));
+        }
+        return budgets;
+    }
+
+    public static void save(Path file, List<Budget> budgets) throws IOException {
+        Properties properties = new Properties();
+        for (Budget budget : budgets) {
+            String category = budget.getCategory() != null ? budget.getCategory() : ALL_CATEGORIES;
+            properties.setProperty(budget.getPeriod().name().toLowerCase(Locale.ROOT) + "." + category,
+                    Money.format(budget.getLimitCents()));
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(out, "SpendWise budgets: <period>.<category>=<limit>, * for all categories");
+        }
+    }
+}
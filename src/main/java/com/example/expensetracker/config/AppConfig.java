@@ -0,0 +1,87 @@
+package com.example.expensetracker.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * AppConfig - Application settings resolved from several sources.
+ *
+ * For a key such as {@code spendwise.mongo.uri} the first value found wins:
+ * 1. JVM system property {@code -Dspendwise.mongo.uri=...}
+ * 2. Environment variable {@code SPENDWISE_MONGO_URI}
+ * 3. The properties file named by {@code -Dspendwise.config}, else {@code ./spendwise.properties}
+ * 4. {@code spendwise.properties} on the classpath
+ * 5. The default passed by the caller
+ */
+public final class AppConfig {
+
+    private static final AppConfig INSTANCE = new AppConfig();
+
+    private final Properties fileProperties = new Properties();
+
+    private AppConfig() {
+        try (InputStream in = AppConfig.class.getResourceAsStream("/spendwise.properties")) {
+            if (in != null) fileProperties.load(in);
+        } catch (IOException e) {
+            System.err.println("Could not read classpath spendwise.properties: " + e.getMessage());
+        }
+
+        Path file = Paths.get(System.getProperty("spendwise.config", "spendwise.properties"));
+        if (Files.isRegularFile(file)) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                fileProperties.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static AppConfig get() {
+        return INSTANCE;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) value = System.getenv(envName(key));
+        if (value == null) value = fileProperties.getProperty(key);
+        return value != null && !value.isBlank() ? value.trim() : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    // Configured path, else ~/.spendwise/<name>
+    public Path getLocalPath(String key, String name) {
+        String path = getString(key, null);
+        return path != null ? Paths.get(path) : Paths.get(System.getProperty("user.home"), ".spendwise", name);
+    }
+
+    // spendwise.mongo.pool.maxSize -> SPENDWISE_MONGO_POOL_MAXSIZE
+    static String envName(String key) {
+        return key.replace('.', '_').replace('-', '_').toUpperCase(Locale.ROOT);
+    }
+}
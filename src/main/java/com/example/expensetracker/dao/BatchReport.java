@@ -0,0 +1,64 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batched load: how many expenses made it into the collection and
+ * which ones were rejected, per batch. A failed batch never aborts the load.
+ */
+public class BatchReport {
+
+    /** One expense that could not be written, with the batch it belonged to. */
+    public static class Failure {
+        private final int batchNumber;
+        private final Expense expense;
+        private final int code;
+        private final String message;
+
+        public Failure(int batchNumber, Expense expense, int code, String message) {
+            this.batchNumber = batchNumber;
+            this.expense = expense;
+            this.code = code;
+            this.message = message;
+        }
+
+        public int getBatchNumber() { return batchNumber; }
+        public Expense getExpense() { return expense; }
+        public int getCode() { return code; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "batch " + batchNumber + " [" + code + "] " + message;
+        }
+    }
+
+    private int batches;
+    private long inserted;
+    private final List<Failure> failures = new ArrayList<>();
+
+    synchronized void recordBatch(long insertedInBatch, List<Failure> batchFailures) {
+        batches++;
+        inserted += insertedInBatch;
+        failures.addAll(batchFailures);
+    }
+
+    // An expense refused before it was sent, outside any batch
+    synchronized void recordRejected(Failure failure) {
+        failures.add(failure);
+    }
+
+    public synchronized int getBatches() { return batches; }
+    public synchronized long getInserted() { return inserted; }
+    public synchronized List<Failure> getFailures() { return Collections.unmodifiableList(new ArrayList<>(failures)); }
+    public synchronized boolean hasFailures() { return !failures.isEmpty(); }
+
+    @Override
+    public synchronized String toString() {
+        return "BatchReport{batches=" + batches + ", inserted=" + inserted + ", failed=" + failures.size() + "}";
+    }
+}
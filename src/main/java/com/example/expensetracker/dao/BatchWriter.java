@@ -0,0 +1,208 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.model.Expense;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchWriter - Streams expenses into the collection with {@code insertMany}.
+ *
+ * Expenses are buffered until either {@code batchSize} of them are pending or the
+ * oldest pending one has waited {@code maxDelayMillis}, then sent in one round trip.
+ * Ids are assigned client-side before the write, so every expense carries its
+ * {@code _id} once it has been handed to {@link #add(Expense)}. Rejected documents,
+ * and expenses without a date, which are never sent, are collected in the
+ * {@link BatchReport}; the rest of the load carries on. Given a category registry, new
+ * categories are registered in {@link #add(Expense)}, so the codec only looks ids up. When
+ * rollups or a listener are given, the expenses that were stored are passed to them after
+ * each batch.
+ */
+public class BatchWriter implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private final MongoCollection<Expense> collection;
+    private final CategoryRegistry categories;
+    private final ExpenseRollups rollups;
+    private final InsertListener listener;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final boolean ordered;
+    private final BatchReport report = new BatchReport();
+    private final ScheduledExecutorService timer;
+
+    private List<Expense> pending;
+    private long oldestPendingAt;
+    private int batchNumber;
+    private boolean closed;
+
+    public BatchWriter(MongoCollection<Expense> collection) {
+        this(collection, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, false);
+    }
+
+    /**
+     * @param batchSize      maximum documents per {@code insertMany}
+     * @param maxDelayMillis longest a buffered expense may wait before it is flushed; 0 disables the timer
+     * @param ordered        stop each batch at the first error (true) or let the server continue (false)
+     */
+    public BatchWriter(MongoCollection<Expense> collection, int batchSize, long maxDelayMillis, boolean ordered) {
+        this(collection, null, batchSize, maxDelayMillis, ordered);
+    }
+
+    /**
+     * @param rollups monthly rollups to keep in step with the inserts, or null
+     */
+    public BatchWriter(MongoCollection<Expense> collection, ExpenseRollups rollups,
+                       int batchSize, long maxDelayMillis, boolean ordered) {
+        this(collection, rollups, null, batchSize, maxDelayMillis, ordered);
+    }
+
+    /**
+     * @param listener told about the expenses of each batch that were stored, or null
+     */
+    public BatchWriter(MongoCollection<Expense> collection, ExpenseRollups rollups, InsertListener listener,
+                       int batchSize, long maxDelayMillis, boolean ordered) {
+        this(collection, null, rollups, listener, batchSize, maxDelayMillis, ordered);
+    }
+
+    /**
+     * @param categories registry to intern new categories in before they are written, or null
+     */
+    public BatchWriter(MongoCollection<Expense> collection, CategoryRegistry categories, ExpenseRollups rollups,
+                       InsertListener listener, int batchSize, long maxDelayMillis, boolean ordered) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+        if (maxDelayMillis < 0) throw new IllegalArgumentException("maxDelayMillis must not be negative");
+        this.collection = collection;
+        this.categories = categories;
+        this.rollups = rollups;
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.ordered = ordered;
+        this.pending = new ArrayList<>(batchSize);
+
+        if (maxDelayMillis > 0) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "expense-batch-writer");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1, maxDelayMillis / 2);
+            timer.scheduleWithFixedDelay(this::flushIfStale, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            timer = null;
+        }
+    }
+
+    // Queue one expense, writing the batch once it is full; a dateless one is reported, not sent
+    public synchronized void add(Expense expense) {
+        if (closed) throw new IllegalStateException("BatchWriter is closed");
+        if (expense.getDate() == null) {
+            report.recordRejected(new BatchReport.Failure(batchNumber + 1, expense, -1, "Expense date is required"));
+            return;
+        }
+        if (expense.getId() == null) expense.setId(new ObjectId());
+        if (categories != null && expense.getCategory() != null) categories.intern(expense.getCategory());
+        if (pending.isEmpty()) oldestPendingAt = System.nanoTime();
+        pending.add(expense);
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    // Write whatever is buffered right now
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        List<Expense> batch = pending;
+        pending = new ArrayList<>(batchSize);
+        writeBatch(++batchNumber, batch);
+    }
+
+    public BatchReport getReport() {
+        return report;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        flush();
+        closed = true;
+        if (timer != null) timer.shutdownNow();
+    }
+
+    private synchronized void flushIfStale() {
+        if (closed || pending.isEmpty()) return;
+        if (System.nanoTime() - oldestPendingAt >= TimeUnit.MILLISECONDS.toNanos(maxDelayMillis)) {
+            flush();
+        }
+    }
+
+    private void writeBatch(int number, List<Expense> batch) {
+        List<BatchReport.Failure> failures = new ArrayList<>();
+        try {
+            collection.insertMany(batch, new InsertManyOptions().ordered(ordered));
+            report.recordBatch(batch.size(), failures);
+            recordStored(batch, failures);
+        } catch (MongoBulkWriteException ex) {
+            boolean[] failed = new boolean[batch.size()];
+            int firstError = batch.size();
+            for (BulkWriteError error : ex.getWriteErrors()) {
+                failed[error.getIndex()] = true;
+                firstError = Math.min(firstError, error.getIndex());
+                failures.add(new BatchReport.Failure(number, batch.get(error.getIndex()), error.getCode(), error.getMessage()));
+            }
+            // An ordered batch stops at the first error, so nothing after it was attempted
+            if (ordered) {
+                for (int i = firstError + 1; i < batch.size(); i++) {
+                    if (!failed[i]) {
+                        failures.add(new BatchReport.Failure(number, batch.get(i), -1, "Not attempted: batch stopped at index " + firstError));
+                    }
+                }
+            }
+            report.recordBatch(ex.getWriteResult().getInsertedCount(), failures);
+            recordStored(batch, failures);
+        } catch (MongoException ex) {
+            for (Expense expense : batch) {
+                failures.add(new BatchReport.Failure(number, expense, ex.getCode(), ex.getMessage()));
+            }
+            report.recordBatch(0, failures);
+        }
+    }
+
+    private void recordStored(List<Expense> batch, List<BatchReport.Failure> failures) {
+        if (rollups == null && listener == null) return;
+        List<Expense> stored = batch;
+        if (!failures.isEmpty()) {
+            Set<Expense> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (BatchReport.Failure failure : failures) {
+                failed.add(failure.getExpense());
+            }
+            stored = new ArrayList<>(batch.size() - failed.size());
+            for (Expense expense : batch) {
+                if (!failed.contains(expense)) stored.add(expense);
+            }
+        }
+        if (rollups != null) {
+            // Never throws: a failed rollup write marks the rollups dirty and the expenses stay stored
+            rollups.recordAll(stored);
+        }
+        if (listener != null) {
+            listener.inserted(stored);
+        }
+    }
+}
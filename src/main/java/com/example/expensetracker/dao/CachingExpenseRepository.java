@@ -0,0 +1,850 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import com.mongodb.client.MongoCollection;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of another repository: row ranges, keyset row pages, the
+ * count, the total and the per-category and per-period aggregates are kept after the
+ * first read, up to {@code maxRows} cached rows, least recently used first out.
+ *
+ * Changes are applied to the cached data in place rather than dropping it: an insert is
+ * placed at its sorted position in every range and page it falls into (rows pushed out
+ * of one range move into the next cached one), added to the count, the total and the
+ * matching aggregate buckets; deletes and updates likewise. A range that would need a
+ * row nobody has cached is dropped instead. Writes made through this repository are
+ * applied as soon as they are stored (bulk loads simply drop the cache), and their
+ * change events, recognised by the process part of their ObjectId, are ignored however
+ * late they arrive; other clients' writes arrive through
+ * {@link #watch} (a change stream) or, where change streams are unavailable, are
+ * detected by {@link #startPolling}, which compares the count and total with the store
+ * and drops everything when they differ.
+ *
+ * An entry loaded less than {@link #SETTLE_MILLIS} before a change may already include
+ * that change, so it is dropped rather than patched.
+ */
+public class CachingExpenseRepository implements ExpenseRepository, ExpenseChangeListener, AutoCloseable {
+
+    public static final int DEFAULT_MAX_ROWS = 50_000;
+
+    // Time within which a change may reach us after a read that already saw it
+    static final long SETTLE_MILLIS = 2_000;
+
+    // Ids of recent inserts made in another process (write-behind replays), so a write
+    // seen both locally and on the stream counts once
+    private static final int REMEMBERED_INSERTS = 10_000;
+
+    // Batches at least this large drop the cache instead of being applied row by row
+    private static final int BULK_ROWS = 1_000;
+
+    // Process-unique bytes 4-8 of every ObjectId generated in this JVM
+    private static final byte[] OWN_ID_MARK = Arrays.copyOfRange(new ObjectId().toByteArray(), 4, 9);
+
+    private static final Comparator<ExpenseRow> NEWEST_FIRST =
+            Comparator.comparingLong(ExpenseRow::dateMillis).thenComparing(ExpenseRow::id).reversed();
+
+    private enum Kind { CATEGORY, DAY, MONTH }
+
+    private record RangeKey(int offset, int limit) {}
+    private record PageKey(String cursor, int size) {}
+    private record TotalsKey(Kind kind, Long from, Long to) {}
+
+    private final ExpenseRepository delegate;
+    private final long maxRows;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Guarded by this; access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedRows;
+    private long count = -1;           // -1 when not cached
+    private long countLoadedNanos;
+    private long total;
+    private boolean totalKnown;
+    private long totalLoadedNanos;
+
+    // Bumped by every change, so a load that overlapped one is not stored
+    private long generation;
+
+    private final Map<ObjectId, Boolean> recentInserts = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Boolean> eldest) {
+            return size() > REMEMBERED_INSERTS;
+        }
+    };
+
+    // insertExpenses calls of at least BULK_ROWS in progress
+    private int bulkWrites;
+
+    // Count and total the poller last read from the store, adjusted for our own inserts
+    private long polledCount = -1;
+    private long polledTotal;
+
+    private ExpenseChangeStream stream;
+    private ScheduledExecutorService poller;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter resyncs;
+
+    public CachingExpenseRepository(ExpenseRepository delegate, long maxRows) {
+        this.delegate = delegate;
+        this.maxRows = maxRows;
+        MetricsRegistry metrics = MetricsRegistry.get();
+        hits = metrics.counter("cache.hits");
+        misses = metrics.counter("cache.misses");
+        evictions = metrics.counter("cache.evictions");
+        resyncs = metrics.counter("cache.resyncs");
+        metrics.gauge("cache.rows", this::cachedRows);
+        delegate.addInsertListener(this::storedLocally);
+    }
+
+    /**
+     * Follows the collection's change stream; falls back to polling every
+     * {@code pollMillis} if the deployment has no change streams.
+     */
+    public synchronized void watch(MongoCollection<Expense> collection, long pollMillis) {
+        stream = new ExpenseChangeStream(collection, this, () -> startPolling(pollMillis));
+    }
+
+    /**
+     * Checks the store for other clients' writes every {@code pollMillis}.
+     */
+    public synchronized void startPolling(long pollMillis) {
+        if (poller != null) return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expense-cache-poll");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                System.err.println("Cache poll failed: " + e.getMessage());
+            }
+        }, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops everything if the store's count or total moved without us seeing the change.
+     */
+    public void poll() {
+        long storeCount = delegate.countExpenses();
+        long storeTotal = delegate.totalCents();
+        synchronized (this) {
+            if (polledCount >= 0 && (storeCount != polledCount || storeTotal != polledTotal)) {
+                resync();
+            }
+            polledCount = storeCount;
+            polledTotal = storeTotal;
+        }
+    }
+
+    // ========== Writes ==========
+
+    @Override
+    public void insertExpense(Expense expense) {
+        delegate.insertExpense(expense);
+    }
+
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        if (expenses.size() < BULK_ROWS) {
+            return delegate.insertExpenses(expenses);
+        }
+        synchronized (this) {
+            bulkWrites++;
+        }
+        try {
+            return delegate.insertExpenses(expenses);
+        } finally {
+            synchronized (this) {
+                bulkWrites--;
+            }
+        }
+    }
+
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        delegate.addInsertListener(listener);
+    }
+
+    // Our own writes, reported by the delegate once stored
+    private synchronized void storedLocally(List<? extends Expense> stored) {
+        for (Expense expense : stored) {
+            if (polledCount >= 0) {
+                polledCount++;
+                polledTotal += expense.getAmountCents();
+            }
+        }
+        if (bulkWrites > 0) {
+            // Cheaper to reload than to patch; the stream ignores our own ids anyway
+            clear();
+            return;
+        }
+        for (Expense expense : stored) {
+            if (ownId(expense.getId()) || firstSighting(expense.getId())) {
+                applyInsert(ExpenseRow.of(expense, zone));
+            }
+        }
+    }
+
+    // ========== Reads ==========
+
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        return delegate.findPage(cursorToken, pageSize);
+    }
+
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        PageKey key = new PageKey(cursorToken, pageSize);
+        long loadGeneration;
+        synchronized (this) {
+            Page page = (Page) entries.get(key);
+            if (page != null) {
+                hits.increment();
+                return page.toExpensePage();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        ExpensePage<ExpenseRow> page = delegate.findRowPage(cursorToken, pageSize);
+        store(loadGeneration, key, new Page(cursorToken, pageSize, page.getItems(), page.hasNext()));
+        return page;
+    }
+
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        RangeKey key = new RangeKey(offset, limit);
+        long loadGeneration;
+        synchronized (this) {
+            Range range = (Range) entries.get(key);
+            if (range != null) {
+                hits.increment();
+                return new ArrayList<>(range.rows);
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        List<ExpenseRow> rows = delegate.findRowRange(offset, limit);
+        store(loadGeneration, key, new Range(offset, limit, rows));
+        return rows;
+    }
+
+    @Override
+    public Expense findById(ObjectId id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        delegate.scan(from, to, action);
+    }
+
+    @Override
+    public long countExpenses() {
+        long loadGeneration;
+        synchronized (this) {
+            if (count >= 0) {
+                hits.increment();
+                return count;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        long loaded = delegate.countExpenses();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                count = loaded;
+                countLoadedNanos = System.nanoTime();
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public long countNewerThan(Expense expense) {
+        return delegate.countNewerThan(expense);
+    }
+
+    // ========== Aggregates ==========
+
+    @Override
+    public CategoryRegistry categories() {
+        return delegate.categories();
+    }
+
+    @Override
+    public long totalCents() {
+        long loadGeneration;
+        synchronized (this) {
+            if (totalKnown) {
+                hits.increment();
+                return total;
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        long loaded = delegate.totalCents();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                total = loaded;
+                totalKnown = true;
+                totalLoadedNanos = System.nanoTime();
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        TotalsKey key = new TotalsKey(Kind.CATEGORY, millis(from), millis(to));
+        long loadGeneration;
+        synchronized (this) {
+            Totals totals = (Totals) entries.get(key);
+            if (totals != null) {
+                hits.increment();
+                return totals.categoryTotals();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        List<CategoryTotal> loaded = delegate.categoryTotals(from, to);
+        Totals totals = new Totals(key);
+        for (CategoryTotal total : loaded) {
+            totals.sums.put(total.getCategory(), new long[] {total.getSumCents(), total.getCount()});
+        }
+        store(loadGeneration, key, totals);
+        return loaded;
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return periodTotals(new TotalsKey(Kind.DAY, millis(from), millis(to)), from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return periodTotals(new TotalsKey(Kind.MONTH, millis(from), millis(to)), from, to);
+    }
+
+    private List<PeriodTotal> periodTotals(TotalsKey key, Date from, Date to) {
+        long loadGeneration;
+        synchronized (this) {
+            Totals totals = (Totals) entries.get(key);
+            if (totals != null) {
+                hits.increment();
+                return totals.periodTotals();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        List<PeriodTotal> loaded = key.kind() == Kind.DAY ? delegate.dailyTotals(from, to) : delegate.monthlyTotals(from, to);
+        Totals totals = new Totals(key);
+        for (PeriodTotal total : loaded) {
+            totals.sums.put(total.getPeriod(), new long[] {total.getSumCents(), total.getCount()});
+        }
+        store(loadGeneration, key, totals);
+        return loaded;
+    }
+
+    // ========== Change Feed ==========
+
+    @Override
+    public synchronized void inserted(Expense expense) {
+        if (expense.getId() == null || expense.getDate() == null) {
+            resync();
+        } else if (!ownId(expense.getId()) && firstSighting(expense.getId())) {
+            applyInsert(ExpenseRow.of(expense, zone));
+        }
+    }
+
+    @Override
+    public synchronized void updated(Expense after, Expense before) {
+        if (after.getId() == null || after.getDate() == null) {
+            resync();
+            return;
+        }
+        ExpenseRow row = ExpenseRow.of(after, zone);
+        ExpenseRow old = before != null && before.getDate() != null ? ExpenseRow.of(before, zone) : cachedRow(after.getId());
+        beginChange();
+        if (old == null) {
+            // Where it was is unknown: only pages that never held it stay exact
+            dropAll(Range.class);
+            dropAll(Totals.class);
+            totalKnown = false;
+            insertRow(row);
+        } else if (old.dateMillis() == row.dateMillis()) {
+            replaceRow(old, row);
+        } else {
+            removeRow(old);
+            insertRow(row);
+        }
+        endChange();
+    }
+
+    @Override
+    public synchronized void deleted(ObjectId id, Expense before) {
+        if (id == null) {
+            resync();
+            return;
+        }
+        ExpenseRow old = before != null && before.getDate() != null ? ExpenseRow.of(before, zone) : cachedRow(id);
+        beginChange();
+        if (count >= 0) count--;
+        if (old == null) {
+            // Not in any cached page, so pages are unaffected; positions and sums are unknown
+            dropAll(Range.class);
+            dropAll(Totals.class);
+            totalKnown = false;
+        } else {
+            removeRow(old);
+        }
+        endChange();
+    }
+
+    @Override
+    public synchronized void resync() {
+        resyncs.increment();
+        clear();
+    }
+
+    private void clear() {
+        generation++;
+        entries.clear();
+        cachedRows = 0;
+        count = -1;
+        totalKnown = false;
+    }
+
+    // ========== Applying Changes ==========
+
+    private void applyInsert(ExpenseRow row) {
+        beginChange();
+        if (count >= 0) count++;
+        insertRow(row);
+        endChange();
+    }
+
+    // Drops whatever was loaded too recently to tell whether it already has the change
+    private void beginChange() {
+        generation++;
+        long settled = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+        if (count >= 0 && countLoadedNanos - settled > 0) count = -1;
+        if (totalKnown && totalLoadedNanos - settled > 0) totalKnown = false;
+        entries.values().removeIf(entry -> entry.loadedNanos - settled > 0);
+    }
+
+    private void endChange() {
+        long rows = 0;
+        for (Entry entry : entries.values()) {
+            rows += entry.rows();
+        }
+        cachedRows = rows;
+    }
+
+    private void insertRow(ExpenseRow row) {
+        if (totalKnown) total += row.amountCents();
+        insertIntoRanges(row);
+        for (Entry entry : entries.values()) {
+            if (entry instanceof Page) {
+                ((Page) entry).insert(row);
+            } else if (entry instanceof Totals) {
+                ((Totals) entry).add(row, 1);
+            }
+        }
+    }
+
+    private void removeRow(ExpenseRow row) {
+        if (totalKnown) total -= row.amountCents();
+        removeFromRanges(row);
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry instanceof Page && !((Page) entry).remove(row)) {
+                it.remove();
+                evictions.increment();
+            } else if (entry instanceof Totals) {
+                ((Totals) entry).add(row, -1);
+            }
+        }
+    }
+
+    // Same sort position: swap the row wherever it is cached
+    private void replaceRow(ExpenseRow old, ExpenseRow row) {
+        if (totalKnown) total += row.amountCents() - old.amountCents();
+        for (Entry entry : entries.values()) {
+            if (entry instanceof Range) {
+                replace(((Range) entry).rows, row);
+            } else if (entry instanceof Page) {
+                replace(((Page) entry).rows, row);
+            } else if (entry instanceof Totals) {
+                ((Totals) entry).add(old, -1);
+                ((Totals) entry).add(row, 1);
+            }
+        }
+    }
+
+    private static void replace(List<ExpenseRow> rows, ExpenseRow row) {
+        int index = Collections.binarySearch(rows, row, NEWEST_FIRST);
+        if (index >= 0) rows.set(index, row);
+    }
+
+    /**
+     * Shifts every cached range around a new row. Ranges after the insertion point take
+     * the last row of the range before them, which must be cached too.
+     */
+    private void insertIntoRanges(ExpenseRow row) {
+        List<Range> ranges = ranges();
+        if (ranges.isEmpty()) return;
+        long position = position(ranges, row);
+        ExpenseRow current = position >= 0 ? rowAt(ranges, position) : null;
+        if (current != null && current.id().equals(row.id())) return; // Already cached
+
+        // Looked up before anything moves
+        Map<Range, ExpenseRow> before = new HashMap<>();
+        for (Range range : ranges) {
+            if (position >= 0 && position < range.offset) {
+                before.put(range, rowAt(ranges, range.offset - 1));
+            }
+        }
+
+        for (Range range : ranges) {
+            if (position < 0) {
+                if (!range.endsBefore(row)) evict(range);
+                continue;
+            }
+            if (position >= range.offset + range.limit) continue;
+            if (position >= range.offset) {
+                range.rows.add((int) (position - range.offset), row);
+            } else {
+                ExpenseRow shifted = before.get(range);
+                if (shifted == null) {
+                    evict(range);
+                    continue;
+                }
+                range.rows.add(0, shifted);
+            }
+            if (range.rows.size() > range.limit) {
+                range.rows.remove(range.rows.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Closes the gap a removed row leaves in every cached range; full ranges take the
+     * first row of the range after them, which must be cached too.
+     */
+    private void removeFromRanges(ExpenseRow row) {
+        List<Range> ranges = ranges();
+        if (ranges.isEmpty()) return;
+        long position = position(ranges, row);
+        ExpenseRow current = position >= 0 ? rowAt(ranges, position) : null;
+        if (current != null && !current.id().equals(row.id())) {
+            dropAll(Range.class); // Should be cached right here but is not: the ranges are stale
+            return;
+        }
+
+        Map<Range, ExpenseRow> after = new HashMap<>();
+        for (Range range : ranges) {
+            if (position >= 0 && position < range.offset + range.limit && range.isFull()) {
+                after.put(range, rowAt(ranges, range.offset + range.limit));
+            }
+        }
+
+        for (Range range : ranges) {
+            if (position < 0) {
+                if (!range.endsBefore(row)) evict(range);
+                continue;
+            }
+            if (position >= range.offset + range.rows.size()) continue;
+            boolean wasFull = range.isFull();
+            if (position >= range.offset) {
+                range.rows.remove((int) (position - range.offset));
+            } else {
+                range.rows.remove(0);
+            }
+            if (wasFull) {
+                ExpenseRow next = after.get(range);
+                if (next == null) {
+                    evict(range);
+                    continue;
+                }
+                range.rows.add(next);
+            }
+        }
+    }
+
+    /**
+     * Index of the row in the newest-first order, or where it would go, as far as the
+     * cached ranges pin it down; -1 if they do not.
+     */
+    private static long position(List<Range> ranges, ExpenseRow row) {
+        long low = 0;
+        long high = Long.MAX_VALUE;
+        for (Range range : ranges) {
+            int size = range.rows.size();
+            int index = Collections.binarySearch(range.rows, row, NEWEST_FIRST);
+            if (index >= 0) {
+                return range.offset + index;
+            }
+            index = -(index + 1);
+            if (size == 0 || index == 0) {
+                high = Math.min(high, range.offset);
+            } else if (index < size) {
+                return range.offset + index;
+            } else {
+                low = Math.max(low, range.offset + size);
+                if (!range.isFull()) high = Math.min(high, range.offset + size);
+            }
+        }
+        return low == high ? low : -1;
+    }
+
+    private static ExpenseRow rowAt(List<Range> ranges, long position) {
+        for (Range range : ranges) {
+            if (position >= range.offset && position < range.offset + range.rows.size()) {
+                return range.rows.get((int) (position - range.offset));
+            }
+        }
+        return null;
+    }
+
+    private List<Range> ranges() {
+        List<Range> ranges = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry instanceof Range) ranges.add((Range) entry);
+        }
+        ranges.sort(Comparator.comparingInt(range -> range.offset));
+        return ranges;
+    }
+
+    // The row with this id in any cached range or page, or null
+    private ExpenseRow cachedRow(ObjectId id) {
+        for (Entry entry : entries.values()) {
+            List<ExpenseRow> rows = entry instanceof Range ? ((Range) entry).rows
+                    : entry instanceof Page ? ((Page) entry).rows : Collections.emptyList();
+            for (ExpenseRow row : rows) {
+                if (row.id().equals(id)) return row;
+            }
+        }
+        return null;
+    }
+
+    // Inserted by this process, so already applied by storedLocally however late the stream is
+    private static boolean ownId(ObjectId id) {
+        return Arrays.equals(id.toByteArray(), 4, 9, OWN_ID_MARK, 0, OWN_ID_MARK.length);
+    }
+
+    private boolean firstSighting(ObjectId id) {
+        if (recentInserts.remove(id) != null) return false;
+        recentInserts.put(id, Boolean.TRUE);
+        return true;
+    }
+
+    // ========== Storage ==========
+
+    private synchronized void store(long loadGeneration, Object key, Entry entry) {
+        if (loadGeneration != generation) {
+            return; // A change landed while loading; the result may predate it
+        }
+        Entry replaced = entries.put(key, entry);
+        cachedRows += entry.rows() - (replaced != null ? replaced.rows() : 0);
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (cachedRows > maxRows && entries.size() > 1) {
+            cachedRows -= eldest.next().rows();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void evict(Entry entry) {
+        entries.values().remove(entry);
+        evictions.increment();
+    }
+
+    private void dropAll(Class<? extends Entry> type) {
+        entries.values().removeIf(type::isInstance);
+    }
+
+    private synchronized long cachedRows() {
+        return cachedRows;
+    }
+
+    private static Long millis(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (stream != null) stream.close();
+            if (poller != null) poller.shutdownNow();
+        }
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+
+    // ========== Entries ==========
+
+    private abstract static class Entry {
+        final long loadedNanos = System.nanoTime();
+
+        // Weight against maxRows
+        abstract int rows();
+    }
+
+    /**
+     * Rows [offset, offset + limit); fewer only at the end of the collection.
+     */
+    private static final class Range extends Entry {
+        final int offset;
+        final int limit;
+        final List<ExpenseRow> rows;
+
+        Range(int offset, int limit, List<ExpenseRow> rows) {
+            this.offset = offset;
+            this.limit = limit;
+            this.rows = new ArrayList<>(rows);
+        }
+
+        boolean isFull() {
+            return rows.size() >= limit;
+        }
+
+        // A full range whose last row is newer than this one cannot move
+        boolean endsBefore(ExpenseRow row) {
+            return isFull() && NEWEST_FIRST.compare(rows.get(rows.size() - 1), row) < 0;
+        }
+
+        @Override
+        int rows() {
+            return rows.size() + 1;
+        }
+    }
+
+    /**
+     * The first {@code size} rows after a cursor. Its start is fixed by the cursor key,
+     * so changes only have to be merged in.
+     */
+    private static final class Page extends Entry {
+        final ExpenseRow after;  // Cursor key, or null for the first page
+        final int size;
+        final List<ExpenseRow> rows;
+        boolean more;
+
+        Page(String cursor, int size, List<ExpenseRow> rows, boolean more) {
+            this.after = cursor != null
+                    ? new ExpenseRow(ExpensePage.cursorId(cursor), 0, ExpensePage.cursorDate(cursor).getTime(), null, 0, "", false)
+                    : null;
+            this.size = size;
+            this.rows = new ArrayList<>(rows);
+            this.more = more;
+        }
+
+        void insert(ExpenseRow row) {
+            if (after != null && NEWEST_FIRST.compare(row, after) <= 0) return;
+            int index = Collections.binarySearch(rows, row, NEWEST_FIRST);
+            if (index >= 0) return; // Already here
+            index = -(index + 1);
+            if (index < rows.size()) {
+                rows.add(index, row);
+                if (rows.size() > size) {
+                    rows.remove(rows.size() - 1);
+                    more = true;
+                }
+            } else if (rows.size() < size) {
+                rows.add(row);
+            } else {
+                more = true;
+            }
+        }
+
+        // False if the page can no longer be completed without a read
+        boolean remove(ExpenseRow row) {
+            int index = Collections.binarySearch(rows, row, NEWEST_FIRST);
+            if (index < 0) return true;
+            rows.remove(index);
+            return !more;
+        }
+
+        ExpensePage<ExpenseRow> toExpensePage() {
+            return new ExpensePage<>(new ArrayList<>(rows),
+                    more ? ExpensePage.encodeCursor(rows.get(rows.size() - 1)) : null);
+        }
+
+        @Override
+        int rows() {
+            return rows.size() + 1;
+        }
+    }
+
+    /**
+     * Sum and count per category, day or month of one date range.
+     */
+    private static final class Totals extends Entry {
+        final TotalsKey key;
+        final Map<String, long[]> sums = new HashMap<>();
+
+        Totals(TotalsKey key) {
+            this.key = key;
+        }
+
+        void add(ExpenseRow row, int sign) {
+            if (key.from() != null && row.dateMillis() < key.from()) return;
+            if (key.to() != null && row.dateMillis() >= key.to()) return;
+            LocalDate day = LocalDate.ofEpochDay(row.epochDay());
+            String bucket = key.kind() == Kind.CATEGORY ? row.category()
+                    : key.kind() == Kind.DAY ? day.toString() : YearMonth.from(day).toString();
+            long[] sum = sums.computeIfAbsent(bucket, b -> new long[2]);
+            sum[0] += sign * row.amountCents();
+            sum[1] += sign;
+            if (sum[1] <= 0) sums.remove(bucket);
+        }
+
+        List<CategoryTotal> categoryTotals() {
+            List<CategoryTotal> totals = new ArrayList<>(sums.size());
+            sums.forEach((category, sum) -> totals.add(new CategoryTotal(category, sum[0], sum[1], (double) sum[0] / sum[1])));
+            totals.sort(Comparator.comparingLong(CategoryTotal::getSumCents).reversed());
+            return totals;
+        }
+
+        List<PeriodTotal> periodTotals() {
+            List<PeriodTotal> totals = new ArrayList<>(sums.size());
+            new TreeMap<>(sums).forEach((period, sum) -> totals.add(new PeriodTotal(period, sum[0], sum[1])));
+            return totals;
+        }
+
+        @Override
+        int rows() {
+            return sums.size() + 1;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.expensetracker.dao;
+
+/**
+ * Sum, count and average of the expenses in one category, in minor units.
+ */
+public class CategoryTotal {
+    private final String category;
+    private final long sumCents;
+    private final long count;
+    private final double averageCents;
+
+    public CategoryTotal(String category, long sumCents, long count, double averageCents) {
+        this.category = category;
+        this.sumCents = sumCents;
+        this.count = count;
+        this.averageCents = averageCents;
+    }
+
+    public String getCategory() { return category; }
+    public long getSumCents() { return sumCents; }
+    public long getCount() { return count; }
+    public double getAverageCents() { return averageCents; }
+}
@@ -0,0 +1,134 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.db.MongoConnection;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Server-side summaries of the expenses collection.
+ *
+ * Each method is a single {@code $match}/{@code $group} pipeline, so only the grouped
+ * result crosses the network. The {@code {date, categoryId, amountCents}} index bounds the
+ * date-range match, but these are fetch plans, not covered ones: every pipeline also
+ * reads the legacy double {@code amount}, which is not in the index, so each matching
+ * document is loaded on the server. Sums are exact int64 minor units; documents that
+ * predate {@code amountCents} are converted from {@code amount} inside the pipeline.
+ * Categories are grouped by their registry id and named on the way out.
+ */
+public class ExpenseAggregations {
+
+    // Amount in minor units, falling back to the legacy double field
+    static final Document CENTS = new Document("$ifNull", Arrays.asList("$amountCents",
+            new Document("$toLong", new Document("$round", Arrays.asList(
+                    new Document("$multiply", Arrays.asList("$amount", 100)), 0)))));
+
+    private final MongoCollection<Document> collection;
+    private final CategoryRegistry categories;
+
+    // Day and month buckets follow the user's calendar, not UTC
+    private final String timezone = TimeZone.getDefault().getID();
+
+    public ExpenseAggregations() {
+        this(MongoConnection.getDatabase(), MongoConnection.getCategories());
+    }
+
+    public ExpenseAggregations(MongoDatabase database, CategoryRegistry categories) {
+        this.categories = categories;
+        collection = database.getCollection("expenses");
+        collection.createIndex(Indexes.ascending("date", "categoryId", "amountCents"),
+                new IndexOptions().name("date_1_categoryId_1_amountCents_1"));
+    }
+
+    // Sum of all amounts, in minor units; reads every document, so keep it off hot paths
+    public long grandTotal() {
+        Document result = collection.aggregate(Arrays.asList(
+                Aggregates.project(Projections.fields(Projections.include("amountCents", "amount"), Projections.excludeId())),
+                Aggregates.group(null, Accumulators.sum("sum", CENTS)))).first();
+        return result != null ? sum(result) : 0;
+    }
+
+    // Sum, count and average per category for expenses dated in [from, to); null bounds are open
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        List<CategoryTotal> totals = new ArrayList<>();
+        for (Document doc : collection.aggregate(Arrays.asList(
+                Aggregates.match(dateRange(from, to)),
+                Aggregates.project(Projections.fields(Projections.include("categoryId", "amountCents", "amount"), Projections.excludeId())),
+                Aggregates.group("$categoryId",
+                        Accumulators.sum("sum", CENTS),
+                        Accumulators.sum("count", 1),
+                        Accumulators.avg("avg", CENTS)),
+                Aggregates.sort(Sorts.descending("sum"))))) {
+            Number id = doc.get("_id", Number.class);
+            String category = id != null ? categories.name(id.intValue()) : null;
+            totals.add(new CategoryTotal(category, sum(doc), count(doc), number(doc, "avg")));
+        }
+        return totals;
+    }
+
+    // Sum and count per calendar day, oldest first
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return periodTotals(from, to, "%Y-%m-%d");
+    }
+
+    // Sum and count per calendar month, oldest first
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return periodTotals(from, to, "%Y-%m");
+    }
+
+    private List<PeriodTotal> periodTotals(Date from, Date to, String format) {
+        Document period = new Document("$dateToString", new Document("format", format)
+                .append("date", "$date")
+                .append("timezone", timezone));
+
+        List<PeriodTotal> totals = new ArrayList<>();
+        for (Document doc : collection.aggregate(Arrays.asList(
+                Aggregates.match(dateRange(from, to)),
+                Aggregates.project(Projections.fields(Projections.include("date", "amountCents", "amount"), Projections.excludeId())),
+                Aggregates.group(period,
+                        Accumulators.sum("sum", CENTS),
+                        Accumulators.sum("count", 1)),
+                Aggregates.sort(Sorts.ascending("_id"))))) {
+            totals.add(new PeriodTotal(doc.getString("_id"), sum(doc), count(doc)));
+        }
+        return totals;
+    }
+
+    private static Bson dateRange(Date from, Date to) {
+        List<Bson> bounds = new ArrayList<>(2);
+        if (from != null) bounds.add(Filters.gte("date", from));
+        if (to != null) bounds.add(Filters.lt("date", to));
+        // Always constrain on date so the planner picks the date-prefixed index
+        return bounds.isEmpty() ? Filters.exists("date") : Filters.and(bounds);
+    }
+
+    private static long sum(Document doc) {
+        Number sum = doc.get("sum", Number.class);
+        return sum != null ? sum.longValue() : 0;
+    }
+
+    private static double number(Document doc, String field) {
+        Number value = doc.get(field, Number.class);
+        return value != null ? value.doubleValue() : 0;
+    }
+
+    private static long count(Document doc) {
+        Number count = doc.get("count", Number.class);
+        return count != null ? count.longValue() : 0;
+    }
+}
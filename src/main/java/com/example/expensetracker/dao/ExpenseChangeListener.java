@@ -0,0 +1,23 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+import org.bson.types.ObjectId;
+
+/**
+ * Told about changes other clients made to the stored expenses, e.g. by an
+ * {@link ExpenseChangeStream}.
+ *
+ * The "before" images are only present when the server keeps pre-images for the
+ * collection; otherwise they are null. Calls come from one thread, in server order.
+ */
+public interface ExpenseChangeListener {
+
+    void inserted(Expense expense);
+
+    void updated(Expense after, Expense before);
+
+    void deleted(ObjectId id, Expense before);
+
+    // Changes may have been missed; everything derived from the collection is suspect
+    void resync();
+}
@@ -0,0 +1,180 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the {@code expenses} change stream on a daemon thread and hands every insert,
+ * update and delete to an {@link ExpenseChangeListener}.
+ *
+ * Updates are delivered with the current document, and with the previous one where the
+ * collection has {@code changeStreamPreAndPostImages} enabled. After a network error the
+ * stream resumes from the last token, so no event is lost; if the server no longer has
+ * that point in its oplog, or the collection is dropped or renamed, the listener is told
+ * to resync. If the server cannot open a change stream at all (a standalone server, or
+ * a tier without change streams) {@code onUnavailable} runs once and the thread ends.
+ */
+public class ExpenseChangeStream implements AutoCloseable {
+
+    // Server codes meaning change streams will never work on this deployment
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int CHANGE_STREAM_NOT_ENABLED = 136;
+    private static final int HISTORY_LOST = 286;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MongoCollection<Expense> collection;
+    private final ExpenseChangeListener listener;
+    private final Runnable onUnavailable;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private BsonDocument resumeToken;
+    private boolean preImages = true;
+    private boolean opened;
+
+    public ExpenseChangeStream(MongoCollection<Expense> collection, ExpenseChangeListener listener, Runnable onUnavailable) {
+        this.collection = collection;
+        this.listener = listener;
+        this.onUnavailable = onUnavailable;
+        this.thread = new Thread(this::run, "expense-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!closed) {
+            try {
+                follow();
+                backoff = INITIAL_BACKOFF_MILLIS;
+            } catch (MongoInterruptedException e) {
+                return;
+            } catch (MongoCommandException e) {
+                if (!opened && preImages) {
+                    preImages = false; // Servers before 6.0 reject the pre-image option
+                    continue;
+                }
+                if (!opened && (e.getErrorCode() == NOT_A_REPLICA_SET || e.getErrorCode() == CHANGE_STREAM_NOT_ENABLED)) {
+                    System.err.println("Change streams unavailable (" + e.getErrorMessage() + "); polling instead");
+                    onUnavailable.run();
+                    return;
+                }
+                if (e.getErrorCode() == HISTORY_LOST) {
+                    resumeToken = null;
+                    listener.resync();
+                }
+                backoff = pause(e, backoff);
+            } catch (MongoException | IllegalStateException e) {
+                backoff = pause(e, backoff);
+            }
+        }
+    }
+
+    // Reads events until the stream ends or fails
+    private void follow() {
+        ChangeStreamIterable<Expense> stream = collection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (preImages) {
+            stream = stream.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE);
+        }
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Expense>> cursor = stream.cursor()) {
+            if (!opened) {
+                opened = true;
+                // Writes made before the stream opened were not seen
+                listener.resync();
+            }
+            while (!closed) {
+                ChangeStreamDocument<Expense> change = cursor.tryNext();
+                BsonDocument token = change != null ? change.getResumeToken() : cursor.getResumeToken();
+                if (token != null) resumeToken = token;
+                if (change != null && !dispatch(change)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes one event on.
+     *
+     * @return false if the stream was invalidated and has to be opened again
+     */
+    private boolean dispatch(ChangeStreamDocument<Expense> change) {
+        try {
+            switch (change.getOperationType()) {
+                case INSERT:
+                    listener.inserted(change.getFullDocument());
+                    return true;
+                case UPDATE:
+                case REPLACE:
+                    if (change.getFullDocument() != null) {
+                        listener.updated(change.getFullDocument(), change.getFullDocumentBeforeChange());
+                    } else {
+                        // Deleted again before the lookup
+                        listener.deleted(documentId(change), change.getFullDocumentBeforeChange());
+                    }
+                    return true;
+                case DELETE:
+                    listener.deleted(documentId(change), change.getFullDocumentBeforeChange());
+                    return true;
+                case DROP:
+                case RENAME:
+                case DROP_DATABASE:
+                    listener.resync();
+                    return true;
+                case INVALIDATE:
+                    resumeToken = null;
+                    listener.resync();
+                    return false;
+                default:
+                    return true;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Could not apply change " + change.getOperationType() + ": " + e.getMessage());
+            listener.resync();
+            return true;
+        }
+    }
+
+    private static ObjectId documentId(ChangeStreamDocument<Expense> change) {
+        BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        return id != null && id.isObjectId() ? id.asObjectId().getValue() : null;
+    }
+
+    private long pause(Exception e, long backoff) {
+        if (closed) return backoff;
+        System.err.println("Change stream failed, retrying in " + backoff + " ms: " + e.getMessage());
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        return Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+}
@@ -1,33 +1,312 @@
 package com.example.expensetracker.dao;
 
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.db.ExpenseRowCodec;
 import com.example.expensetracker.db.MongoConnection;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteUpsert;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class ExpenseDAO {
-    private final MongoCollection<Document> collection = MongoConnection.getDatabase().getCollection("expenses");
+/**
+ * MongoDB-backed {@link ExpenseRepository}.
+ */
+public class ExpenseDAO implements ExpenseRepository {
+    public static final int DEFAULT_PAGE_SIZE = 100;
 
-    // Insert new expense
+    // Documents per getMore while scanning a date range; a few hundred KB of small expenses
+    public static final int DEFAULT_SCAN_BATCH_SIZE = 4096;
+
+    // Newest first, with _id as tie-breaker so every row has a unique position
+    private static final Bson NEWEST_FIRST = Indexes.descending("date", "_id");
+
+    // Only what a table row shows; the description is cut server-side
+    private static final Bson ROW_PROJECTION = Projections.fields(
+            Projections.include("date", "categoryId", "category", "amountCents", "amount"),
+            Projections.computed(ExpenseRowCodec.PREVIEW_FIELD, new Document("$substrCP",
+                    Arrays.asList(new Document("$ifNull", Arrays.asList("$description", "")), 0, ExpenseRow.PREVIEW_LENGTH))),
+            Projections.computed(ExpenseRowCodec.TRUNCATED_FIELD, new Document("$gt", Arrays.asList(
+                    new Document("$strLenCP", new Document("$ifNull", Arrays.asList("$description", ""))),
+                    ExpenseRow.PREVIEW_LENGTH))));
+
+    // Decoded by ExpenseCodec straight into Expense objects
+    private final MongoCollection<Expense> collection;
+    private final ExpenseRollups rollups;
+    private final ExpenseAggregations aggregations;
+    private final CategoryRegistry categories;
+    private final InsertListeners listeners = new InsertListeners();
+    private volatile int scanBatchSize = DEFAULT_SCAN_BATCH_SIZE;
+
+    // Same collection, decoded by ExpenseRowCodec from the row projection
+    private final MongoCollection<ExpenseRow> rows;
+
+    public ExpenseDAO() {
+        this(MongoConnection.getDatabase(), MongoConnection.getCategories());
+    }
+
+    // The database must decode with codecs built on the same registry, see MongoConnection.codecRegistry
+    public ExpenseDAO(MongoDatabase database, CategoryRegistry categories) {
+        this.categories = categories;
+        collection = database.getCollection("expenses", Expense.class);
+        rows = collection.withDocumentClass(ExpenseRow.class);
+        rollups = new ExpenseRollups(database, categories);
+        aggregations = new ExpenseAggregations(database, categories);
+
+        // Backs both the sort and the keyset range filter of findPage
+        collection.createIndex(NEWEST_FIRST, new IndexOptions().name("date_-1__id_-1"));
+        // Until the rollups are rebuilt (see ExpenseRepositories, RebuildRollups) totals bypass them
+        rollups.checkState();
+    }
+
+    // The typed collection, e.g. to watch it for changes
+    public MongoCollection<Expense> getCollection() {
+        return collection;
+    }
+
+    // Larger batches mean fewer round trips on long scans and exports, each holding more in memory
+    public void setScanBatchSize(int scanBatchSize) {
+        if (scanBatchSize <= 0) throw new IllegalArgumentException("scanBatchSize must be positive");
+        this.scanBatchSize = scanBatchSize;
+    }
+
+    // Monthly rollups maintained by every insert
+    public ExpenseRollups getRollups() {
+        return rollups;
+    }
+
+    // Server-side aggregation pipelines over the raw collection
+    public ExpenseAggregations getAggregations() {
+        return aggregations;
+    }
+
+    // Insert new expense; a dateless one is rejected before anything is written
+    @Override
     public void insertExpense(Expense expense) {
-        Document doc = expense.toDocument();
-        collection.insertOne(doc);
-        if (doc.containsKey("_id")) {
-            expense.setId(doc.getObjectId("_id"));
+        if (expense.getDate() == null) {
+            throw new IllegalArgumentException("Expense date is required");
         }
+        internCategory(expense);
+        collection.insertOne(expense); // ExpenseCodec assigns the _id on the object itself
+        rollups.record(expense);
+        listeners.inserted(List.of(expense));
+    }
+
+    // Insert many expenses in unordered insertMany batches
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        return insertExpenses(expenses, BatchWriter.DEFAULT_BATCH_SIZE, false);
+    }
+
+    // Insert many expenses; failures are reported per batch instead of aborting the load
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses, int batchSize, boolean ordered) {
+        BatchWriter writer = new BatchWriter(collection, categories, rollups, listeners, batchSize, 0, ordered);
+        try (writer) {
+            for (Expense expense : expenses) {
+                writer.add(expense);
+            }
+        }
+        return writer.getReport();
+    }
+
+    // Open a streaming writer for loads that do not fit in one collection
+    public BatchWriter newBatchWriter(int batchSize, long maxDelayMillis, boolean ordered) {
+        return new BatchWriter(collection, categories, rollups, listeners, batchSize, maxDelayMillis, ordered);
+    }
+
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    // Idempotent write of expenses that already carry an _id; replaying a batch changes nothing.
+    // Only documents this call created are added to the rollups, also when the batch partly fails.
+    public void upsertExpenses(List<? extends Expense> expenses) {
+        if (expenses.isEmpty()) return;
+        for (Expense expense : expenses) {
+            if (expense.getDate() == null) {
+                throw new IllegalArgumentException("Expense date is required");
+            }
+        }
+        List<ReplaceOneModel<Expense>> writes = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            internCategory(expense);
+            writes.add(new ReplaceOneModel<>(Filters.eq("_id", expense.getId()), expense,
+                    new ReplaceOptions().upsert(true)));
+        }
+        try {
+            recordUpserts(expenses, collection.bulkWrite(writes, new BulkWriteOptions().ordered(false)).getUpserts());
+        } catch (MongoBulkWriteException e) {
+            recordUpserts(expenses, e.getWriteResult().getUpserts());
+            throw e;
+        }
+    }
+
+    // Fetch the first page of expenses, newest first
+    public ExpensePage<Expense> findPage(int pageSize) {
+        return findPage(null, pageSize);
+    }
+
+    // Fetch the page that follows the row encoded in cursorToken (null for the first page)
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        List<Expense> items = keyset(collection.find(afterCursor(cursorToken)), pageSize);
+        boolean more = trimExtraRow(items, pageSize);
+        return new ExpensePage<>(items, more ? ExpensePage.encodeCursor(items.get(items.size() - 1)) : null);
     }
 
-    // Fetch all expenses
+    // Like findPage, but projected down to the fields a table row shows
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        List<ExpenseRow> items = keyset(rows.find(afterCursor(cursorToken)).projection(ROW_PROJECTION), pageSize);
+        boolean more = trimExtraRow(items, pageSize);
+        return new ExpensePage<>(items, more ? ExpensePage.encodeCursor(items.get(items.size() - 1)) : null);
+    }
+
+    // Fetch rows [offset, offset + limit) of the newest-first order; used for random jumps
+    public List<Expense> findRange(int offset, int limit) {
+        return collection.find()
+                .sort(NEWEST_FIRST)
+                .skip(offset)
+                .limit(limit)
+                .batchSize(limit)
+                .into(new ArrayList<>(limit));
+    }
+
+    // Like findRange, but projected down to the fields a table row shows
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        return rows.find()
+                .projection(ROW_PROJECTION)
+                .sort(NEWEST_FIRST)
+                .skip(offset)
+                .limit(limit)
+                .batchSize(limit)
+                .into(new ArrayList<>(limit));
+    }
+
+    // Fetch one full expense, e.g. when a row is opened
+    @Override
+    public Expense findById(ObjectId id) {
+        return collection.find(Filters.eq("_id", id)).first();
+    }
+
+    // Stream a date range oldest first, one cursor batch in memory at a time
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        List<Bson> bounds = new ArrayList<>(2);
+        if (from != null) bounds.add(Filters.gte("date", from));
+        if (to != null) bounds.add(Filters.lt("date", to));
+        collection.find(bounds.isEmpty() ? new Document() : Filters.and(bounds))
+                .sort(Indexes.ascending("date", "_id"))
+                .batchSize(scanBatchSize)
+                .forEach(action);
+    }
+
+    // Index of an expense in the newest-first order: how many rows sort before it
+    @Override
+    public long countNewerThan(Expense expense) {
+        Bson newer = Filters.or(
+                Filters.gt("date", expense.getDate()),
+                Filters.and(Filters.eq("date", expense.getDate()), Filters.gt("_id", expense.getId())));
+        return collection.countDocuments(newer);
+    }
+
+    // Number of expenses, read from collection metadata so it costs no scan
+    @Override
+    public long countExpenses() {
+        return collection.estimatedDocumentCount();
+    }
+
+    // Total from the monthly rollups, or from the raw collection while they are dirty
+    @Override
+    public long totalCents() {
+        return rollups.isDirty() ? aggregations.grandTotal() : rollups.grandTotal();
+    }
+
+    @Override
+    public CategoryRegistry categories() {
+        return categories;
+    }
+
+    // From the rollups for whole months unless they are dirty; day-bounded ranges need the raw collection
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        return useRollups(from, to) ? rollups.categoryTotals(from, to) : aggregations.categoryTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return aggregations.dailyTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return useRollups(from, to) ? rollups.monthlyTotals(from, to) : aggregations.monthlyTotals(from, to);
+    }
+
+    // Fetch all expenses; prefer findPage for anything that is shown to the user
     public List<Expense> getAllExpenses() {
-        List<Expense> expenses = new ArrayList<>();
-        FindIterable<Document> docs = collection.find().sort(new Document("date", -1));
-        for (Document doc : docs) {
-            expenses.add(Expense.fromDocument(doc));
+        return collection.find().sort(NEWEST_FIRST).into(new ArrayList<>());
+    }
+
+    private boolean useRollups(Date from, Date to) {
+        return !rollups.isDirty() && rollups.coversWholeMonths(from, to);
+    }
+
+    // Registers a new category before the write, so ExpenseCodec only has to look its id up
+    private void internCategory(Expense expense) {
+        if (expense.getCategory() != null) categories.intern(expense.getCategory());
+    }
+
+    private void recordUpserts(List<? extends Expense> expenses, List<BulkWriteUpsert> upserts) {
+        List<Expense> created = new ArrayList<>(upserts.size());
+        for (BulkWriteUpsert upsert : upserts) {
+            created.add(expenses.get(upsert.getIndex()));
         }
-        return expenses;
+        rollups.recordAll(created);
+    }
+
+    // Rows strictly after the cursor in newest-first order; everything for a null cursor
+    private static Bson afterCursor(String cursorToken) {
+        if (cursorToken == null) return new Document();
+        Date date = ExpensePage.cursorDate(cursorToken);
+        return Filters.or(
+                Filters.lt("date", date),
+                Filters.and(Filters.eq("date", date), Filters.lt("_id", ExpensePage.cursorId(cursorToken))));
+    }
+
+    // Ask for one extra row so we know whether another page exists without a count
+    private static <T> List<T> keyset(FindIterable<T> find, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+        return find.sort(NEWEST_FIRST)
+                .limit(pageSize + 1)
+                .batchSize(pageSize + 1)
+                .into(new ArrayList<>(pageSize + 1));
+    }
+
+    private static boolean trimExtraRow(List<?> items, int pageSize) {
+        if (items.size() <= pageSize) return false;
+        items.remove(pageSize);
+        return true;
     }
 }
@@ -0,0 +1,60 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One window of expenses (or their row views) in {@code (date desc, _id desc)} order,
+ * plus the opaque cursor token that continues after its last row.
+ */
+public class ExpensePage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public ExpensePage(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    // Token to pass to the next findPage call, or null when this is the last page
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+
+    // Cursor token is "<epoch millis>:<object id hex>" of the last row already seen
+    public static String encodeCursor(Expense last) {
+        return encodeCursor(last.getDate().getTime(), last.getId());
+    }
+
+    public static String encodeCursor(ExpenseRow last) {
+        return encodeCursor(last.dateMillis(), last.id());
+    }
+
+    public static String encodeCursor(long dateMillis, ObjectId id) {
+        return dateMillis + ":" + id.toHexString();
+    }
+
+    static Date cursorDate(String token) {
+        return new Date(Long.parseLong(token.substring(0, separator(token))));
+    }
+
+    static ObjectId cursorId(String token) {
+        return new ObjectId(token.substring(separator(token) + 1));
+    }
+
+    private static int separator(String token) {
+        int i = token.indexOf(':');
+        if (i <= 0 || !ObjectId.isValid(token.substring(i + 1))) {
+            throw new IllegalArgumentException("Malformed page cursor: " + token);
+        }
+        return i;
+    }
+}
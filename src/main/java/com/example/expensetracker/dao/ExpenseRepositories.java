@@ -0,0 +1,124 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.config.AppConfig;
+import com.example.expensetracker.db.MongoConnection;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.SyntheticExpenses;
+import com.example.expensetracker.store.DurableQueue;
+import com.example.expensetracker.store.JournalExpenseRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Picks the storage engine named by {@code spendwise.storage}:
+ * {@code mongo} (default), {@code memory} or {@code journal}. The in-memory engine can be
+ * pre-filled with {@code spendwise.memory.seedRows} deterministic synthetic expenses.
+ * The journal engine keeps its files in {@code spendwise.journal.dir}. With
+ * {@code spendwise.mongo.writeBehind=true} Mongo inserts go through a local queue in
+ * {@code spendwise.writeBehind.dir} and are flushed in the background. Scans and exports
+ * fetch {@code spendwise.mongo.scanBatchSize} documents per round trip. Mongo reads go
+ * through a {@link CachingExpenseRepository} kept current by a change stream, or by
+ * polling with {@code spendwise.cache.invalidation=poll}, unless
+ * {@code spendwise.cache.enabled=false}. Dirty or missing monthly rollups are rebuilt in the
+ * background unless {@code spendwise.rollups.autoRebuild=false}. Every engine is wrapped in an
+ * {@link InstrumentedExpenseRepository} unless {@code spendwise.metrics.enabled=false}.
+ */
+public final class ExpenseRepositories {
+
+    private ExpenseRepositories() {}
+
+    public static String storage(AppConfig config) {
+        return config.getString("spendwise.storage", "mongo").toLowerCase(Locale.ROOT);
+    }
+
+    // Which data the configured engine holds: engine plus database or directory, no credentials
+    public static String source(AppConfig config) {
+        String storage = storage(config);
+        switch (storage) {
+            case "mongo":
+                return storage + ":" + MongoConnection.target(config);
+            case "journal":
+                return storage + ":" + config.getLocalPath("spendwise.journal.dir", "journal").toAbsolutePath();
+            default:
+                return storage;
+        }
+    }
+
+    public static ExpenseRepository fromConfig(AppConfig config) {
+        ExpenseRepository repository = open(config);
+        return config.getBoolean("spendwise.metrics.enabled", true)
+                ? new InstrumentedExpenseRepository(repository, MetricsRegistry.get())
+                : repository;
+    }
+
+    private static ExpenseRepository open(AppConfig config) {
+        String storage = storage(config);
+        switch (storage) {
+            case "mongo":
+                ExpenseDAO dao = new ExpenseDAO();
+                dao.setScanBatchSize(config.getInt("spendwise.mongo.scanBatchSize", ExpenseDAO.DEFAULT_SCAN_BATCH_SIZE));
+                if (dao.getRollups().isDirty() && config.getBoolean("spendwise.rollups.autoRebuild", true)) {
+                    dao.getRollups().rebuildInBackground(config.getInt("spendwise.rollups.rebuildThreads", 2));
+                }
+                ExpenseRepository mongo = config.getBoolean("spendwise.mongo.writeBehind", false) ? writeBehind(dao, config) : dao;
+                return config.getBoolean("spendwise.cache.enabled", true) ? cached(mongo, dao, config) : mongo;
+            case "memory":
+                InMemoryExpenseRepository memory = new InMemoryExpenseRepository();
+                int seedRows = config.getInt("spendwise.memory.seedRows", 0);
+                if (seedRows > 0) {
+                    memory.insertExpenses(SyntheticExpenses.generate(seedRows, config.getLong("spendwise.memory.seed", 42)));
+                }
+                return memory;
+            case "journal":
+                return openJournal(config);
+            default:
+                throw new IllegalArgumentException("Unknown spendwise.storage: " + storage);
+        }
+    }
+
+    private static CachingExpenseRepository cached(ExpenseRepository mongo, ExpenseDAO dao, AppConfig config) {
+        CachingExpenseRepository cache = new CachingExpenseRepository(mongo,
+                config.getLong("spendwise.cache.maxRows", CachingExpenseRepository.DEFAULT_MAX_ROWS));
+        long pollMillis = config.getLong("spendwise.cache.pollMillis", 5_000);
+        String invalidation = config.getString("spendwise.cache.invalidation", "changeStream").toLowerCase(Locale.ROOT);
+        switch (invalidation) {
+            case "changestream":
+                cache.watch(dao.getCollection(), pollMillis);
+                break;
+            case "poll":
+                cache.startPolling(pollMillis);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown spendwise.cache.invalidation: " + invalidation);
+        }
+        return cache;
+    }
+
+    private static WriteBehindExpenseRepository writeBehind(ExpenseDAO dao, AppConfig config) {
+        Path dir = config.getLocalPath("spendwise.writeBehind.dir", "outbox");
+        try {
+            DurableQueue queue = new DurableQueue(dir.resolve("inserts.queue"),
+                    config.getBoolean("spendwise.writeBehind.fsync", true));
+            WriteBehindExpenseRepository repository = new WriteBehindExpenseRepository(dao, queue,
+                    config.getInt("spendwise.writeBehind.batchSize", WriteBehindExpenseRepository.DEFAULT_BATCH_SIZE));
+            MetricsRegistry.get().gauge("writeBehind.pending", repository::pendingCount);
+            return repository;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open write-behind queue in " + dir, e);
+        }
+    }
+
+    private static JournalExpenseRepository openJournal(AppConfig config) {
+        Path dir = config.getLocalPath("spendwise.journal.dir", "journal");
+        try {
+            return new JournalExpenseRepository(dir,
+                    config.getLong("spendwise.journal.compactBytes", 64L << 20),
+                    config.getBoolean("spendwise.journal.fsync", true));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open expense journal in " + dir, e);
+        }
+    }
+}
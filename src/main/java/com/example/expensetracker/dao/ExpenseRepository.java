@@ -0,0 +1,72 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage engine for expenses.
+ *
+ * Rows are ordered newest first by {@code (date desc, _id desc)}; offsets, cursors and
+ * positions all refer to that order. Date ranges are half-open, {@code [from, to)}, and a
+ * null bound leaves that side open. Implementations are safe for concurrent use.
+ */
+public interface ExpenseRepository {
+
+    // countNewerThan result when a row's position is not known locally; reload instead
+    long POSITION_UNKNOWN = -1;
+
+    // ========== Writes ==========
+
+    // Store one expense, assigning its _id if it has none
+    void insertExpense(Expense expense);
+
+    // Store many expenses; rejected ones are reported instead of failing the load
+    BatchReport insertExpenses(Collection<? extends Expense> expenses);
+
+    // Be told about every expense stored through this repository from now on
+    void addInsertListener(InsertListener listener);
+
+    // ========== Reads ==========
+
+    // Full expenses after cursorToken (null for the first page)
+    ExpensePage<Expense> findPage(String cursorToken, int pageSize);
+
+    // Row views after cursorToken (null for the first page)
+    ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize);
+
+    // Row views [offset, offset + limit)
+    List<ExpenseRow> findRowRange(int offset, int limit);
+
+    // One full expense, or null
+    Expense findById(ObjectId id);
+
+    // Stream every expense dated in [from, to), oldest first
+    void scan(Date from, Date to, Consumer<? super Expense> action);
+
+    long countExpenses();
+
+    // How many rows sort before this expense, i.e. its row index, or POSITION_UNKNOWN when
+    // the store cannot tell without a server round trip
+    long countNewerThan(Expense expense);
+
+    // ========== Aggregates ==========
+
+    // Category names known to this store; new names are registered as expenses use them
+    CategoryRegistry categories();
+
+    // Sum of all amounts, in minor units
+    long totalCents();
+
+    List<CategoryTotal> categoryTotals(Date from, Date to);
+
+    List<PeriodTotal> dailyTotals(Date from, Date to);
+
+    List<PeriodTotal> monthlyTotals(Date from, Date to);
+}
@@ -0,0 +1,429 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.db.MongoConnection;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Monthly per-category rollups kept in {@code expense_rollups}.
+ *
+ * Every write through {@link ExpenseDAO} also {@code $inc}s the sum (int64 minor units),
+ * count and sum of squares of its {@code (yyyy-MM, categoryId)} bucket, so the grand total and
+ * per-category and per-month totals over whole months are read from months × categories
+ * documents instead of the raw collection. The rollup write is not
+ * atomic with the expense insert: when it fails the expense stays stored and the rollups
+ * are marked dirty, in memory and with a marker in {@code expense_rollups_state} that
+ * other instances and later starts see too. Readers check {@link #isDirty()} and fall
+ * back to the raw collection until {@link #rebuild(int)} recomputes everything and clears
+ * the marker, either in the background ({@link #rebuildInBackground}) or from
+ * {@code RebuildRollups}. A rebuild during which the number of expenses changed leaves the
+ * rollups dirty, since those writes may be missing from the result.
+ */
+public class ExpenseRollups {
+
+    private static final String COLLECTION = "expense_rollups";
+    private static final String STATE_COLLECTION = "expense_rollups_state";
+    private static final String STATE_ID = "rollups";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final MongoDatabase database;
+    private final MongoCollection<Document> rollups;
+    private final MongoCollection<Document> expenses;
+    private final MongoCollection<Document> state;
+    private final CategoryRegistry categories;
+    private final Counter failures = MetricsRegistry.get().counter("rollups.failures");
+
+    // Rollups known not to match the raw collection; cleared only by a rebuild
+    private volatile boolean dirty;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // Month buckets follow the user's calendar, same as ExpenseAggregations
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public ExpenseRollups() {
+        this(MongoConnection.getDatabase(), MongoConnection.getCategories());
+    }
+
+    public ExpenseRollups(MongoDatabase database, CategoryRegistry categories) {
+        this.database = database;
+        this.categories = categories;
+        this.rollups = database.getCollection(COLLECTION);
+        this.expenses = database.getCollection("expenses");
+        this.state = database.getCollection(STATE_COLLECTION);
+    }
+
+    // Add one stored expense to its bucket; a failure marks the rollups dirty instead of throwing
+    public void record(Expense expense) {
+        if (expense.getDate() == null) return; // No month to count it in; the DAO refuses these
+        try {
+            rollups.updateOne(Filters.eq("_id", key(expense)),
+                    increments(expense.getAmountCents(), 1, square(expense.getAmountCents())),
+                    new UpdateOptions().upsert(true));
+        } catch (MongoException e) {
+            markDirty(e);
+        }
+    }
+
+    // Add a batch of stored expenses, one upsert per distinct bucket; failures mark the rollups dirty
+    public void recordAll(Collection<? extends Expense> stored) {
+        if (stored.isEmpty()) return;
+
+        Map<Document, Bucket> buckets = new LinkedHashMap<>();
+        for (Expense expense : stored) {
+            if (expense.getDate() == null) continue;
+            Bucket acc = buckets.computeIfAbsent(key(expense), k -> new Bucket());
+            acc.sumCents += expense.getAmountCents();
+            acc.count++;
+            acc.sumOfSquares += square(expense.getAmountCents());
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>(buckets.size());
+        for (Map.Entry<Document, Bucket> bucket : buckets.entrySet()) {
+            Bucket acc = bucket.getValue();
+            writes.add(new UpdateOneModel<>(Filters.eq("_id", bucket.getKey()),
+                    increments(acc.sumCents, acc.count, acc.sumOfSquares), new UpdateOptions().upsert(true)));
+        }
+        try {
+            if (!writes.isEmpty()) rollups.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        } catch (MongoException e) {
+            markDirty(e);
+        }
+    }
+
+    // Whether totals must come from the raw collection until the next rebuild
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Reads whether the rollups can be trusted: they are dirty if another instance left a
+     * marker, if they were never built for an existing collection, or if they predate
+     * minor units or category ids. Cheap enough to run at startup; rebuilding is left to
+     * the caller.
+     *
+     * @return true if the rollups are dirty
+     */
+    public boolean checkState() {
+        boolean marked = state.find(Filters.eq("_id", STATE_ID)).first() != null;
+        boolean missing = rollups.estimatedDocumentCount() == 0 && expenses.estimatedDocumentCount() > 0;
+        boolean outdated = rollups.find(Filters.or(Filters.exists("sumCents", false), Filters.exists("_id.category"))).first() != null;
+        if (marked || missing || outdated) {
+            dirty = true;
+        }
+        return dirty;
+    }
+
+    /**
+     * Compares the rollup total with a full aggregation of the raw collection and marks
+     * the rollups dirty when they differ. Reads every expense; meant for maintenance runs.
+     *
+     * @return true if the rollups match
+     */
+    public boolean verify(ExpenseAggregations aggregations) {
+        long expected = aggregations.grandTotal();
+        long actual = grandTotal();
+        if (expected != actual) {
+            markDirty("rollup total " + actual + " differs from " + expected);
+            return false;
+        }
+        return true;
+    }
+
+    // Sum of all expenses in minor units, read from the rollups
+    public long grandTotal() {
+        Document result = rollups.aggregate(Arrays.asList(
+                Aggregates.group(null, Accumulators.sum("sum", "$sumCents")))).first();
+        Number sum = result != null ? result.get("sum", Number.class) : null;
+        return sum != null ? sum.longValue() : 0;
+    }
+
+    // Rollups of the months in [fromMonth, toMonth] ("yyyy-MM", null for open), oldest first
+    public List<MonthlyRollup> monthlyRollups(String fromMonth, String toMonth) {
+        List<Bson> bounds = new ArrayList<>(2);
+        if (fromMonth != null) bounds.add(Filters.gte("_id.month", fromMonth));
+        if (toMonth != null) bounds.add(Filters.lte("_id.month", toMonth));
+
+        List<MonthlyRollup> result = new ArrayList<>();
+        for (Document doc : rollups.find(bounds.isEmpty() ? new Document() : Filters.and(bounds))
+                .sort(Sorts.ascending("_id.month", "_id.categoryId"))) {
+            Document id = doc.get("_id", Document.class);
+            Number categoryId = id.get("categoryId", Number.class);
+            result.add(new MonthlyRollup(id.getString("month"),
+                    categoryId != null ? categories.name(categoryId.intValue()) : null,
+                    (long) number(doc, "sumCents"), (long) number(doc, "count"), number(doc, "sumSq")));
+        }
+        return result;
+    }
+
+    // Whether [from, to) is made of whole months, so it can be answered from the rollups
+    public boolean coversWholeMonths(Date from, Date to) {
+        return monthStart(from) && monthStart(to);
+    }
+
+    // Sum, count and average per category over whole months [from, to), largest sum first
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        Map<String, long[]> sums = new LinkedHashMap<>();
+        for (MonthlyRollup rollup : monthlyRollups(firstMonth(from), lastMonth(to))) {
+            long[] acc = sums.computeIfAbsent(rollup.getCategory(), c -> new long[2]);
+            acc[0] += rollup.getSumCents();
+            acc[1] += rollup.getCount();
+        }
+        List<CategoryTotal> totals = new ArrayList<>(sums.size());
+        sums.forEach((category, acc) -> totals.add(new CategoryTotal(category, acc[0], acc[1],
+                acc[1] > 0 ? (double) acc[0] / acc[1] : 0)));
+        totals.sort(Comparator.comparingLong(CategoryTotal::getSumCents).reversed());
+        return totals;
+    }
+
+    // Sum and count per month over whole months [from, to), oldest first
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        List<PeriodTotal> totals = new ArrayList<>();
+        String month = null;
+        long sum = 0;
+        long count = 0;
+        // monthlyRollups comes sorted by month
+        for (MonthlyRollup rollup : monthlyRollups(firstMonth(from), lastMonth(to))) {
+            if (!rollup.getMonth().equals(month)) {
+                if (month != null) totals.add(new PeriodTotal(month, sum, count));
+                month = rollup.getMonth();
+                sum = 0;
+                count = 0;
+            }
+            sum += rollup.getSumCents();
+            count += rollup.getCount();
+        }
+        if (month != null) totals.add(new PeriodTotal(month, sum, count));
+        return totals;
+    }
+
+    /**
+     * Recomputes all rollups from the raw collection.
+     *
+     * Expenses still carrying a category name instead of a {@code categoryId} are converted
+     * first, so every document lands in an id bucket.
+     * The date range is split into one chunk per month and the chunks are aggregated in
+     * parallel, each {@code $merge}-ing into a staging collection of its own run on the
+     * server. The staging collection then replaces {@code expense_rollups} in one rename.
+     * Writes made meanwhile, here or by other instances, may be missing from the result, so
+     * the dirty marker is only cleared if the number of expenses is the same before and
+     * after; otherwise the rollups stay dirty and the rebuild has to run again.
+     *
+     * @param parallelism Number of month chunks aggregated at the same time
+     * @return number of expenses converted from a category name to a {@code categoryId}
+     */
+    public long rebuild(int parallelism) {
+        long converted = categories.backfill(expenses);
+        long countBefore = expenses.estimatedDocumentCount();
+        Date first = boundaryDate(1);
+        if (first == null) {
+            rollups.deleteMany(new Document());
+            settle(countBefore);
+            return converted;
+        }
+        // Unique per run, so concurrent rebuilds never merge into each other's staging
+        String staging = COLLECTION + "_rebuild_" + new ObjectId().toHexString();
+        MongoCollection<Document> target = database.getCollection(staging);
+        YearMonth month = YearMonth.from(first.toInstant().atZone(zone));
+        YearMonth last = YearMonth.from(boundaryDate(-1).toInstant().atZone(zone));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (; !month.isAfter(last); month = month.plusMonths(1)) {
+                YearMonth chunk = month;
+                chunks.add(pool.submit(() -> aggregateMonth(chunk, staging)));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+            target.renameCollection(new MongoNamespace(database.getName(), COLLECTION),
+                    new RenameCollectionOptions().dropTarget(true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            target.drop();
+            throw new IllegalStateException("Rollup rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            target.drop();
+            throw new IllegalStateException("Rollup rebuild failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        settle(countBefore);
+        return converted;
+    }
+
+    /**
+     * Runs {@link #rebuild(int)} on a daemon thread, unless this instance is already
+     * rebuilding. A failure is logged and the rollups stay dirty.
+     */
+    public void rebuildInBackground(int parallelism) {
+        if (!rebuilding.compareAndSet(false, true)) return;
+        System.err.println("Rollups are dirty; rebuilding them in the background, totals come from the raw collection until then");
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                rebuild(parallelism);
+                MetricsRegistry.get().histogram("rollups.rebuild").recordSince(start);
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Background rollup rebuild failed; run RebuildRollups: " + e.getMessage());
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "rollup-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Clears the marker only if no expense was added or removed while the rebuild ran
+    private void settle(long countBefore) {
+        long countAfter = expenses.estimatedDocumentCount();
+        if (countAfter != countBefore) {
+            dirty = true;
+            writeMarker("expenses changed from " + countBefore + " to " + countAfter + " during the rebuild");
+            System.err.println("Expenses changed during the rollup rebuild; rollups stay dirty until it runs again");
+            return;
+        }
+        clearDirty();
+    }
+
+    private void markDirty(MongoException cause) {
+        failures.increment();
+        markDirty("rollup write failed: " + cause.getMessage());
+    }
+
+    // Logs and writes the marker once per instance
+    private void markDirty(String reason) {
+        if (dirty) return;
+        dirty = true;
+        System.err.println("Rollups marked dirty (" + reason + "); totals come from the raw collection until they are rebuilt");
+        writeMarker(reason);
+    }
+
+    // Best effort, as the server may be what failed
+    private void writeMarker(String reason) {
+        try {
+            state.replaceOne(Filters.eq("_id", STATE_ID),
+                    new Document("_id", STATE_ID).append("since", new Date()).append("reason", reason),
+                    new ReplaceOptions().upsert(true));
+        } catch (MongoException e) {
+            System.err.println("Could not record the rollup dirty marker: " + e.getMessage());
+        }
+    }
+
+    private void clearDirty() {
+        state.deleteOne(Filters.eq("_id", STATE_ID));
+        dirty = false;
+    }
+
+    private void aggregateMonth(YearMonth month, String staging) {
+        Date from = Date.from(month.atDay(1).atStartOfDay(zone).toInstant());
+        Date to = Date.from(month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant());
+
+        expenses.aggregate(Arrays.asList(
+                Aggregates.match(Filters.and(Filters.gte("date", from), Filters.lt("date", to))),
+                Aggregates.project(Projections.fields(Projections.include("categoryId"),
+                        Projections.computed("cents", ExpenseAggregations.CENTS), Projections.excludeId())),
+                Aggregates.group(new Document("month", month.format(MONTH)).append("categoryId", "$categoryId"),
+                        Accumulators.sum("sumCents", "$cents"),
+                        Accumulators.sum("count", 1),
+                        Accumulators.sum("sumSq", new Document("$multiply", Arrays.asList(
+                                new Document("$toDouble", "$cents"), new Document("$toDouble", "$cents"))))),
+                Aggregates.merge(staging))).toCollection();
+    }
+
+    // Earliest (direction 1) or latest (direction -1) expense date, using the date index
+    private Date boundaryDate(int direction) {
+        Document doc = expenses.find(Filters.ne("date", null))
+                .sort(direction > 0 ? Sorts.ascending("date") : Sorts.descending("date"))
+                .projection(Projections.include("date"))
+                .first();
+        return doc != null ? doc.getDate("date") : null;
+    }
+
+    private boolean monthStart(Date date) {
+        if (date == null) return true;
+        ZonedDateTime time = date.toInstant().atZone(zone);
+        return time.getDayOfMonth() == 1 && time.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    private String firstMonth(Date from) {
+        return from != null ? MONTH.format(from.toInstant().atZone(zone)) : null;
+    }
+
+    // to is exclusive and a month start, so the month before it is the last one included
+    private String lastMonth(Date to) {
+        return to != null ? YearMonth.from(to.toInstant().atZone(zone)).minusMonths(1).format(MONTH) : null;
+    }
+
+    // The writers interned the category before storing the expense, so this is a lookup
+    private Document key(Expense expense) {
+        return new Document("month", MONTH.format(expense.getDate().toInstant().atZone(zone)))
+                .append("categoryId", expense.getCategory() != null ? categoryId(expense.getCategory()) : null);
+    }
+
+    private int categoryId(String name) {
+        Integer id = categories.find(name);
+        return id != null ? id : categories.intern(name);
+    }
+
+    private static Bson increments(long sumCents, long count, double sumOfSquares) {
+        return Updates.combine(Updates.inc("sumCents", sumCents), Updates.inc("count", count), Updates.inc("sumSq", sumOfSquares));
+    }
+
+    // In double: squares of large amounts would overflow a long sum
+    private static double square(long cents) {
+        return (double) cents * cents;
+    }
+
+    private static double number(Document doc, String field) {
+        Number value = doc.get(field, Number.class);
+        return value != null ? value.doubleValue() : 0;
+    }
+
+    private static final class Bucket {
+        long sumCents;
+        long count;
+        double sumOfSquares;
+    }
+}
@@ -0,0 +1,473 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link ExpenseRepository} for offline runs, tests and benchmarks.
+ *
+ * Expenses live in parallel primitive arrays sorted ascending by {@code (date, _id)};
+ * table row {@code r} is array index {@code size - 1 - r}. Categories are stored as
+ * their ids in a local {@link CategoryRegistry}. Lookups and range bounds are binary searches, single inserts shift the
+ * tail with {@code System.arraycopy}, and batches are merged in one backward pass.
+ */
+public class InMemoryExpenseRepository implements ExpenseRepository {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Expenses handed to scan callbacks per read-lock hold
+    private static final int SCAN_CHUNK = 1024;
+
+    private static final Comparator<Expense> BY_DATE_THEN_ID =
+            Comparator.<Expense>comparingLong(e -> e.getDate().getTime()).thenComparing(Expense::getId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private long[] dates = new long[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private ObjectId[] ids = new ObjectId[INITIAL_CAPACITY];
+    private int size;
+    private long total;
+
+    private final CategoryRegistry categoryRegistry = new CategoryRegistry();
+    private final InsertListeners listeners = new InsertListeners();
+
+    // ========== Writes ==========
+
+    @Override
+    public void insertExpense(Expense expense) {
+        validate(expense);
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            int at = upperBound(expense.getDate().getTime(), expense.getId());
+            shift(at, 1);
+            set(at, expense);
+            size++;
+            total += expense.getAmountCents();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        listeners.inserted(List.of(expense));
+    }
+
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        BatchReport report = new BatchReport();
+        List<BatchReport.Failure> failures = new ArrayList<>();
+        List<Expense> batch = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            try {
+                validate(expense);
+                batch.add(expense);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchReport.Failure(1, expense, -1, e.getMessage()));
+            }
+        }
+        batch.sort(BY_DATE_THEN_ID);
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + batch.size());
+            // Merge from the back so every existing row moves at most once
+            int i = size - 1;
+            int k = size + batch.size() - 1;
+            for (int j = batch.size() - 1; j >= 0; k--) {
+                Expense next = batch.get(j);
+                if (i >= 0 && compare(i, next.getDate().getTime(), next.getId()) > 0) {
+                    move(i--, k);
+                } else {
+                    set(k, next);
+                    total += next.getAmountCents();
+                    j--;
+                }
+            }
+            size += batch.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        listeners.inserted(batch);
+        report.recordBatch(batch.size(), failures);
+        return report;
+    }
+
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    // ========== Reads ==========
+
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        List<Expense> items = new ArrayList<>(pageSize);
+        String next = readPage(cursorToken, pageSize, i -> items.add(toExpense(i)));
+        return new ExpensePage<>(items, next);
+    }
+
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        List<ExpenseRow> items = new ArrayList<>(pageSize);
+        String next = readPage(cursorToken, pageSize, i -> items.add(toRow(i)));
+        return new ExpensePage<>(items, next);
+    }
+
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int end = Math.min(size, offset + limit);
+            List<ExpenseRow> rows = new ArrayList<>(Math.max(0, end - offset));
+            for (int row = Math.max(0, offset); row < end; row++) {
+                rows.add(toRow(size - 1 - row));
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids are not indexed; this is a linear scan, only used when a single row is opened
+    @Override
+    public Expense findById(ObjectId id) {
+        lock.readLock().lock();
+        try {
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i].equals(id)) return toExpense(i);
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Copies one chunk at a time and resumes by key, so writers are not blocked by slow callbacks
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        long lastDate = 0;
+        ObjectId lastId = null;
+        List<Expense> chunk = new ArrayList<>(SCAN_CHUNK);
+        while (true) {
+            lock.readLock().lock();
+            try {
+                int start = lastId == null
+                        ? (from != null ? lowerBound(from.getTime(), null) : 0)
+                        : upperBound(lastDate, lastId);
+                int end = to != null ? lowerBound(to.getTime(), null) : size;
+                for (int i = start; i < end && chunk.size() < SCAN_CHUNK; i++) {
+                    chunk.add(toExpense(i));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (chunk.isEmpty()) return;
+
+            chunk.forEach(action);
+            Expense last = chunk.get(chunk.size() - 1);
+            lastDate = last.getDate().getTime();
+            lastId = last.getId();
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Point-in-time copy of every row, for writing them out while inserts carry on.
+     * Copies the column arrays under the read lock; no expense objects are created until
+     * the snapshot is walked.
+     */
+    public Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            return new Snapshot(Arrays.copyOf(dates, size), Arrays.copyOf(amounts, size),
+                    Arrays.copyOf(categories, size), Arrays.copyOf(descriptions, size),
+                    Arrays.copyOf(ids, size), categoryRegistry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countExpenses() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long countNewerThan(Expense expense) {
+        lock.readLock().lock();
+        try {
+            return size - upperBound(expense.getDate().getTime(), expense.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== Aggregates ==========
+
+    // Maintained on every insert
+    @Override
+    public long totalCents() {
+        lock.readLock().lock();
+        try {
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CategoryRegistry categories() {
+        return categoryRegistry;
+    }
+
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        lock.readLock().lock();
+        try {
+            int codes = categoryRegistry.size();
+            long[] sums = new long[codes];
+            long[] counts = new long[codes];
+            int end = rangeEnd(to);
+            for (int i = rangeStart(from); i < end; i++) {
+                sums[categories[i]] += amounts[i];
+                counts[categories[i]]++;
+            }
+
+            List<CategoryTotal> totals = new ArrayList<>();
+            for (int code = 0; code < codes; code++) {
+                if (counts[code] > 0) {
+                    totals.add(new CategoryTotal(categoryRegistry.name(code), sums[code], counts[code], (double) sums[code] / counts[code]));
+                }
+            }
+            totals.sort(Comparator.comparingLong(CategoryTotal::getSumCents).reversed());
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return periodTotals(from, to, false);
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return periodTotals(from, to, true);
+    }
+
+    // Rows are date-sorted, so each period is one contiguous run; bounds are computed once per run
+    private List<PeriodTotal> periodTotals(Date from, Date to, boolean monthly) {
+        lock.readLock().lock();
+        try {
+            List<PeriodTotal> totals = new ArrayList<>();
+            int end = rangeEnd(to);
+            int i = rangeStart(from);
+            while (i < end) {
+                LocalDate day = Instant.ofEpochMilli(dates[i]).atZone(zone).toLocalDate();
+                LocalDate next;
+                String period;
+                if (monthly) {
+                    YearMonth month = YearMonth.from(day);
+                    next = month.plusMonths(1).atDay(1);
+                    period = month.toString();
+                } else {
+                    next = day.plusDays(1);
+                    period = day.toString();
+                }
+                long periodEnd = next.atStartOfDay(zone).toInstant().toEpochMilli();
+
+                long sum = 0;
+                long count = 0;
+                for (; i < end && dates[i] < periodEnd; i++) {
+                    sum += amounts[i];
+                    count++;
+                }
+                totals.add(new PeriodTotal(period, sum, count));
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== Internals (callers hold the lock) ==========
+
+    private interface IndexVisitor {
+        void visit(int index);
+    }
+
+    private String readPage(String cursorToken, int pageSize, IndexVisitor visitor) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive");
+        lock.readLock().lock();
+        try {
+            int i = cursorToken == null
+                    ? size - 1
+                    : lowerBound(ExpensePage.cursorDate(cursorToken).getTime(), ExpensePage.cursorId(cursorToken)) - 1;
+            int last = Math.max(-1, i - pageSize);
+            for (; i > last; i--) {
+                visitor.visit(i);
+            }
+            return last >= 0 ? ExpensePage.encodeCursor(dates[last + 1], ids[last + 1]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int rangeStart(Date from) {
+        return from != null ? lowerBound(from.getTime(), null) : 0;
+    }
+
+    private int rangeEnd(Date to) {
+        return to != null ? lowerBound(to.getTime(), null) : size;
+    }
+
+    // First index whose key is >= (date, id); a null id sorts before every id of that date
+    private int lowerBound(long date, ObjectId id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, date, id) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index whose key is > (date, id)
+    private int upperBound(long date, ObjectId id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, date, id) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int compare(int index, long date, ObjectId id) {
+        int byDate = Long.compare(dates[index], date);
+        if (byDate != 0) return byDate;
+        return id == null ? 1 : ids[index].compareTo(id);
+    }
+
+    private void set(int index, Expense expense) {
+        dates[index] = expense.getDate().getTime();
+        amounts[index] = expense.getAmountCents();
+        categories[index] = categoryCode(expense.getCategory());
+        descriptions[index] = expense.getDescription();
+        ids[index] = expense.getId();
+    }
+
+    private void move(int from, int to) {
+        dates[to] = dates[from];
+        amounts[to] = amounts[from];
+        categories[to] = categories[from];
+        descriptions[to] = descriptions[from];
+        ids[to] = ids[from];
+    }
+
+    private void shift(int at, int by) {
+        int tail = size - at;
+        System.arraycopy(dates, at, dates, at + by, tail);
+        System.arraycopy(amounts, at, amounts, at + by, tail);
+        System.arraycopy(categories, at, categories, at + by, tail);
+        System.arraycopy(descriptions, at, descriptions, at + by, tail);
+        System.arraycopy(ids, at, ids, at + by, tail);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= dates.length) return;
+        int capacity = Math.max(needed, dates.length + (dates.length >> 1));
+        dates = Arrays.copyOf(dates, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+    }
+
+    private int categoryCode(String category) {
+        return categoryRegistry.intern(category != null ? category : "");
+    }
+
+    /**
+     * Rows of a repository as they were when {@link #snapshot()} was called, in
+     * {@code (date, _id)} order.
+     */
+    public static final class Snapshot {
+        private final long[] dates;
+        private final long[] amounts;
+        private final int[] categories;
+        private final String[] descriptions;
+        private final ObjectId[] ids;
+        // Only ever grows, so every id copied above stays resolvable
+        private final CategoryRegistry categoryRegistry;
+
+        private Snapshot(long[] dates, long[] amounts, int[] categories, String[] descriptions,
+                         ObjectId[] ids, CategoryRegistry categoryRegistry) {
+            this.dates = dates;
+            this.amounts = amounts;
+            this.categories = categories;
+            this.descriptions = descriptions;
+            this.ids = ids;
+            this.categoryRegistry = categoryRegistry;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        // One fresh Expense per row, oldest first
+        public void forEach(Consumer<? super Expense> action) {
+            for (int i = 0; i < ids.length; i++) {
+                Expense expense = new Expense(amounts[i], categoryRegistry.name(categories[i]),
+                        descriptions[i], new Date(dates[i]));
+                expense.setId(ids[i]);
+                action.accept(expense);
+            }
+        }
+    }
+
+    private Expense toExpense(int index) {
+        Expense expense = new Expense(amounts[index], categoryRegistry.name(categories[index]),
+                descriptions[index], new Date(dates[index]));
+        expense.setId(ids[index]);
+        return expense;
+    }
+
+    private ExpenseRow toRow(int index) {
+        return ExpenseRow.of(ids[index], dates[index], categoryRegistry.name(categories[index]),
+                amounts[index], descriptions[index], zone);
+    }
+
+    private static void validate(Expense expense) {
+        if (expense.getDate() == null) {
+            throw new IllegalArgumentException("Expense date is required");
+        }
+        if (expense.getId() == null) {
+            expense.setId(new ObjectId());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+
+import java.util.List;
+
+/**
+ * Told about expenses once a repository has accepted them.
+ *
+ * Called on the writing thread after the write, with ids assigned, and only for the
+ * expenses that were actually stored. Implementations must be quick and must not call
+ * back into the repository's write methods.
+ */
+@FunctionalInterface
+public interface InsertListener {
+
+    void inserted(List<? extends Expense> stored);
+}
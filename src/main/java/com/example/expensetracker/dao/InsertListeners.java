@@ -0,0 +1,36 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The registered listeners of one repository. A failing listener is counted in
+ * {@code listeners.failures} and logged, and does not affect the write or the other listeners.
+ */
+final class InsertListeners implements InsertListener {
+
+    private final List<InsertListener> listeners = new CopyOnWriteArrayList<>();
+    private final Counter failures = MetricsRegistry.get().counter("listeners.failures");
+
+    void add(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void inserted(List<? extends Expense> stored) {
+        if (stored.isEmpty()) return;
+        for (InsertListener listener : listeners) {
+            try {
+                listener.inserted(stored);
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Insert listener " + listener.getClass().getSimpleName() + " failed on "
+                        + stored.size() + " expenses: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.LatencyHistogram;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Records the latency of every call into another repository as {@code repo.<method>},
+ * and how many rows are written and read. Failed calls are timed too and counted in
+ * {@code repo.failures}.
+ *
+ * The histograms are looked up once, so a call costs two {@code nanoTime} reads and a
+ * few uncontended atomic adds on top of the delegate.
+ */
+public class InstrumentedExpenseRepository implements ExpenseRepository, AutoCloseable {
+
+    private final ExpenseRepository delegate;
+
+    private final LatencyHistogram insertExpense;
+    private final LatencyHistogram insertExpenses;
+    private final LatencyHistogram findPage;
+    private final LatencyHistogram findRowPage;
+    private final LatencyHistogram findRowRange;
+    private final LatencyHistogram findById;
+    private final LatencyHistogram scan;
+    private final LatencyHistogram countExpenses;
+    private final LatencyHistogram countNewerThan;
+    private final LatencyHistogram totalCents;
+    private final LatencyHistogram categoryTotals;
+    private final LatencyHistogram dailyTotals;
+    private final LatencyHistogram monthlyTotals;
+    private final Counter rowsWritten;
+    private final Counter rowsRead;
+    private final Counter failures;
+
+    public InstrumentedExpenseRepository(ExpenseRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        insertExpense = registry.histogram("repo.insertExpense");
+        insertExpenses = registry.histogram("repo.insertExpenses");
+        findPage = registry.histogram("repo.findPage");
+        findRowPage = registry.histogram("repo.findRowPage");
+        findRowRange = registry.histogram("repo.findRowRange");
+        findById = registry.histogram("repo.findById");
+        scan = registry.histogram("repo.scan");
+        countExpenses = registry.histogram("repo.countExpenses");
+        countNewerThan = registry.histogram("repo.countNewerThan");
+        totalCents = registry.histogram("repo.totalCents");
+        categoryTotals = registry.histogram("repo.categoryTotals");
+        dailyTotals = registry.histogram("repo.dailyTotals");
+        monthlyTotals = registry.histogram("repo.monthlyTotals");
+        rowsWritten = registry.counter("repo.rowsWritten");
+        rowsRead = registry.counter("repo.rowsRead");
+        failures = registry.counter("repo.failures");
+    }
+
+    public ExpenseRepository getDelegate() {
+        return delegate;
+    }
+
+    // ========== Writes ==========
+
+    @Override
+    public void insertExpense(Expense expense) {
+        long start = System.nanoTime();
+        try {
+            delegate.insertExpense(expense);
+            rowsWritten.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            insertExpense.recordSince(start);
+        }
+    }
+
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        long start = System.nanoTime();
+        try {
+            BatchReport report = delegate.insertExpenses(expenses);
+            rowsWritten.add(report.getInserted());
+            return report;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            insertExpenses.recordSince(start);
+        }
+    }
+
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        delegate.addInsertListener(listener);
+    }
+
+    // ========== Reads ==========
+
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            ExpensePage<Expense> page = delegate.findPage(cursorToken, pageSize);
+            rowsRead.add(page.getItems().size());
+            return page;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            findPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        long start = System.nanoTime();
+        try {
+            ExpensePage<ExpenseRow> page = delegate.findRowPage(cursorToken, pageSize);
+            rowsRead.add(page.getItems().size());
+            return page;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            findRowPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<ExpenseRow> rows = delegate.findRowRange(offset, limit);
+            rowsRead.add(rows.size());
+            return rows;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            findRowRange.recordSince(start);
+        }
+    }
+
+    @Override
+    public Expense findById(ObjectId id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            findById.recordSince(start);
+        }
+    }
+
+    // Times the whole stream, including the caller's action
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        long start = System.nanoTime();
+        long[] rows = new long[1];
+        try {
+            delegate.scan(from, to, expense -> {
+                rows[0]++;
+                action.accept(expense);
+            });
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            rowsRead.add(rows[0]);
+            scan.recordSince(start);
+        }
+    }
+
+    @Override
+    public long countExpenses() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countExpenses();
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            countExpenses.recordSince(start);
+        }
+    }
+
+    @Override
+    public long countNewerThan(Expense expense) {
+        long start = System.nanoTime();
+        try {
+            return delegate.countNewerThan(expense);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            countNewerThan.recordSince(start);
+        }
+    }
+
+    // ========== Aggregates ==========
+
+    @Override
+    public CategoryRegistry categories() {
+        return delegate.categories();
+    }
+
+    @Override
+    public long totalCents() {
+        long start = System.nanoTime();
+        try {
+            return delegate.totalCents();
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            totalCents.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        long start = System.nanoTime();
+        try {
+            return delegate.categoryTotals(from, to);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            categoryTotals.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        long start = System.nanoTime();
+        try {
+            return delegate.dailyTotals(from, to);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            dailyTotals.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        long start = System.nanoTime();
+        try {
+            return delegate.monthlyTotals(from, to);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            monthlyTotals.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.expensetracker.dao;
+
+/**
+ * Pre-aggregated sum, count and sum of squares of one category in one month ("yyyy-MM"),
+ * in minor units.
+ */
+public class MonthlyRollup {
+    private final String month;
+    private final String category;
+    private final long sumCents;
+    private final long count;
+    private final double sumOfSquares;
+
+    public MonthlyRollup(String month, String category, long sumCents, long count, double sumOfSquares) {
+        this.month = month;
+        this.category = category;
+        this.sumCents = sumCents;
+        this.count = count;
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    public String getMonth() { return month; }
+    public String getCategory() { return category; }
+    public long getSumCents() { return sumCents; }
+    public long getCount() { return count; }
+    public double getSumOfSquares() { return sumOfSquares; }
+
+    public double getMean() {
+        return count > 0 ? (double) sumCents / count : 0;
+    }
+
+    // Population variance from the running sums
+    public double getVariance() {
+        if (count == 0) return 0;
+        double mean = getMean();
+        return Math.max(0, sumOfSquares / count - mean * mean);
+    }
+}
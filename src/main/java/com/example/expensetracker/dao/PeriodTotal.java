@@ -0,0 +1,21 @@
+package com.example.expensetracker.dao;
+
+/**
+ * Sum and count of the expenses in one day ("yyyy-MM-dd") or month ("yyyy-MM"),
+ * in minor units.
+ */
+public class PeriodTotal {
+    private final String period;
+    private final long sumCents;
+    private final long count;
+
+    public PeriodTotal(String period, long sumCents, long count) {
+        this.period = period;
+        this.sumCents = sumCents;
+        this.count = count;
+    }
+
+    public String getPeriod() { return period; }
+    public long getSumCents() { return sumCents; }
+    public long getCount() { return count; }
+}
@@ -0,0 +1,472 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import com.example.expensetracker.store.DurableQueue;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Write-behind front for {@link ExpenseDAO}: inserts return as soon as the expense is in
+ * a local {@link DurableQueue}, and a background flusher drains the queue to MongoDB.
+ *
+ * The flusher sends batches of {@code _id}-keyed upserts, so a batch that is retried after
+ * a timeout, or replayed after a crash, cannot create duplicates. Failed batches are retried
+ * with exponential backoff. Queued expenses are merged into pages, counts and the grand
+ * total so the table shows them at once; per-category and per-period aggregates include
+ * them once they are flushed. Nothing here reads from MongoDB to place a new expense: a
+ * backdated one reports {@link ExpenseRepository#POSITION_UNKNOWN} and the caller reloads.
+ */
+public class WriteBehindExpenseRepository implements ExpenseRepository, AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final Comparator<Expense> NEWEST_FIRST =
+            Comparator.<Expense>comparingLong(e -> e.getDate().getTime()).thenComparing(Expense::getId).reversed();
+    private static final Comparator<ExpenseRow> NEWEST_ROW_FIRST =
+            Comparator.comparingLong(ExpenseRow::dateMillis).thenComparing(ExpenseRow::id).reversed();
+
+    private final ExpenseDAO delegate;
+    private final DurableQueue queue;
+    private final int batchSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final InsertListeners listeners = new InsertListeners();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+
+    // Guarded by lock; in queue order
+    private final ArrayDeque<DurableQueue.Entry> pending = new ArrayDeque<>();
+    private long pendingCents;
+
+    // Guarded by lock; collection size and newest key as of the last flush
+    private long flushedCount;
+    private long newestFlushedDate;
+    private ObjectId newestFlushedId;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    public WriteBehindExpenseRepository(ExpenseDAO delegate, DurableQueue queue, int batchSize) {
+        this.delegate = delegate;
+        this.queue = queue;
+        this.batchSize = batchSize;
+        for (DurableQueue.Entry entry : queue.recovered()) {
+            pending.add(entry);
+            pendingCents += entry.expense().getAmountCents();
+        }
+        syncWithDelegate();
+
+        flusher = new Thread(this::flushLoop, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // ========== Writes ==========
+
+    @Override
+    public void insertExpense(Expense expense) {
+        prepare(expense);
+        enqueue(List.of(expense));
+        listeners.inserted(List.of(expense));
+    }
+
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        BatchReport report = new BatchReport();
+        List<BatchReport.Failure> failures = new ArrayList<>();
+        List<Expense> accepted = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            try {
+                prepare(expense);
+                accepted.add(expense);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchReport.Failure(1, expense, -1, e.getMessage()));
+            }
+        }
+        enqueue(accepted);
+        listeners.inserted(accepted);
+        report.recordBatch(accepted.size(), failures);
+        return report;
+    }
+
+    // Listeners hear about expenses once they are queued locally, not when they reach the delegate
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        listeners.add(listener);
+    }
+
+    // ========== Reads ==========
+
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        ExpensePage<Expense> page = delegate.findPage(cursorToken, pageSize);
+        List<Expense> mine = pendingAfter(cursorToken);
+        if (mine.isEmpty()) return page;
+        return mergedPage(page, mine, NEWEST_FIRST, Expense::getId, pageSize, ExpensePage::encodeCursor);
+    }
+
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        ExpensePage<ExpenseRow> page = delegate.findRowPage(cursorToken, pageSize);
+        List<Expense> mine = pendingAfter(cursorToken);
+        if (mine.isEmpty()) return page;
+        return mergedPage(page, toRows(mine), NEWEST_ROW_FIRST, ExpenseRow::id, pageSize, ExpensePage::encodeCursor);
+    }
+
+    // With n rows queued, at most n of them sort before the window, so reading the stored rows
+    // from offset - n and merging in the queue places every row in the window without counting.
+    // Queued rows ahead of the first stored row read sort before offset, as do their merged slots.
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        List<Expense> mine = pendingNewestFirst();
+        if (mine.isEmpty()) return delegate.findRowRange(offset, limit);
+
+        int from = Math.max(0, offset - mine.size());
+        List<ExpenseRow> rows = merge(delegate.findRowRange(from, offset + limit - from), toRows(mine),
+                NEWEST_ROW_FIRST, ExpenseRow::id);
+        int start = offset - from;
+        if (start >= rows.size()) return new ArrayList<>();
+        return new ArrayList<>(rows.subList(start, Math.min(rows.size(), start + limit)));
+    }
+
+    @Override
+    public Expense findById(ObjectId id) {
+        lock.lock();
+        try {
+            for (DurableQueue.Entry entry : pending) {
+                if (entry.expense().getId().equals(id)) return entry.expense();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.findById(id);
+    }
+
+    // Interleaves queued expenses in the range with the stored ones, oldest first
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        List<Expense> mine = new ArrayList<>();
+        for (Expense expense : pendingNewestFirst()) {
+            long date = expense.getDate().getTime();
+            if ((from == null || date >= from.getTime()) && (to == null || date < to.getTime())) {
+                mine.add(expense);
+            }
+        }
+        mine.sort(NEWEST_FIRST.reversed());
+        Set<ObjectId> mineIds = new HashSet<>();
+        mine.forEach(e -> mineIds.add(e.getId()));
+
+        int[] next = {0};
+        delegate.scan(from, to, stored -> {
+            // A queued expense may be flushed while the scan runs; emit it once
+            if (mineIds.contains(stored.getId())) return;
+            while (next[0] < mine.size() && NEWEST_FIRST.compare(mine.get(next[0]), stored) > 0) {
+                action.accept(mine.get(next[0]++));
+            }
+            action.accept(stored);
+        });
+        while (next[0] < mine.size()) {
+            action.accept(mine.get(next[0]++));
+        }
+    }
+
+    // Collection size as of the last flush plus the queue; answered locally
+    @Override
+    public long countExpenses() {
+        lock.lock();
+        try {
+            return flushedCount + pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Answered locally: only an expense newer than everything flushed has a known position
+    @Override
+    public long countNewerThan(Expense expense) {
+        if (!newerThanFlushed(expense)) return POSITION_UNKNOWN;
+        long newer = 0;
+        for (Expense queuedExpense : pendingNewestFirst()) {
+            if (NEWEST_FIRST.compare(queuedExpense, expense) < 0) newer++;
+        }
+        return newer;
+    }
+
+    // ========== Aggregates ==========
+
+    @Override
+    public long totalCents() {
+        long stored = delegate.totalCents();
+        lock.lock();
+        try {
+            return stored + pendingCents;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CategoryRegistry categories() {
+        return delegate.categories();
+    }
+
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        return delegate.categoryTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return delegate.dailyTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return delegate.monthlyTotals(from, to);
+    }
+
+    // ========== Lifecycle ==========
+
+    // Number of expenses not yet acknowledged by MongoDB
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stops the flusher; whatever is still queued is sent after the next start
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        lock.lock();
+        try {
+            queued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.close();
+    }
+
+    // ========== Flusher ==========
+
+    private void flushLoop() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!closed) {
+            List<DurableQueue.Entry> batch = new ArrayList<>(batchSize);
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    queued.await();
+                }
+                for (DurableQueue.Entry entry : pending) {
+                    if (batch.size() == batchSize) break;
+                    batch.add(entry);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                flush(batch);
+                backoff = INITIAL_BACKOFF_MILLIS;
+            } catch (RuntimeException e) {
+                System.err.println("Write-behind flush of " + batch.size() + " expenses failed, retrying in "
+                        + backoff + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void flush(List<DurableQueue.Entry> batch) {
+        List<Expense> expenses = new ArrayList<>(batch.size());
+        batch.forEach(entry -> expenses.add(entry.expense()));
+        try {
+            delegate.upsertExpenses(expenses);
+        } catch (MongoBulkWriteException e) {
+            // Unordered: everything else in the batch was applied. Rejected documents will be
+            // rejected again, so they are dropped; a write concern error alone is retried.
+            if (e.getWriteErrors().isEmpty()) throw e;
+            for (BulkWriteError error : e.getWriteErrors()) {
+                System.err.println("Dropping queued expense " + expenses.get(error.getIndex()).getId()
+                        + " rejected by MongoDB: " + error.getMessage());
+            }
+        }
+
+        lock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Expense flushed = pending.removeFirst().expense();
+                pendingCents -= flushed.getAmountCents();
+                long date = flushed.getDate().getTime();
+                if (newestFlushedId == null || date > newestFlushedDate
+                        || (date == newestFlushedDate && flushed.getId().compareTo(newestFlushedId) > 0)) {
+                    newestFlushedDate = date;
+                    newestFlushedId = flushed.getId();
+                }
+            }
+            flushedCount += batch.size();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncWithDelegate();
+        } catch (RuntimeException e) {
+            // Keep the local estimate; the next flush tries again
+            System.err.println("Could not re-read the expense count: " + e.getMessage());
+        }
+        try {
+            queue.acknowledge(batch.get(batch.size() - 1).endOffset());
+        } catch (IOException e) {
+            // The expenses are stored; at worst they are upserted again after a restart
+            System.err.println("Could not record write-behind progress: " + e.getMessage());
+        }
+    }
+
+    // Re-reads the collection size and newest key, which other clients may also change
+    private void syncWithDelegate() {
+        long count = delegate.countExpenses();
+        List<ExpenseRow> newest = delegate.findRowPage(null, 1).getItems();
+        lock.lock();
+        try {
+            flushedCount = count;
+            newestFlushedDate = newest.isEmpty() ? Long.MIN_VALUE : newest.get(0).dateMillis();
+            newestFlushedId = newest.isEmpty() ? null : newest.get(0).id();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== Internals ==========
+
+    private void enqueue(List<Expense> expenses) {
+        if (expenses.isEmpty()) return;
+        lock.lock();
+        try {
+            for (DurableQueue.Entry entry : queue.append(expenses)) {
+                pending.add(entry);
+                pendingCents += entry.expense().getAmountCents();
+            }
+            queued.signal();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not queue expense locally", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // True when no stored row sorts before this expense, as of the last flush
+    private boolean newerThanFlushed(Expense expense) {
+        long date = expense.getDate().getTime();
+        lock.lock();
+        try {
+            return newestFlushedId == null || date > newestFlushedDate
+                    || (date == newestFlushedDate && expense.getId().compareTo(newestFlushedId) > 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Expense> pendingNewestFirst() {
+        List<Expense> mine;
+        lock.lock();
+        try {
+            mine = new ArrayList<>(pending.size());
+            pending.forEach(entry -> mine.add(entry.expense()));
+        } finally {
+            lock.unlock();
+        }
+        mine.sort(NEWEST_FIRST);
+        return mine;
+    }
+
+    // Queued expenses strictly after the cursor, newest first
+    private List<Expense> pendingAfter(String cursorToken) {
+        List<Expense> mine = pendingNewestFirst();
+        if (cursorToken == null || mine.isEmpty()) return mine;
+        long date = ExpensePage.cursorDate(cursorToken).getTime();
+        ObjectId id = ExpensePage.cursorId(cursorToken);
+        mine.removeIf(e -> e.getDate().getTime() > date
+                || (e.getDate().getTime() == date && e.getId().compareTo(id) >= 0));
+        return mine;
+    }
+
+    private List<ExpenseRow> toRows(List<Expense> expenses) {
+        List<ExpenseRow> rows = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            rows.add(ExpenseRow.of(expense, zone));
+        }
+        return rows;
+    }
+
+    private static <T> ExpensePage<T> mergedPage(ExpensePage<T> stored, List<T> mine, Comparator<T> order,
+                                                 Function<T, ObjectId> id, int pageSize, Function<T, String> cursor) {
+        List<T> items = merge(stored.getItems(), mine, order, id);
+        boolean more = stored.hasNext() || items.size() > pageSize;
+        if (items.size() > pageSize) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+        }
+        return new ExpensePage<>(items, more ? cursor.apply(items.get(items.size() - 1)) : null);
+    }
+
+    // Both lists sorted by order; an id present in both (flushed mid-read) is kept once
+    private static <T> List<T> merge(List<T> stored, List<T> mine, Comparator<T> order, Function<T, ObjectId> id) {
+        List<T> merged = new ArrayList<>(stored.size() + mine.size());
+        Set<ObjectId> seen = new HashSet<>();
+        int i = 0, j = 0;
+        while (i < stored.size() || j < mine.size()) {
+            T next = j == mine.size() || (i < stored.size() && order.compare(stored.get(i), mine.get(j)) <= 0)
+                    ? stored.get(i++)
+                    : mine.get(j++);
+            if (seen.add(id.apply(next))) merged.add(next);
+        }
+        return merged;
+    }
+
+    private static void prepare(Expense expense) {
+        if (expense.getDate() == null) {
+            throw new IllegalArgumentException("Expense date is required");
+        }
+        if (expense.getId() == null) {
+            expense.setId(new ObjectId());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.expensetracker.db;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns category names to small, dense integer ids.
+ *
+ * Expense documents store the id ({@code categoryId}) instead of the name, so group-bys
+ * index straight into arrays and every decoded row shares one String per category. The
+ * mapping lives in the {@code categories} collection ({@code {_id: id, name}}, unique on
+ * name); a registry built without a database keeps it in memory only. New names can be
+ * added at any time. Ids are taken as max + 1; two clients racing for the same id or name
+ * are resolved by the unique indexes and a retry.
+ *
+ * Lookups by id read a copy-on-write array and take no lock. Safe for concurrent use.
+ */
+public class CategoryRegistry {
+
+    public static final String COLLECTION = "categories";
+
+    /** Categories every new store starts with, in id order */
+    public static final List<String> DEFAULTS =
+            List.of("Food", "Transport", "Shopping", "Bills", "Entertainment", "Healthcare", "Other");
+
+    private static final String UNKNOWN_PREFIX = "Unknown category ";
+
+    private final MongoCollection<Document> collection;
+
+    // Index = id; null for ids not in use
+    private volatile String[] names = new String[0];
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Ids already reloaded for and still unknown; not reloaded for again
+    private final Set<Integer> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * In-memory registry seeded with {@link #DEFAULTS}.
+     */
+    public CategoryRegistry() {
+        collection = null;
+        for (String name : DEFAULTS) {
+            intern(name);
+        }
+    }
+
+    /**
+     * Registry persisted in {@code database}; seeds {@link #DEFAULTS} into an empty collection.
+     */
+    public CategoryRegistry(MongoDatabase database) {
+        collection = database.getCollection(COLLECTION);
+        collection.createIndex(Indexes.ascending("name"), new IndexOptions().name("name_1").unique(true));
+        refresh();
+        if (names.length == 0) {
+            for (String name : DEFAULTS) {
+                intern(name);
+            }
+        }
+    }
+
+    /**
+     * Id of {@code name}, registering it if it is new.
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        synchronized (this) {
+            while (true) {
+                id = ids.get(name);
+                if (id != null) return id;
+                int next = names.length;
+                if (collection != null) {
+                    try {
+                        collection.insertOne(new Document("_id", next).append("name", name));
+                    } catch (MongoWriteException e) {
+                        if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+                        // Another client took this id or this name; reload and try again
+                        refresh();
+                        continue;
+                    }
+                }
+                put(next, name);
+                return next;
+            }
+        }
+    }
+
+    // Id of a known name, or null
+    public Integer find(String name) {
+        return ids.get(name);
+    }
+
+    /**
+     * Name of {@code id}; ids added by another client are picked up with one reload.
+     * An id no client has registered decodes as {@code "Unknown category <id>"}, so one
+     * bad document cannot fail a whole page or scan; it is reported and reloaded for once.
+     */
+    public String name(int id) {
+        String name = lookup(id);
+        if (name != null) return name;
+        if (missing.add(id)) {
+            if (collection != null) {
+                refresh();
+                name = lookup(id);
+                if (name != null) {
+                    missing.remove(id);
+                    return name;
+                }
+            }
+            System.err.println("Expenses refer to unregistered category id " + id + "; showing a placeholder");
+        }
+        return UNKNOWN_PREFIX + id;
+    }
+
+    // The registry's own instance of an equal name, so legacy rows share Strings too
+    public String canonical(String name) {
+        Integer id = ids.get(name);
+        return id != null ? names[id] : name;
+    }
+
+    // All names in id order
+    public List<String> names() {
+        List<String> result = new ArrayList<>();
+        for (String name : names) {
+            if (name != null) result.add(name);
+        }
+        return result;
+    }
+
+    // One more than the largest id; the length of arrays indexed by id
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Reloads the mapping from the database.
+     */
+    public synchronized void refresh() {
+        if (collection == null) return;
+        for (Document doc : collection.find()) {
+            Number id = doc.get("_id", Number.class);
+            String name = doc.getString("name");
+            if (id != null && name != null) {
+                put(id.intValue(), name);
+            }
+        }
+    }
+
+    /**
+     * Gives every expense document that still has only a {@code category} name its
+     * {@code categoryId}, and drops the name. One {@code updateMany} per distinct name.
+     *
+     * @return number of documents converted
+     */
+    public long backfill(MongoCollection<Document> expenses) {
+        long converted = 0;
+        for (String name : expenses.distinct("category", Filters.exists("categoryId", false), String.class)) {
+            converted += expenses.updateMany(
+                    Filters.and(Filters.exists("categoryId", false), Filters.eq("category", name)),
+                    Updates.combine(Updates.set("categoryId", intern(name)), Updates.unset("category")))
+                    .getModifiedCount();
+        }
+        return converted;
+    }
+
+    private String lookup(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    private synchronized void put(int id, String name) {
+        String[] current = names;
+        if (id < current.length && name.equals(current[id])) return;
+        String[] next = Arrays.copyOf(current, Math.max(current.length, id + 1));
+        next[id] = name;
+        ids.put(name, id);
+        names = next;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.expensetracker.db;
+
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.LatencyHistogram;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.mongodb.event.ConnectionReadyEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds driver events into the {@link MetricsRegistry}: connection pool usage, how long
+ * operations wait for a connection, and the server round trip of every command by name
+ * ({@code mongo.command.find}, {@code mongo.command.getMore}, ...). Comparing a command's
+ * time with the repository call around it shows how much is spent decoding on the client.
+ *
+ * Listeners run on driver threads, so each callback is only a few atomic updates.
+ */
+class DriverMetrics implements ConnectionPoolListener, CommandListener {
+
+    private final MetricsRegistry registry;
+    private final AtomicLong open = new AtomicLong();
+    private final AtomicLong checkedOut = new AtomicLong();
+    private final LatencyHistogram checkoutWait;
+    private final LatencyHistogram establish;
+    private final Counter checkoutFailures;
+    private final Counter commandFailures;
+    private final Map<String, LatencyHistogram> commands = new ConcurrentHashMap<>();
+
+    DriverMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.checkoutWait = registry.histogram("mongo.pool.checkoutWait");
+        this.establish = registry.histogram("mongo.pool.connectionEstablish");
+        this.checkoutFailures = registry.counter("mongo.pool.checkoutFailures");
+        this.commandFailures = registry.counter("mongo.command.failures");
+        registry.gauge("mongo.pool.open", open::get);
+        registry.gauge("mongo.pool.checkedOut", checkedOut::get);
+    }
+
+    // ========== Connection pool ==========
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        open.incrementAndGet();
+    }
+
+    @Override
+    public void connectionReady(ConnectionReadyEvent event) {
+        establish.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        open.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOut.incrementAndGet();
+        checkoutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkoutFailures.increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOut.decrementAndGet();
+    }
+
+    // ========== Commands ==========
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        command(event.getCommandName()).record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        command(event.getCommandName()).record(event.getElapsedTime(TimeUnit.NANOSECONDS));
+        commandFailures.increment();
+    }
+
+    private LatencyHistogram command(String name) {
+        LatencyHistogram histogram = commands.get(name);
+        if (histogram == null) {
+            histogram = commands.computeIfAbsent(name, n -> registry.histogram("mongo.command." + n));
+        }
+        return histogram;
+    }
+}
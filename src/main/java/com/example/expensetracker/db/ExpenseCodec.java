@@ -0,0 +1,171 @@
+package com.example.expensetracker.db;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.Money;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.math.RoundingMode;
+import java.util.Date;
+
+/**
+ * Encodes and decodes {@link Expense} straight to and from BSON.
+ *
+ * Fields are read from the reader into the object one by one, so no intermediate
+ * {@link org.bson.Document} is built per row. Amounts are stored as int64
+ * {@code amountCents}; documents from before that carry a double {@code amount}, which is
+ * still read. The category is stored as its int32 {@code categoryId} from the
+ * {@link CategoryRegistry}, read back from any numeric type; a legacy {@code category} name, as also written by
+ * {@link Expense#toDocument()}, is still read.
+ *
+ * Encoding only looks ids up: registering a name is a database write of its own, which
+ * does not belong inside the driver's encode, so {@code ExpenseDAO} interns categories
+ * before it writes. A name the registry does not know yet is written as the legacy
+ * {@code category} field, which {@link CategoryRegistry#backfill} converts later.
+ */
+public class ExpenseCodec implements CollectibleCodec<Expense> {
+
+    private final CategoryRegistry categories;
+
+    public ExpenseCodec(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    // Local dictionary holding only the default categories
+    public ExpenseCodec() {
+        this(new CategoryRegistry());
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Expense expense, EncoderContext context) {
+        writer.writeStartDocument();
+        if (expense.getId() != null) {
+            writer.writeObjectId("_id", expense.getId());
+        }
+        writer.writeInt64("amountCents", expense.getAmountCents());
+        Integer categoryId = expense.getCategory() != null ? categories.find(expense.getCategory()) : null;
+        if (categoryId != null) {
+            writer.writeInt32("categoryId", categoryId);
+        } else if (expense.getCategory() != null) {
+            writer.writeString("category", expense.getCategory());
+        } else {
+            writer.writeNull("categoryId");
+        }
+        writeString(writer, "description", expense.getDescription());
+        if (expense.getDate() != null) {
+            writer.writeDateTime("date", expense.getDate().getTime());
+        } else {
+            writer.writeNull("date");
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Expense decode(BsonReader reader, DecoderContext context) {
+        Expense expense = new Expense();
+        boolean hasCents = false;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    expense.setId(reader.readObjectId());
+                    break;
+                case "amountCents":
+                    expense.setAmountCents(readCents(reader));
+                    hasCents = true;
+                    break;
+                case "amount":
+                    long legacy = Money.fromDecimal(readNumber(reader));
+                    if (!hasCents) expense.setAmountCents(legacy);
+                    break;
+                case "categoryId":
+                    expense.setCategory(categories.name(readCategoryId(reader)));
+                    break;
+                case "category":
+                    expense.setCategory(categories.canonical(reader.readString()));
+                    break;
+                case "description":
+                    expense.setDescription(reader.readString());
+                    break;
+                case "date":
+                    expense.setDate(new Date(reader.readDateTime()));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return expense;
+    }
+
+    @Override
+    public Class<Expense> getEncoderClass() {
+        return Expense.class;
+    }
+
+    @Override
+    public Expense generateIdIfAbsentFromDocument(Expense expense) {
+        if (expense.getId() == null) {
+            expense.setId(new ObjectId());
+        }
+        return expense;
+    }
+
+    @Override
+    public boolean documentHasId(Expense expense) {
+        return expense.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Expense expense) {
+        if (expense.getId() == null) {
+            throw new IllegalStateException("Expense has no _id");
+        }
+        return new BsonObjectId(expense.getId());
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        } else {
+            writer.writeNull(name);
+        }
+    }
+
+    // Exact for integers; a fractional value from another tool is rounded
+    static long readCents(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32: return reader.readInt32();
+            case INT64: return reader.readInt64();
+            case DECIMAL128: return reader.readDecimal128().bigDecimalValue().setScale(0, RoundingMode.HALF_UP).longValueExact();
+            default: return Math.round(reader.readDouble());
+        }
+    }
+
+    // Ids written through other drivers or the shell may arrive as int64 or double
+    static int readCategoryId(BsonReader reader) {
+        return (int) readNumber(reader);
+    }
+
+    // Amounts written by other tools may arrive as int32/int64
+    static double readNumber(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32: return reader.readInt32();
+            case INT64: return reader.readInt64();
+            case DECIMAL128: return reader.readDecimal128().doubleValue();
+            default: return reader.readDouble();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.expensetracker.db;
+
+import com.example.expensetracker.model.ExpenseRow;
+import com.example.expensetracker.model.Money;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Decodes the projected list documents of {@code ExpenseDAO} into {@link ExpenseRow}s.
+ * Rows are read-only views, so encoding is not supported. Category ids are resolved
+ * through the {@link CategoryRegistry}, so all rows of a category share one name String.
+ */
+public class ExpenseRowCodec implements Codec<ExpenseRow> {
+
+    // Field names of the row projection
+    public static final String PREVIEW_FIELD = "descPreview";
+    public static final String TRUNCATED_FIELD = "descTruncated";
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final CategoryRegistry categories;
+
+    public ExpenseRowCodec(CategoryRegistry categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    public ExpenseRow decode(BsonReader reader, DecoderContext context) {
+        ObjectId id = null;
+        long dateMillis = 0;
+        String category = null;
+        long amountCents = 0;
+        boolean hasCents = false;
+        String preview = "";
+        boolean truncated = false;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    id = reader.readObjectId();
+                    break;
+                case "date":
+                    dateMillis = reader.readDateTime();
+                    break;
+                case "categoryId":
+                    category = categories.name(ExpenseCodec.readCategoryId(reader));
+                    break;
+                case "category":
+                    category = categories.canonical(reader.readString());
+                    break;
+                case "amountCents":
+                    amountCents = ExpenseCodec.readCents(reader);
+                    hasCents = true;
+                    break;
+                case "amount":
+                    // Legacy double field, only used when the document has no amountCents
+                    long legacy = Money.fromDecimal(ExpenseCodec.readNumber(reader));
+                    if (!hasCents) amountCents = legacy;
+                    break;
+                case PREVIEW_FIELD:
+                    preview = reader.readString();
+                    break;
+                case TRUNCATED_FIELD:
+                    truncated = reader.readBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        long epochDay = Instant.ofEpochMilli(dateMillis).atZone(zone).toLocalDate().toEpochDay();
+        return new ExpenseRow(id, epochDay, dateMillis, category, amountCents, preview, truncated);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, ExpenseRow row, EncoderContext context) {
+        throw new UnsupportedOperationException("ExpenseRow is a read-only view; store an Expense instead");
+    }
+
+    @Override
+    public Class<ExpenseRow> getEncoderClass() {
+        return ExpenseRow.class;
+    }
+}
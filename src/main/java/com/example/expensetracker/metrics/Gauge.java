@@ -0,0 +1,10 @@
+package com.example.expensetracker.metrics;
+
+/**
+ * Current value of something, read when metrics are shown or dumped.
+ */
+@FunctionalInterface
+public interface Gauge {
+
+    long value();
+}
@@ -0,0 +1,25 @@
+package com.example.expensetracker.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * JMX view of the {@link MetricsRegistry}, registered as
+ * {@code com.example.expensetracker:type=Metrics}.
+ */
+public interface MetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getGauges();
+
+    // "<histogram>.<count|meanMicros|p50Micros|p90Micros|p99Micros|p999Micros|maxMicros>"
+    Map<String, Double> getLatencies();
+
+    // The same text as the diagnostics panel
+    String dump();
+
+    void dumpTo(String path) throws IOException;
+
+    void reset();
+}
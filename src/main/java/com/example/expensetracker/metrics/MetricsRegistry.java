@@ -0,0 +1,166 @@
+package com.example.expensetracker.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide set of named latency histograms, counters and gauges.
+ *
+ * Instruments look their metrics up once and keep the reference, so the hot path is only
+ * the record or increment itself. Names are dotted, e.g. {@code repo.findRowRange} or
+ * {@code mongo.command.find}; latencies are recorded in nanoseconds and shown in
+ * microseconds.
+ */
+public final class MetricsRegistry {
+
+    public static final String OBJECT_NAME = "com.example.expensetracker:type=Metrics";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // Replaces any gauge already registered under the name
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    // Clears histograms and counters; gauges are current values and stay as they are
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    // ========== Reading ==========
+
+    public Map<String, LatencyHistogram.Snapshot> histogramSnapshots() {
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> snapshots.put(name, histogram.snapshot()));
+        return snapshots;
+    }
+
+    public Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    public Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.value()));
+        return values;
+    }
+
+    /**
+     * Plain-text table of every metric, as shown in the diagnostics panel.
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append("Metrics at ").append(Instant.now()).append('\n');
+
+        out.append(String.format("%n%-36s %10s %10s %10s %10s %10s %10s %10s%n",
+                "Latency (µs)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        histogramSnapshots().forEach((name, s) -> {
+            if (s.getCount() == 0) return; // Operations not used yet
+            out.append(String.format(
+                    "%-36s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, s.getCount(),
+                    s.getMean() / 1000, s.getP50() / 1000.0, s.getP90() / 1000.0,
+                    s.getP99() / 1000.0, s.getP999() / 1000.0, s.getMax() / 1000.0));
+        });
+
+        out.append(String.format("%n%-36s %10s%n", "Counters", "value"));
+        counterValues().forEach((name, value) -> out.append(String.format("%-36s %10d%n", name, value)));
+
+        out.append(String.format("%n%-36s %10s%n", "Gauges", "value"));
+        gaugeValues().forEach((name, value) -> out.append(String.format("%-36s %10d%n", name, value)));
+        return out.toString();
+    }
+
+    public void dumpTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(dump());
+        }
+    }
+
+    /**
+     * Exposes the metrics through the platform MBean server under {@link #OBJECT_NAME}.
+     * Registering twice is harmless.
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new Metrics(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        }
+    }
+
+    private final class Metrics implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            return counterValues();
+        }
+
+        @Override
+        public Map<String, Long> getGauges() {
+            return gaugeValues();
+        }
+
+        @Override
+        public Map<String, Double> getLatencies() {
+            Map<String, Double> values = new TreeMap<>();
+            histogramSnapshots().forEach((name, s) -> {
+                values.put(name + ".count", (double) s.getCount());
+                values.put(name + ".meanMicros", s.getMean() / 1000);
+                values.put(name + ".p50Micros", s.getP50() / 1000.0);
+                values.put(name + ".p90Micros", s.getP90() / 1000.0);
+                values.put(name + ".p99Micros", s.getP99() / 1000.0);
+                values.put(name + ".p999Micros", s.getP999() / 1000.0);
+                values.put(name + ".maxMicros", s.getMax() / 1000.0);
+            });
+            return values;
+        }
+
+        @Override
+        public String dump() {
+            return MetricsRegistry.this.dump();
+        }
+
+        @Override
+        public void dumpTo(String path) throws IOException {
+            MetricsRegistry.this.dumpTo(Path.of(path));
+        }
+
+        @Override
+        public void reset() {
+            MetricsRegistry.this.reset();
+        }
+    }
+}
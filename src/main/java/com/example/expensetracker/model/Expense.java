@@ -6,15 +6,16 @@ import java.util.Date;
 
 public class Expense {
     private ObjectId id;
-    private double amount;
+    // Minor units (paise); see Money
+    private long amountCents;
     private String category;
     private String description;
     private Date date;
 
     public Expense() {}
 
-    public Expense(double amount, String category, String description, Date date) {
-        this.amount = amount;
+    public Expense(long amountCents, String category, String description, Date date) {
+        this.amountCents = amountCents;
         this.category = category;
         this.description = description;
         this.date = date;
@@ -23,8 +24,8 @@ public class Expense {
     // Getters and Setters
     public ObjectId getId() { return id; }
     public void setId(ObjectId id) { this.id = id; }
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public long getAmountCents() { return amountCents; }
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
     public String getDescription() { return description; }
@@ -34,7 +35,7 @@ public class Expense {
 
     // Convert to BSON Document (for MongoDB)
     public Document toDocument() {
-        Document doc = new Document("amount", amount)
+        Document doc = new Document("amountCents", amountCents)
                 .append("category", category)
                 .append("description", description)
                 .append("date", date);
@@ -46,7 +47,14 @@ public class Expense {
     public static Expense fromDocument(Document doc) {
         Expense e = new Expense();
         if (doc.containsKey("_id")) e.setId(doc.getObjectId("_id"));
-        e.setAmount(doc.getDouble("amount"));
+        // Documents written before amounts became minor units only carry a double "amount"
+        Number cents = doc.get("amountCents", Number.class);
+        if (cents != null) {
+            e.setAmountCents(cents.longValue());
+        } else {
+            Number amount = doc.get("amount", Number.class);
+            e.setAmountCents(amount != null ? Money.fromDecimal(amount.doubleValue()) : 0);
+        }
         e.setCategory(doc.getString("category"));
         e.setDescription(doc.getString("description"));
         e.setDate(doc.getDate("date"));
@@ -0,0 +1,40 @@
+package com.example.expensetracker.model;
+
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Compact, immutable view of one expense for list screens.
+ *
+ * Holds only what a table row shows: the day, category, amount in minor units and
+ * the first {@link #PREVIEW_LENGTH} characters of the description. The full
+ * {@link Expense} is fetched by {@link #id()} when the row is opened.
+ *
+ * @param dateMillis Exact timestamp, kept for keyset paging
+ */
+public record ExpenseRow(ObjectId id, long epochDay, long dateMillis, String category,
+                         long amountCents, String descriptionPreview, boolean descriptionTruncated) {
+
+    /** Description characters fetched for a row */
+    public static final int PREVIEW_LENGTH = 60;
+
+    // Row view of a full expense, e.g. one that was just inserted
+    public static ExpenseRow of(Expense expense, ZoneId zone) {
+        return of(expense.getId(), expense.getDate().getTime(), expense.getCategory(),
+                expense.getAmountCents(), expense.getDescription(), zone);
+    }
+
+    // Row view built from individual fields, cutting the description to a preview
+    public static ExpenseRow of(ObjectId id, long dateMillis, String category, long amountCents,
+                                String description, ZoneId zone) {
+        if (description == null) description = "";
+        boolean truncated = description.codePointCount(0, description.length()) > PREVIEW_LENGTH;
+        String preview = truncated
+                ? description.substring(0, description.offsetByCodePoints(0, PREVIEW_LENGTH))
+                : description;
+        long epochDay = Instant.ofEpochMilli(dateMillis).atZone(zone).toLocalDate().toEpochDay();
+        return new ExpenseRow(id, epochDay, dateMillis, category, amountCents, preview, truncated);
+    }
+}
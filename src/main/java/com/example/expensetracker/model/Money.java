@@ -0,0 +1,54 @@
+package com.example.expensetracker.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Amounts are held as {@code long} minor units (paise), so sums are exact.
+ * Formatting appends digits to a caller's {@link StringBuilder} without boxing or
+ * intermediate strings; a builder reused across calls makes it allocation-free.
+ */
+public final class Money {
+
+    public static final int MINOR_UNITS = 100;
+
+    private Money() {}
+
+    /**
+     * Parses user input such as {@code "12"}, {@code "12.5"} or {@code "-0.75"}.
+     *
+     * @throws NumberFormatException if the text is not a number with at most two decimals
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount must have at most two decimals: " + text);
+        }
+    }
+
+    // Legacy floating-point amount, rounded to the nearest minor unit
+    public static long fromDecimal(double amount) {
+        return Math.round(amount * MINOR_UNITS);
+    }
+
+    // For display and statistics only; never sum the result
+    public static double toDecimal(long cents) {
+        return cents / (double) MINOR_UNITS;
+    }
+
+    /**
+     * Appends {@code cents} as {@code [-]units.cc}, e.g. 123456 as "1234.56".
+     */
+    public static StringBuilder append(StringBuilder out, long cents) {
+        long units = cents / MINOR_UNITS;
+        int fraction = (int) Math.abs(cents % MINOR_UNITS);
+        if (cents < 0) out.append('-');
+        out.append(Math.abs(units)).append('.');
+        if (fraction < 10) out.append('0');
+        return out.append(fraction);
+    }
+
+    public static String format(long cents) {
+        return append(new StringBuilder(24), cents).toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.expensetracker.model;
+
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of realistic-looking expenses for offline runs and benchmarks.
+ * The same seed always yields the same rows, ids included.
+ */
+public final class SyntheticExpenses {
+
+    public static final String[] CATEGORIES = {"Food", "Transport", "Shopping", "Bills", "Entertainment", "Healthcare", "Other"};
+
+    // Typical amount per category in rupees, so per-category statistics differ
+    private static final double[] TYPICAL_AMOUNT = {350, 180, 1500, 2500, 700, 1200, 400};
+
+    private static final String[] WORDS = {"lunch", "cab", "groceries", "rent", "movie", "pharmacy", "coffee",
+            "metro", "electricity", "books", "gift", "snacks", "fuel", "internet", "gym"};
+
+    // 2024-01-01T00:00:00Z; rows are spread over the years before it
+    private static final long END_MILLIS = 1_704_067_200_000L;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private SyntheticExpenses() {}
+
+    public static List<Expense> generate(int rows, long seed) {
+        Random random = new Random(seed);
+        List<Expense> expenses = new ArrayList<>(rows);
+        byte[] id = new byte[12];
+        for (int i = 0; i < rows; i++) {
+            int category = random.nextInt(CATEGORIES.length);
+            // Log-normal-ish spread around the typical amount, rounded to paise
+            double amount = TYPICAL_AMOUNT[category] * Math.exp(random.nextGaussian() * 0.6);
+            long date = END_MILLIS - (long) (random.nextDouble() * 5 * 365 * DAY_MILLIS);
+
+            Expense expense = new Expense(Math.max(1, Math.round(amount * 100)),
+                    CATEGORIES[category],
+                    WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i,
+                    new Date(date));
+            random.nextBytes(id);
+            expense.setId(new ObjectId(id));
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+}
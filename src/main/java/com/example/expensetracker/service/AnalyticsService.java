@@ -0,0 +1,262 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.analytics.AnalyticsReport;
+import com.example.expensetracker.analytics.CategoryShare;
+import com.example.expensetracker.analytics.ExpenseColumns;
+import com.example.expensetracker.analytics.SpendingStats;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.dao.PeriodTotal;
+import com.example.expensetracker.model.ExpenseRow;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * AnalyticsService - Spending statistics computed in parallel over the expense set.
+ *
+ * Expenses are streamed out of the repository once into {@link ExpenseColumns}, oldest
+ * first. The rows are then split into contiguous date ranges on a fork-join pool; each
+ * leaf makes a single pass over its range, filling a {@link SpendingStats}, per-category
+ * and per-month sums and counts, and a bounded heap of its largest rows. Partial results
+ * are merged pairwise on the way back up, so the work scales with the number of cores and
+ * the merge cost depends only on the number of categories, months and {@code topN}.
+ *
+ * Blocks; call it off the Event Dispatch Thread.
+ */
+public class AnalyticsService {
+
+    // Leaves smaller than this cost more to fork than to scan
+    private static final int MIN_LEAF_ROWS = 16_384;
+
+    private final ExpenseRepository repository;
+    private final ForkJoinPool pool;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * Runs on the common fork-join pool.
+     */
+    public AnalyticsService(ExpenseRepository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    public AnalyticsService(ExpenseRepository repository, ForkJoinPool pool) {
+        this.repository = repository;
+        this.pool = pool;
+    }
+
+    /**
+     * Analyzes the expenses dated in [from, to); null bounds are open.
+     *
+     * @param topN How many of the largest expenses to return
+     */
+    public AnalyticsReport analyze(Date from, Date to, int topN) {
+        return analyze(ExpenseColumns.load(repository, from, to, zone), topN);
+    }
+
+    /**
+     * Analyzes columns that were already loaded, e.g. to run several reports over one load.
+     */
+    public AnalyticsReport analyze(ExpenseColumns columns, int topN) {
+        int size = columns.size();
+        int firstMonth = columns.firstMonth();
+        int leafRows = Math.max(MIN_LEAF_ROWS, size / (pool.getParallelism() * 4));
+        Partial result = pool.invoke(new AnalyzeTask(columns, 0, size, leafRows,
+                firstMonth, columns.monthSpan(), Math.max(0, topN)));
+        return report(columns, result, firstMonth);
+    }
+
+    private static AnalyticsReport report(ExpenseColumns columns, Partial result, int firstMonth) {
+        long total = result.overall.getSumCents();
+        List<CategoryShare> categories = new ArrayList<>();
+        for (int code = 0; code < result.categorySums.length; code++) {
+            if (result.categoryCounts[code] > 0) {
+                long sum = result.categorySums[code];
+                categories.add(new CategoryShare(columns.categoryName(code), sum, result.categoryCounts[code],
+                        total != 0 ? (double) sum / total : 0));
+            }
+        }
+        categories.sort(Comparator.comparingLong(CategoryShare::getSumCents).reversed());
+
+        List<PeriodTotal> months = new ArrayList<>(result.monthSums.length);
+        for (int i = 0; i < result.monthSums.length; i++) {
+            months.add(new PeriodTotal(ExpenseColumns.yearMonth(firstMonth + i).toString(),
+                    result.monthSums[i], result.monthCounts[i]));
+        }
+
+        int[] rows = result.largest.sorted();
+        List<ExpenseRow> largest = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            largest.add(columns.row(row));
+        }
+        return new AnalyticsReport(result.overall, categories, months, largest);
+    }
+
+    // ========== Fork-join ==========
+
+    /**
+     * Analyzes rows [from, to), splitting in half until a range is at most leafRows long.
+     */
+    private static final class AnalyzeTask extends RecursiveTask<Partial> {
+        private final ExpenseColumns columns;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+        private final int firstMonth;
+        private final int monthSpan;
+        private final int topN;
+
+        AnalyzeTask(ExpenseColumns columns, int from, int to, int leafRows, int firstMonth, int monthSpan, int topN) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+            this.firstMonth = firstMonth;
+            this.monthSpan = monthSpan;
+            this.topN = topN;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leafRows) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            AnalyzeTask older = new AnalyzeTask(columns, from, middle, leafRows, firstMonth, monthSpan, topN);
+            older.fork();
+            Partial newer = new AnalyzeTask(columns, middle, to, leafRows, firstMonth, monthSpan, topN).compute();
+            return older.join().merge(newer);
+        }
+
+        private Partial scan() {
+            Partial partial = new Partial(columns, columns.categoryCount(), monthSpan, topN);
+            for (int row = from; row < to; row++) {
+                long cents = columns.amountCents(row);
+                int category = columns.categoryCode(row);
+                int month = columns.month(row) - firstMonth;
+                partial.overall.add(cents);
+                partial.categorySums[category] += cents;
+                partial.categoryCounts[category]++;
+                partial.monthSums[month] += cents;
+                partial.monthCounts[month]++;
+                partial.largest.offer(row);
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Everything one range contributes; merged pairwise up the task tree.
+     */
+    private static final class Partial {
+        final SpendingStats overall = new SpendingStats();
+        final long[] categorySums;
+        final long[] categoryCounts;
+        final long[] monthSums;
+        final long[] monthCounts;
+        final LargestRows largest;
+
+        Partial(ExpenseColumns columns, int categories, int months, int topN) {
+            categorySums = new long[categories];
+            categoryCounts = new long[categories];
+            monthSums = new long[months];
+            monthCounts = new long[months];
+            largest = new LargestRows(columns, topN);
+        }
+
+        Partial merge(Partial other) {
+            overall.merge(other.overall);
+            add(categorySums, other.categorySums);
+            add(categoryCounts, other.categoryCounts);
+            add(monthSums, other.monthSums);
+            add(monthCounts, other.monthCounts);
+            largest.merge(other.largest);
+            return this;
+        }
+
+        private static void add(long[] into, long[] from) {
+            for (int i = 0; i < into.length; i++) {
+                into[i] += from[i];
+            }
+        }
+    }
+
+    /**
+     * The rows with the largest amounts seen so far, as a bounded min-heap of row indexes.
+     * Equal amounts prefer the later row, i.e. the newer expense.
+     */
+    private static final class LargestRows {
+        private final ExpenseColumns columns;
+        private final int[] heap;
+        private int size;
+
+        LargestRows(ExpenseColumns columns, int capacity) {
+            this.columns = columns;
+            this.heap = new int[capacity];
+        }
+
+        void offer(int row) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(size++);
+            } else if (size > 0 && larger(row, heap[0])) {
+                heap[0] = row;
+                siftDown(0);
+            }
+        }
+
+        void merge(LargestRows other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        // Largest first; empties the heap
+        int[] sorted() {
+            int[] result = new int[size];
+            while (size > 0) {
+                result[size - 1] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private boolean larger(int a, int b) {
+            int byAmount = Long.compare(columns.amountCents(a), columns.amountCents(b));
+            return byAmount != 0 ? byAmount > 0 : a > b;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!larger(heap[parent], heap[i])) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && larger(heap[smallest], heap[left])) smallest = left;
+                if (right < size && larger(heap[smallest], heap[right])) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = heap[a];
+            heap[a] = heap[b];
+            heap[b] = row;
+        }
+    }
+}
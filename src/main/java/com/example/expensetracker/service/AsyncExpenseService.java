@@ -0,0 +1,181 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.config.AppConfig;
+import com.example.expensetracker.dao.ExpenseRepositories;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.model.Expense;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * AsyncExpenseService - Runs all database work off the Swing Event Dispatch Thread.
+ *
+ * Every call is executed on a virtual thread, and its result or error is handed back
+ * on the EDT, so listeners may touch Swing components directly. The repository itself
+ * is created lazily on the first background task, which keeps the connection handshake
+ * off the EDT as well. Refresh requests that arrive while one is running are coalesced
+ * into a single follow-up refresh.
+ *
+ * Public methods other than {@link #getRepository()} and {@link #executor()} must be called on the EDT.
+ */
+public class AsyncExpenseService {
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Executor trackedExecutor = task -> workers.execute(tracked(task));
+
+    private final Supplier<? extends ExpenseRepository> repositoryFactory;
+    private volatile ExpenseRepository repository;
+    private IntConsumer busyListener = n -> {};
+
+    // Refresh coalescing state, EDT-confined
+    private boolean refreshRunning;
+    private Consumer<ExpenseSummary> queuedRefresh;
+
+    /**
+     * Uses the storage engine selected by {@link AppConfig}.
+     */
+    public AsyncExpenseService() {
+        this(() -> ExpenseRepositories.fromConfig(AppConfig.get()));
+    }
+
+    /**
+     * @param repositoryFactory Creates the repository; called once, off the EDT
+     */
+    public AsyncExpenseService(Supplier<? extends ExpenseRepository> repositoryFactory) {
+        this.repositoryFactory = repositoryFactory;
+    }
+
+    /**
+     * Returns the repository, connecting on first use. Blocks; never call on the EDT.
+     */
+    public ExpenseRepository getRepository() {
+        ExpenseRepository r = repository;
+        if (r == null) {
+            synchronized (this) {
+                r = repository;
+                if (r == null) {
+                    r = repositoryFactory.get();
+                    repository = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Background executor whose tasks count towards the busy state.
+     */
+    public Executor executor() {
+        return trackedExecutor;
+    }
+
+    /**
+     * Registers a listener told the number of running tasks whenever it changes. Called on the EDT.
+     */
+    public void setBusyListener(IntConsumer listener) {
+        this.busyListener = listener != null ? listener : n -> {};
+    }
+
+    /**
+     * Runs {@code task} in the background and delivers its outcome on the EDT.
+     */
+    public <T> void submit(Callable<T> task, Consumer<? super T> onSuccess, Consumer<? super Exception> onError) {
+        trackedExecutor.execute(() -> {
+            try {
+                T result = task.call();
+                SwingUtilities.invokeLater(() -> onSuccess.accept(result));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> onError.accept(e));
+            }
+        });
+    }
+
+    /**
+     * Saves one expense; {@code onSaved} receives it with its generated id, its row
+     * position and the collection size after the write, so the UI can merge it in place.
+     * {@code onError} only hears about failed saves; if the row cannot be placed afterwards
+     * the outcome says its position is unknown.
+     */
+    public void insertExpense(Expense expense, Consumer<InsertOutcome> onSaved, Consumer<? super Exception> onError) {
+        submit(() -> {
+            ExpenseRepository r = getRepository();
+            r.insertExpense(expense);
+            // The expense is stored now; a failure placing it must not read as a failed save
+            try {
+                return new InsertOutcome(expense, r.countNewerThan(expense), r.countExpenses());
+            } catch (RuntimeException e) {
+                System.err.println("Saved expense " + expense.getId() + " but could not find its row: " + e.getMessage());
+                return new InsertOutcome(expense, ExpenseRepository.POSITION_UNKNOWN, -1);
+            }
+        }, onSaved, onError);
+    }
+
+    /**
+     * Reads the current count and total. If a refresh is already running, this request
+     * is folded into one refresh issued after it, and only the latest callback is kept.
+     */
+    public void refresh(Consumer<ExpenseSummary> onLoaded, Consumer<? super Exception> onError) {
+        if (refreshRunning) {
+            queuedRefresh = onLoaded;
+            return;
+        }
+        refreshRunning = true;
+        submit(() -> new ExpenseSummary(getRepository().countExpenses(), getRepository().totalCents()),
+                summary -> {
+                    if (!finishRefresh(onError)) onLoaded.accept(summary);
+                },
+                error -> {
+                    if (!finishRefresh(onError)) onError.accept(error);
+                });
+    }
+
+    /**
+     * Stops the workers; running tasks are interrupted.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Ends the running refresh and starts the queued one, if any.
+     *
+     * @return true if a newer refresh superseded this result
+     */
+    private boolean finishRefresh(Consumer<? super Exception> onError) {
+        refreshRunning = false;
+        Consumer<ExpenseSummary> next = queuedRefresh;
+        if (next == null) {
+            return false;
+        }
+        queuedRefresh = null;
+        refresh(next, onError);
+        return true;
+    }
+
+    private Runnable tracked(Runnable task) {
+        return () -> {
+            inFlight.incrementAndGet();
+            busyChanged();
+            try {
+                task.run();
+            } finally {
+                inFlight.decrementAndGet();
+                busyChanged();
+            }
+        };
+    }
+
+    private void busyChanged() {
+        // Read the counter on the EDT so listeners never see a stale value posted late
+        SwingUtilities.invokeLater(() -> busyListener.accept(inFlight.get()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.expensetracker.service;
+
+/**
+ * Row count and total of the expense collection, as read by one refresh.
+ */
+public class ExpenseSummary {
+    private final long count;
+    private final long totalCents;
+
+    public ExpenseSummary(long count, long totalCents) {
+        this.count = count;
+        this.totalCents = totalCents;
+    }
+
+    public long getCount() { return count; }
+    // Minor units
+    public long getTotalCents() { return totalCents; }
+}
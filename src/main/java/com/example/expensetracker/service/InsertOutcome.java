@@ -0,0 +1,27 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.model.Expense;
+
+/**
+ * A stored expense together with where it landed in the newest-first order and
+ * the collection size seen right after the write, used to detect drift. When the
+ * position could not be worked out the table has to be reloaded instead.
+ */
+public class InsertOutcome {
+    private final Expense expense;
+    private final long position;
+    private final long count;
+
+    public InsertOutcome(Expense expense, long position, long count) {
+        this.expense = expense;
+        this.position = position;
+        this.count = count;
+    }
+
+    public Expense getExpense() { return expense; }
+    public long getPosition() { return position; }
+    public long getCount() { return count; }
+
+    public boolean isPositionKnown() { return position != ExpenseRepository.POSITION_UNKNOWN; }
+}
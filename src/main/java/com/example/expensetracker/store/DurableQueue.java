@@ -0,0 +1,177 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only file of expenses waiting to be written elsewhere, plus the offset up to
+ * which they have been acknowledged.
+ *
+ * Records use {@link ExpenseRecordFormat}. The acknowledged offset lives in a side file
+ * ({@code <name>.ack}); once every record is acknowledged the queue file is cut back to
+ * its header so it does not grow without bound. Entries appended but not acknowledged
+ * before a crash are returned by {@link #recovered()} on the next open.
+ */
+public class DurableQueue implements AutoCloseable {
+
+    /**
+     * One queued expense and the file offset just past its record, to acknowledge it by.
+     */
+    public record Entry(Expense expense, long endOffset) {}
+
+    private static final int MAGIC = 0x5357514C; // "SWQL"
+    private static final int HEADER_BYTES = 8;
+
+    private final Path file;
+    private FileChannel queue;
+    private final FileChannel ack;
+    private final boolean fsync;
+    private final List<Entry> recovered;
+
+    public DurableQueue(Path file, boolean fsync) throws IOException {
+        this.file = file;
+        this.fsync = fsync;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        queue = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ack = FileChannel.open(file.resolveSibling(file.getFileName() + ".ack"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (queue.size() < HEADER_BYTES) {
+            queue.truncate(0);
+            writeHeader();
+        }
+        recovered = Collections.unmodifiableList(recover());
+        queue.position(queue.size());
+    }
+
+    /**
+     * Entries that were queued but not acknowledged when the file was last closed, in order.
+     */
+    public List<Entry> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Appends the expenses, which must already have ids, with one write.
+     */
+    public synchronized List<Entry> append(List<? extends Expense> expenses) throws IOException {
+        List<Entry> entries = new ArrayList<>(expenses.size());
+        ByteBuffer[] records = new ByteBuffer[expenses.size()];
+        long end = queue.position();
+        for (int i = 0; i < records.length; i++) {
+            records[i] = ExpenseRecordFormat.encode(expenses.get(i));
+            end += records[i].remaining();
+            entries.add(new Entry(expenses.get(i), end));
+        }
+        while (queue.position() < end) {
+            queue.write(records);
+        }
+        if (fsync) {
+            queue.force(false);
+        }
+        return entries;
+    }
+
+    /**
+     * Marks everything up to {@code endOffset} as delivered.
+     */
+    public synchronized void acknowledge(long endOffset) throws IOException {
+        // Fully drained: start over so the file stays small. The offset is reset on disk
+        // first; a crash before the cut only replays records that were already delivered.
+        boolean drained = endOffset >= queue.size();
+        writeFully(ack, ByteBuffer.allocate(Long.BYTES).putLong(drained ? HEADER_BYTES : endOffset).flip(), 0);
+        if (fsync || drained) {
+            ack.force(false);
+        }
+        if (drained) {
+            queue.truncate(HEADER_BYTES);
+            queue.position(HEADER_BYTES);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            queue.close();
+        } finally {
+            ack.close();
+        }
+    }
+
+    private List<Entry> recover() throws IOException {
+        // Channel reads, not a mapping: a live mapping would stop the truncates below on Windows
+        long size = queue.size();
+        RecordReader reader = new RecordReader(queue);
+        if (reader.getInt() != MAGIC) {
+            throw new IOException("Not a queue file: " + file);
+        }
+        int version = reader.getInt();
+        if (version < 1 || version > ExpenseRecordFormat.VERSION) {
+            throw new IOException("Unsupported format version " + version + " in " + file);
+        }
+
+        // A missing or out-of-range offset means "from the start"; replays are harmless
+        long acknowledged = HEADER_BYTES;
+        if (ack.size() >= Long.BYTES) {
+            ByteBuffer offset = ByteBuffer.allocate(Long.BYTES);
+            ack.read(offset, 0);
+            acknowledged = offset.flip().getLong();
+        }
+        if (acknowledged < HEADER_BYTES || acknowledged > size) {
+            acknowledged = HEADER_BYTES;
+        }
+        reader.seek(acknowledged);
+
+        List<Entry> entries = new ArrayList<>();
+        Expense expense;
+        while ((expense = reader.next(version)) != null) {
+            entries.add(new Entry(expense, reader.position()));
+        }
+        if (reader.unread() > 0) {
+            System.err.println("Discarding " + reader.unread() + " torn bytes at the end of " + file);
+            queue.truncate(reader.position());
+        }
+        if (version == ExpenseRecordFormat.VERSION) {
+            return entries;
+        }
+
+        // Older format: rewrite just the pending entries in the current one, then swap files
+        List<Expense> expenses = new ArrayList<>(entries.size());
+        entries.forEach(entry -> expenses.add(entry.expense()));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel old = queue;
+        queue = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeHeader();
+        queue.position(HEADER_BYTES);
+        List<Entry> rewritten = append(expenses);
+        queue.force(true);
+        old.close();
+        // Offset first: a crash before the move replays the old file from its start, which is harmless
+        writeFully(ack, ByteBuffer.allocate(Long.BYTES).putLong(HEADER_BYTES).flip(), 0);
+        ack.force(false);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rewritten;
+    }
+
+    private void writeHeader() throws IOException {
+        writeFully(queue, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(ExpenseRecordFormat.VERSION).flip(), 0);
+        queue.force(true);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
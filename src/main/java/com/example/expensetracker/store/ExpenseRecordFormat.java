@@ -0,0 +1,115 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.Money;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of one expense in local journal and snapshot files.
+ *
+ * <pre>
+ * int     length         bytes that follow this field
+ * int     crc32          of the bytes that follow this field
+ * byte[12] id
+ * long    date           epoch millis
+ * long    amount         minor units (version 1: double in major units)
+ * short   category length, then UTF-8 bytes
+ * int     description length, then UTF-8 bytes
+ * </pre>
+ *
+ * The fixed part sits at fixed offsets so a record can be read without parsing.
+ * A record that is cut short or fails its checksum (a torn write at the end of a
+ * file) decodes as null. Files store {@link #VERSION} in their header and pass it back
+ * when decoding, so records written by older versions stay readable.
+ */
+public final class ExpenseRecordFormat {
+
+    // 2: amount as long minor units
+    public static final int VERSION = 2;
+
+    // length + crc
+    static final int FRAME_BYTES = 8;
+
+    // id + date + amount + category length + description length
+    static final int FIXED_BYTES = 12 + 8 + 8 + 2 + 4;
+
+    private ExpenseRecordFormat() {}
+
+    /**
+     * Encodes one expense, which must already have an id, into a buffer ready to be written.
+     */
+    public static ByteBuffer encode(Expense expense) {
+        byte[] category = bytes(expense.getCategory());
+        byte[] description = bytes(expense.getDescription());
+        if (category.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Category name too long");
+        }
+
+        int bodyLength = FIXED_BYTES + category.length + description.length;
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_BYTES + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0); // crc placeholder
+        buffer.put(expense.getId().toByteArray());
+        buffer.putLong(expense.getDate().getTime());
+        buffer.putLong(expense.getAmountCents());
+        buffer.putShort((short) category.length).put(category);
+        buffer.putInt(description.length).put(description);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), FRAME_BYTES, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    public static Expense decode(ByteBuffer in) {
+        return decode(in, VERSION);
+    }
+
+    /**
+     * Decodes the record at the buffer's position and advances past it.
+     *
+     * @param version format version from the file header
+     * @return the expense, or null if the buffer holds no complete, intact record;
+     *         the position is then left unchanged
+     */
+    public static Expense decode(ByteBuffer in, int version) {
+        int start = in.position();
+        if (in.remaining() < FRAME_BYTES) return null;
+        int bodyLength = in.getInt(start);
+        int expectedCrc = in.getInt(start + 4);
+        if (bodyLength < FIXED_BYTES || in.remaining() - FRAME_BYTES < bodyLength) return null;
+
+        ByteBuffer body = in.duplicate();
+        body.position(start + FRAME_BYTES).limit(start + FRAME_BYTES + bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) return null;
+
+        byte[] id = new byte[12];
+        body.get(id);
+        long date = body.getLong();
+        long amountCents = version >= 2 ? body.getLong() : Money.fromDecimal(body.getDouble());
+        String category = string(body, body.getShort());
+        String description = string(body, body.getInt());
+
+        Expense expense = new Expense(amountCents, category, description, new Date(date));
+        expense.setId(new ObjectId(id));
+        in.position(start + FRAME_BYTES + bodyLength);
+        return expense;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static String string(ByteBuffer body, int length) {
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local copy of the first rows of the expense table, the row count and the total, so the
+ * window can show something before the store is reachable.
+ *
+ * The file is tagged with a source key (storage engine and database, never credentials);
+ * a cache written for another source reads as empty. It is replaced atomically on
+ * {@link #save}. A missing, foreign or unreadable file is not an error: the table simply
+ * starts empty until the first refresh.
+ */
+public class FirstPageCache {
+
+    private static final int MAGIC = 0x53574650; // "SWFP"
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final String source;
+
+    /**
+     * @param file   Cache file
+     * @param source Identifies the store the rows came from
+     */
+    public FirstPageCache(Path file, String source) {
+        this.file = file;
+        this.source = source;
+    }
+
+    /**
+     * Reads the cached page, or returns null if there is none for this source.
+     */
+    public FirstPage load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(source)) {
+                return null;
+            }
+            long savedMillis = in.readLong();
+            long count = in.readLong();
+            long totalCents = in.readLong();
+            int size = in.readInt();
+            List<ExpenseRow> rows = new ArrayList<>(size);
+            byte[] id = new byte[12];
+            for (int i = 0; i < size; i++) {
+                in.readFully(id);
+                rows.add(new ExpenseRow(new ObjectId(id), in.readLong(), in.readLong(), in.readUTF(),
+                        in.readLong(), in.readUTF(), in.readBoolean()));
+            }
+            return new FirstPage(savedMillis, count, totalCents, rows);
+        } catch (NoSuchFileException e) {
+            return null; // First run
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable first-page cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the cache with the given page, count and total.
+     */
+    public void save(long count, long totalCents, List<ExpenseRow> rows) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(source);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(count);
+            out.writeLong(totalCents);
+            out.writeInt(rows.size());
+            for (ExpenseRow row : rows) {
+                out.write(row.id().toByteArray());
+                out.writeLong(row.epochDay());
+                out.writeLong(row.dateMillis());
+                out.writeUTF(row.category() != null ? row.category() : "");
+                out.writeLong(row.amountCents());
+                out.writeUTF(row.descriptionPreview());
+                out.writeBoolean(row.descriptionTruncated());
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Contents of the cache file.
+     */
+    public static class FirstPage {
+        private final long savedMillis;
+        private final long count;
+        private final long totalCents;
+        private final List<ExpenseRow> rows;
+
+        public FirstPage(long savedMillis, long count, long totalCents, List<ExpenseRow> rows) {
+            this.savedMillis = savedMillis;
+            this.count = count;
+            this.totalCents = totalCents;
+            this.rows = List.copyOf(rows);
+        }
+
+        // When the page was written, epoch millis
+        public long getSavedMillis() { return savedMillis; }
+        public long getCount() { return count; }
+        // Minor units
+        public long getTotalCents() { return totalCents; }
+        // Newest first
+        public List<ExpenseRow> getRows() { return rows; }
+    }
+}
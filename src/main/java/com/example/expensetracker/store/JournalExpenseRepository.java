@@ -0,0 +1,481 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.dao.BatchReport;
+import com.example.expensetracker.dao.CategoryTotal;
+import com.example.expensetracker.dao.ExpensePage;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.dao.InMemoryExpenseRepository;
+import com.example.expensetracker.dao.InsertListener;
+import com.example.expensetracker.dao.PeriodTotal;
+import com.example.expensetracker.db.CategoryRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local {@link ExpenseRepository} that needs no database server.
+ *
+ * Every write is appended to a journal file ({@code journal-<generation>.log}) as an
+ * {@link ExpenseRecordFormat} record before it becomes visible. When the journal grows past
+ * the compaction threshold it is folded into {@code snapshot.dat}: all expenses sorted by
+ * {@code (date, _id)} plus the first journal generation not contained in it. Startup reads
+ * the snapshot and replays only the journals from that generation on, through a
+ * {@link RecordReader} rather than a memory mapping so the files can be cut back, replaced
+ * and deleted right after.
+ *
+ * An append that fails part-way is cut back off the journal, so later records never sit
+ * behind a torn one (which replay would stop at). If even that fails, the journal is
+ * marked failed and every later write is refused rather than risk losing it on restart.
+ *
+ * Queries are answered by an {@link InMemoryExpenseRepository} holding the same rows.
+ */
+public class JournalExpenseRepository implements ExpenseRepository, AutoCloseable {
+
+    static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private static final int JOURNAL_MAGIC = 0x53574A4C; // "SWJL"
+    private static final int SNAPSHOT_MAGIC = 0x5357534E; // "SWSN"
+
+    // magic + version
+    private static final int JOURNAL_HEADER_BYTES = 8;
+    // magic + version + first journal generation + record count
+    private static final int SNAPSHOT_HEADER_BYTES = 24;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private static final Pattern JOURNAL_NAME = Pattern.compile("journal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final long compactBytes;
+    private final boolean fsync;
+    private final InMemoryExpenseRepository memory = new InMemoryExpenseRepository();
+
+    // Serialises appends and generation switches
+    private final Object appendLock = new Object();
+    private FileChannel journal;
+    private long generation;
+    private long journalBytes;
+    // Why the journal refuses writes, or null while it is healthy
+    private IOException failure;
+
+    // One compaction at a time, since they share the temporary snapshot file
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens (or creates) the store in {@code directory}.
+     *
+     * @param compactBytes journal size that triggers a background compaction
+     * @param fsync        force every append to disk before returning
+     */
+    public JournalExpenseRepository(Path directory, long compactBytes, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.compactBytes = compactBytes;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE + ".tmp"));
+
+        long firstGeneration = loadSnapshot();
+        TreeMap<Long, Path> journals = listJournals();
+        int lastVersion = ExpenseRecordFormat.VERSION;
+        for (var entry : journals.entrySet()) {
+            if (entry.getKey() < firstGeneration) {
+                // Already folded into the snapshot; left behind by an interrupted compaction
+                Files.delete(entry.getValue());
+            } else {
+                lastVersion = replayJournal(entry.getValue());
+            }
+        }
+
+        generation = journals.isEmpty() ? firstGeneration : Math.max(firstGeneration, journals.lastKey());
+        // Never append current-format records to a journal written in an older format
+        openJournal(lastVersion < ExpenseRecordFormat.VERSION ? generation + 1 : generation);
+    }
+
+    // ========== Writes ==========
+
+    @Override
+    public void insertExpense(Expense expense) {
+        prepare(expense);
+        synchronized (appendLock) {
+            append(List.of(ExpenseRecordFormat.encode(expense)));
+            memory.insertExpense(expense);
+        }
+        compactIfNeeded();
+    }
+
+    // Valid expenses are journaled with one write and one force
+    @Override
+    public BatchReport insertExpenses(Collection<? extends Expense> expenses) {
+        List<ByteBuffer> records = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            if (expense.getDate() != null) {
+                prepare(expense);
+                records.add(ExpenseRecordFormat.encode(expense));
+            }
+        }
+        BatchReport report;
+        synchronized (appendLock) {
+            append(records);
+            // Expenses without a date were not journaled; the memory engine reports them
+            report = memory.insertExpenses(expenses);
+        }
+        compactIfNeeded();
+        return report;
+    }
+
+    @Override
+    public void addInsertListener(InsertListener listener) {
+        memory.addInsertListener(listener);
+    }
+
+    // ========== Reads ==========
+
+    @Override
+    public ExpensePage<Expense> findPage(String cursorToken, int pageSize) {
+        return memory.findPage(cursorToken, pageSize);
+    }
+
+    @Override
+    public ExpensePage<ExpenseRow> findRowPage(String cursorToken, int pageSize) {
+        return memory.findRowPage(cursorToken, pageSize);
+    }
+
+    @Override
+    public List<ExpenseRow> findRowRange(int offset, int limit) {
+        return memory.findRowRange(offset, limit);
+    }
+
+    @Override
+    public Expense findById(ObjectId id) {
+        return memory.findById(id);
+    }
+
+    @Override
+    public void scan(Date from, Date to, Consumer<? super Expense> action) {
+        memory.scan(from, to, action);
+    }
+
+    @Override
+    public long countExpenses() {
+        return memory.countExpenses();
+    }
+
+    @Override
+    public long countNewerThan(Expense expense) {
+        return memory.countNewerThan(expense);
+    }
+
+    // ========== Aggregates ==========
+
+    @Override
+    public long totalCents() {
+        return memory.totalCents();
+    }
+
+    @Override
+    public CategoryRegistry categories() {
+        return memory.categories();
+    }
+
+    @Override
+    public List<CategoryTotal> categoryTotals(Date from, Date to) {
+        return memory.categoryTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> dailyTotals(Date from, Date to) {
+        return memory.dailyTotals(from, to);
+    }
+
+    @Override
+    public List<PeriodTotal> monthlyTotals(Date from, Date to) {
+        return memory.monthlyTotals(from, to);
+    }
+
+    // ========== Compaction ==========
+
+    /**
+     * Folds every journal written so far into a new snapshot.
+     *
+     * Appends wait only while the rows are copied and a fresh journal generation is
+     * started; the snapshot is then written to a temporary file and moved into place while
+     * inserts carry on into the new journal. A crash at any point leaves either the old
+     * snapshot with all its journals (including the new one) or the new snapshot with the
+     * new journal. Reads are not blocked.
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            compactLocked();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        long firstGeneration;
+        InMemoryExpenseRepository.Snapshot rows;
+        synchronized (appendLock) {
+            if (failure != null) throw new IOException("The expense journal failed earlier", failure);
+            firstGeneration = generation + 1;
+            rows = memory.snapshot();
+            journal.close();
+            try {
+                openJournal(firstGeneration);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+        writeSnapshot(temp, firstGeneration, rows);
+        try {
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (var entry : listJournals().headMap(firstGeneration).entrySet()) {
+            Files.delete(entry.getValue());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        synchronized (appendLock) {
+            journal.close();
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (journalBytes < compactBytes || !compacting.compareAndSet(false, true)) return;
+        compactor.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("Journal compaction failed: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    // Streams the copied rows, already in (date, _id) order, through one staging buffer
+    private static void writeSnapshot(Path file, long firstGeneration, InMemoryExpenseRepository.Snapshot rows)
+            throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer staging = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            staging.putInt(SNAPSHOT_MAGIC).putInt(ExpenseRecordFormat.VERSION)
+                    .putLong(firstGeneration).putLong(rows.size());
+            try {
+                rows.forEach(expense -> {
+                    ByteBuffer record = ExpenseRecordFormat.encode(expense);
+                    try {
+                        if (staging.remaining() < record.remaining()) {
+                            drain(out, staging);
+                        }
+                        if (record.remaining() > staging.capacity()) {
+                            writeFully(out, record);
+                        } else {
+                            staging.put(record);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            drain(out, staging);
+            out.force(true);
+        }
+    }
+
+    // ========== Startup ==========
+
+    // Returns the first journal generation the snapshot does not contain
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) return 0;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            RecordReader reader = new RecordReader(in);
+            if (in.size() < SNAPSHOT_HEADER_BYTES || reader.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = checkVersion(reader.getInt(), file);
+            long firstGeneration = reader.getLong();
+            long count = reader.getLong();
+
+            List<Expense> expenses = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE));
+            Expense expense;
+            while ((expense = reader.next(version)) != null) {
+                expenses.add(expense);
+            }
+            // The snapshot is only moved into place once complete, so a short one is corrupt
+            if (expenses.size() != count) {
+                throw new IOException("Snapshot " + file + " holds " + expenses.size() + " of " + count + " records");
+            }
+            memory.insertExpenses(expenses);
+            return firstGeneration;
+        }
+    }
+
+    // Applies every intact record; a torn record at the end from a crash is cut off.
+    // Returns the file's format version.
+    private int replayJournal(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < JOURNAL_HEADER_BYTES) {
+                // Crashed while creating it; nothing was appended, and openJournal rewrites the header
+                channel.truncate(0);
+                return ExpenseRecordFormat.VERSION;
+            }
+            RecordReader reader = new RecordReader(channel);
+            if (reader.getInt() != JOURNAL_MAGIC) {
+                throw new IOException("Not a journal file: " + file);
+            }
+            int version = checkVersion(reader.getInt(), file);
+
+            List<Expense> expenses = new ArrayList<>();
+            Expense expense;
+            while ((expense = reader.next(version)) != null) {
+                expenses.add(expense);
+            }
+            if (reader.unread() > 0) {
+                System.err.println("Discarding " + reader.unread() + " torn bytes at the end of " + file);
+                channel.truncate(reader.position());
+            }
+            memory.insertExpenses(expenses);
+            return version;
+        }
+    }
+
+    private TreeMap<Long, Path> listJournals() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher matcher = JOURNAL_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    journals.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return journals;
+    }
+
+    // ========== Journal I/O (callers hold appendLock) ==========
+
+    private void openJournal(long newGeneration) throws IOException {
+        Path file = directory.resolve("journal-" + newGeneration + ".log");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeFully(channel, ByteBuffer.allocate(JOURNAL_HEADER_BYTES)
+                    .putInt(JOURNAL_MAGIC).putInt(ExpenseRecordFormat.VERSION).flip());
+            channel.force(true);
+        }
+        channel.position(channel.size());
+        journal = channel;
+        generation = newGeneration;
+        journalBytes = channel.size();
+    }
+
+    // All records or none: a failed write is truncated away before the error is thrown
+    private void append(List<ByteBuffer> records) {
+        if (records.isEmpty()) return;
+        checkWritable();
+        long start = journalBytes;
+        try {
+            ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= journal.write(buffers);
+            }
+            if (fsync) {
+                journal.force(false);
+            }
+            journalBytes = journal.position();
+        } catch (IOException e) {
+            rollBack(start, e);
+            throw new UncheckedIOException("Could not append to the expense journal", e);
+        }
+    }
+
+    private void rollBack(long start, IOException cause) {
+        try {
+            journal.truncate(start);
+            journal.position(start);
+            journal.force(false);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            failure = cause;
+            System.err.println("Expense journal " + generation + " could not be repaired after a failed append; "
+                    + "refusing further writes: " + e.getMessage());
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("The expense journal failed earlier and no longer accepts writes", failure);
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private static void prepare(Expense expense) {
+        if (expense.getDate() == null) {
+            throw new IllegalArgumentException("Expense date is required");
+        }
+        if (expense.getId() == null) {
+            expense.setId(new ObjectId());
+        }
+    }
+
+    private static int checkVersion(int version, Path file) throws IOException {
+        if (version < 1 || version > ExpenseRecordFormat.VERSION) {
+            throw new IOException("Unsupported format version " + version + " in " + file);
+        }
+        return version;
+    }
+
+    private static void drain(FileChannel out, ByteBuffer staging) throws IOException {
+        staging.flip();
+        writeFully(out, staging);
+        staging.clear();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
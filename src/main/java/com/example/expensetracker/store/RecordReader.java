@@ -0,0 +1,92 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a file of {@link ExpenseRecordFormat} records front to back through one reusable
+ * buffer, which only grows for a record larger than itself.
+ *
+ * Plain channel reads rather than a memory mapping: Windows refuses to truncate, replace
+ * or delete a file while a mapping of it is live, and a mapping lives until it is garbage
+ * collected, so recovery could not cut off a torn tail or compaction drop old files.
+ */
+final class RecordReader {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).flip();
+    // File offset of the buffer's first byte
+    private long base;
+
+    RecordReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    // Reads a header field; fails if the file ends first
+    int getInt() throws IOException {
+        need(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long getLong() throws IOException {
+        need(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    // Continues reading at the given file offset
+    void seek(long offset) {
+        base = offset;
+        buffer.clear().flip();
+    }
+
+    /**
+     * The next intact record, or null at the end of the file or at the first record that
+     * is cut short or fails its checksum.
+     */
+    Expense next(int version) throws IOException {
+        while (true) {
+            Expense expense = ExpenseRecordFormat.decode(buffer, version);
+            if (expense != null || !fill()) return expense;
+        }
+    }
+
+    // File offset just past the last value read
+    long position() {
+        return base + buffer.position();
+    }
+
+    // Bytes from position() to the end of the file, i.e. a torn tail after next() gave null
+    long unread() {
+        return size - position();
+    }
+
+    private void need(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (!fill()) throw new IOException("File ends inside its header");
+        }
+    }
+
+    // Reads more of the file behind the unread bytes; false at the end of the file
+    private boolean fill() throws IOException {
+        if (base + buffer.limit() >= size) return false;
+        base += buffer.position();
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            larger.put(buffer.flip());
+            buffer = larger;
+        }
+        while (buffer.hasRemaining() && base + buffer.position() < size) {
+            if (channel.read(buffer, base + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+        return true;
+    }
+}
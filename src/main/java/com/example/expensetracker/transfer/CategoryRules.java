@@ -0,0 +1,142 @@
+package com.example.expensetracker.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Picks a category for an imported expense from keywords in its description, read from
+ * a properties file with one category per line:
+ * <pre>
+ * Food=swiggy, zomato, restaurant
+ * Transport=uber, ola, petrol
+ * </pre>
+ * A keyword matches at the start of a word, ignoring ASCII case; when several match, the
+ * longest wins, so {@code amazon prime} can go to Entertainment while {@code amazon}
+ * stays Shopping. Descriptions nothing matches get the fallback category.
+ *
+ * Matching runs on the raw bytes of the description, indexed by the first byte of each
+ * keyword. Immutable and safe to share between threads.
+ */
+public final class CategoryRules {
+
+    public static final String FALLBACK = "Other";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+    static {
+        DEFAULTS.put("Food", "swiggy, zomato, restaurant, cafe, coffee, bakery, grocery, bigbasket, blinkit, zepto, dominos, pizza, mcdonald, kfc, starbucks");
+        DEFAULTS.put("Transport", "uber, ola, rapido, irctc, railway, metro, petrol, diesel, fuel, parking, fastag, indigo, air india");
+        DEFAULTS.put("Shopping", "amazon, flipkart, myntra, ajio, nykaa, meesho, decathlon, ikea");
+        DEFAULTS.put("Bills", "electricity, water bill, gas bill, broadband, recharge, airtel, jio, vodafone, bsnl, insurance, rent");
+        DEFAULTS.put("Entertainment", "netflix, spotify, hotstar, amazon prime, prime video, bookmyshow, pvr, inox, steam");
+        DEFAULTS.put("Healthcare", "pharmacy, apollo, medplus, hospital, clinic, diagnostic, 1mg, pharmeasy");
+    }
+
+    private static final class Keyword {
+        final byte[] bytes;
+        final String category;
+
+        Keyword(byte[] bytes, String category) {
+            this.bytes = bytes;
+            this.category = category;
+        }
+    }
+
+    // Keywords by their first (lower-case) byte
+    private final Keyword[][] byFirstByte = new Keyword[256][];
+    private final String fallback;
+
+    /**
+     * @param keywords keywords for each category
+     * @param fallback category for descriptions no keyword matches
+     */
+    public CategoryRules(Map<String, List<String>> keywords, String fallback) {
+        this.fallback = fallback;
+        List<List<Keyword>> index = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++) index.add(null);
+        for (Map.Entry<String, List<String>> entry : keywords.entrySet()) {
+            for (String keyword : entry.getValue()) {
+                String text = keyword.trim().toLowerCase(Locale.ROOT);
+                if (text.isEmpty()) continue;
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                int first = bytes[0] & 0xFF;
+                if (index.get(first) == null) index.set(first, new ArrayList<>());
+                index.get(first).add(new Keyword(bytes, entry.getKey()));
+            }
+        }
+        for (int i = 0; i < 256; i++) {
+            if (index.get(i) != null) byFirstByte[i] = index.get(i).toArray(new Keyword[0]);
+        }
+    }
+
+    /**
+     * Built-in rules for common Indian merchants and bills, mapping to
+     * {@link com.example.expensetracker.db.CategoryRegistry#DEFAULTS}.
+     */
+    public static CategoryRules defaults() {
+        Map<String, List<String>> keywords = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : DEFAULTS.entrySet()) {
+            keywords.put(entry.getKey(), List.of(entry.getValue().split(",")));
+        }
+        return new CategoryRules(keywords, FALLBACK);
+    }
+
+    /**
+     * @return the rules in the file, or {@link #defaults()} if it does not exist
+     */
+    public static CategoryRules load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return defaults();
+        }
+        Map<String, List<String>> keywords = new LinkedHashMap<>();
+        for (String category : properties.stringPropertyNames()) {
+            keywords.put(category, List.of(properties.getProperty(category).split(",")));
+        }
+        return new CategoryRules(keywords, FALLBACK);
+    }
+
+    String fallback() {
+        return fallback;
+    }
+
+    public String categorize(String description) {
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        return categorize(bytes, 0, bytes.length);
+    }
+
+    // Category for the description in buf[from, to)
+    String categorize(byte[] buf, int from, int to) {
+        String best = fallback;
+        int bestLength = 0;
+        boolean wordStart = true;
+        for (int i = from; i < to; i++) {
+            byte b = Fields.lower(buf[i]);
+            Keyword[] candidates = wordStart ? byFirstByte[b & 0xFF] : null;
+            wordStart = !Fields.isLetter(b) && !Fields.isDigit(b) && b >= 0;
+            if (candidates == null) continue;
+            for (Keyword keyword : candidates) {
+                byte[] k = keyword.bytes;
+                if (k.length <= bestLength || i + k.length > to) continue;
+                int j = 1;
+                while (j < k.length && Fields.lower(buf[i + j]) == k[j]) j++;
+                if (j == k.length) {
+                    best = keyword.category;
+                    bestLength = k.length;
+                }
+            }
+        }
+        return best;
+    }
+}
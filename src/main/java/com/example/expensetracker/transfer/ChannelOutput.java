@@ -0,0 +1,99 @@
+package com.example.expensetracker.transfer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fixed-size write buffer in front of a channel, optionally gzip-compressed.
+ *
+ * Writers fill the buffer byte by byte and it is handed to the channel whenever it is
+ * full, so an export holds the same few buffers however many rows it writes.
+ * {@link #finish()} writes what is left and ends the gzip stream; the channel itself is
+ * left open for the caller.
+ */
+final class ChannelOutput {
+
+    static final int BUFFER_BYTES = 1 << 16;
+
+    private final OutputStream out;
+    private final GZIPOutputStream gzip;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int position;
+    private long channelBytes;
+
+    ChannelOutput(WritableByteChannel channel, boolean compress) throws IOException {
+        OutputStream raw = Channels.newOutputStream(new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int n = channel.write(src);
+                channelBytes += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() {
+                // The caller owns the channel
+            }
+        });
+        this.gzip = compress ? new GZIPOutputStream(raw, BUFFER_BYTES) : null;
+        this.out = compress ? gzip : raw;
+    }
+
+    // Bytes that reached the channel so far, i.e. after compression
+    long channelBytes() {
+        return channelBytes;
+    }
+
+    void write(int b) throws IOException {
+        if (position == buffer.length) drain();
+        buffer[position++] = (byte) b;
+    }
+
+    void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    void write(byte[] bytes, int from, int length) throws IOException {
+        if (length > buffer.length - position) {
+            drain();
+            if (length > buffer.length) {
+                out.write(bytes, from, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, from, buffer, position, length);
+        position += length;
+    }
+
+    // Unsigned LEB128: seven bits per byte, low bits first
+    void writeVarLong(long value) throws IOException {
+        if (buffer.length - position < 10) drain();
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void finish() throws IOException {
+        drain();
+        if (gzip != null) gzip.finish();
+        out.flush();
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
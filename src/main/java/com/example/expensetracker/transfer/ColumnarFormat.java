@@ -0,0 +1,317 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compact binary export of expenses, stored column by column in blocks of rows.
+ *
+ * <pre>
+ * file    "SPXC", byte version
+ * block   varint rows; 0 ends the file
+ *         varint new categories, each varint length then UTF-8 bytes
+ *         five columns, each varint length then rows values:
+ *           ids          12-byte ObjectId, all zero for none
+ *           dates        zigzag varint, epoch millis minus the previous row's (0 for the first);
+ *                        Long.MIN_VALUE stands for no date, deltas wrapping around it
+ *           amounts      zigzag varint, minor units
+ *           categories   varint index into the categories named so far
+ *           descriptions varint length then UTF-8 bytes
+ * </pre>
+ *
+ * Varints are unsigned LEB128. Category names are written once, in the block where they
+ * first appear, and rows refer to them by index. A missing category or description is
+ * written, and reads back, as the empty string. Rows come from a date-ordered scan, so
+ * date deltas mostly fit in a few bytes. A block holds at most {@value #BLOCK_ROWS} rows
+ * and is cut early once its descriptions pass {@value #BLOCK_TEXT_BYTES} bytes, so writer
+ * and reader keep one bounded block in memory.
+ */
+public final class ColumnarFormat {
+
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = {'S', 'P', 'X', 'C'};
+    static final int BLOCK_ROWS = 8192;
+    static final int BLOCK_TEXT_BYTES = 1 << 20;
+
+    private static final int COLUMNS = 5;
+    private static final byte[] NO_ID = new byte[12];
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Refuse column lengths no writer produces, rather than allocating them
+    private static final int MAX_COLUMN_BYTES = 64 << 20;
+
+    private ColumnarFormat() {}
+
+    /**
+     * Reads an export written in this format, un-gzipping it when the name ends in ".gz".
+     *
+     * @return rows read
+     */
+    public static long read(Path file, Consumer<? super Expense> action) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(ExportFormat.isCompressed(file) ? new GZIPInputStream(in, ChannelOutput.BUFFER_BYTES) : in, action);
+        }
+    }
+
+    /**
+     * Reads an export from a stream, one block at a time, handing each expense to
+     * {@code action} in file order. The stream is not closed.
+     *
+     * @return rows read
+     */
+    public static long read(InputStream stream, Consumer<? super Expense> action) throws IOException {
+        InputStream in = new BufferedInputStream(stream, ChannelOutput.BUFFER_BYTES);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a columnar expense export");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported columnar export version " + version);
+        }
+
+        List<String> categories = new ArrayList<>();
+        Cursor[] columns = new Cursor[COLUMNS];
+        long total = 0;
+        while (true) {
+            long rows = readVarLong(in);
+            if (rows == 0) return total;
+            if (rows > BLOCK_ROWS) throw new IOException("Corrupt block of " + rows + " rows");
+
+            long added = readVarLong(in);
+            for (long i = 0; i < added; i++) {
+                categories.add(new String(readBytes(in), StandardCharsets.UTF_8));
+            }
+            for (int c = 0; c < COLUMNS; c++) {
+                columns[c] = new Cursor(readBytes(in));
+            }
+
+            long date = 0;
+            byte[] id = new byte[12];
+            for (int r = 0; r < rows; r++) {
+                columns[0].read(id);
+                date += zigzagDecode(columns[1].varLong());
+                long amount = zigzagDecode(columns[2].varLong());
+                long category = columns[3].varLong();
+                if (category >= categories.size()) throw new IOException("Corrupt category index " + category);
+                String description = columns[4].text();
+
+                Expense expense = new Expense(amount, categories.get((int) category), description,
+                        date != NO_DATE ? new Date(date) : null);
+                if (!Arrays.equals(id, NO_ID)) expense.setId(new ObjectId(id));
+                action.accept(expense);
+            }
+            total += rows;
+        }
+    }
+
+    /**
+     * Collects rows into column buffers and writes them a block at a time.
+     */
+    static final class Writer implements ExportFormat.RowWriter {
+        private final ChannelOutput out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<byte[]> newCategories = new ArrayList<>();
+        private final Column ids = new Column(BLOCK_ROWS * 12);
+        private final Column dates = new Column(BLOCK_ROWS * 4);
+        private final Column amounts = new Column(BLOCK_ROWS * 3);
+        private final Column categories = new Column(BLOCK_ROWS);
+        private final Column descriptions = new Column(BLOCK_TEXT_BYTES + 4096);
+        private int rows;
+        private long lastDate;
+        private boolean started;
+
+        Writer(ChannelOutput out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Expense expense) throws IOException {
+            if (!started) writeHeader();
+            ids.write(expense.getId() != null ? expense.getId().toByteArray() : NO_ID);
+            long date = expense.getDate() != null ? expense.getDate().getTime() : NO_DATE;
+            dates.writeVarLong(zigzagEncode(rows == 0 ? date : date - lastDate));
+            lastDate = date;
+            amounts.writeVarLong(zigzagEncode(expense.getAmountCents()));
+            categories.writeVarLong(categoryIndex(expense.getCategory()));
+            byte[] description = bytes(expense.getDescription());
+            descriptions.writeVarLong(description.length);
+            descriptions.write(description);
+            rows++;
+            if (rows == BLOCK_ROWS || descriptions.length >= BLOCK_TEXT_BYTES) {
+                writeBlock();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!started) writeHeader();
+            if (rows > 0) writeBlock();
+            out.writeVarLong(0);
+            out.finish();
+        }
+
+        private void writeHeader() throws IOException {
+            out.write(MAGIC);
+            out.write(VERSION);
+            started = true;
+        }
+
+        private int categoryIndex(String category) {
+            String name = category != null ? category : "";
+            Integer index = dictionary.get(name);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(name, index);
+                newCategories.add(bytes(name));
+            }
+            return index;
+        }
+
+        private void writeBlock() throws IOException {
+            out.writeVarLong(rows);
+            out.writeVarLong(newCategories.size());
+            for (byte[] name : newCategories) {
+                out.writeVarLong(name.length);
+                out.write(name);
+            }
+            newCategories.clear();
+            ids.drainTo(out);
+            dates.drainTo(out);
+            amounts.drainTo(out);
+            categories.drainTo(out);
+            descriptions.drainTo(out);
+            rows = 0;
+        }
+    }
+
+    /**
+     * Growable byte buffer for one column of the current block.
+     */
+    private static final class Column {
+        private byte[] bytes;
+        private int length;
+
+        Column(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        // Writes the length and the bytes, then empties the column for the next block
+        void drainTo(ChannelOutput out) throws IOException {
+            out.writeVarLong(length);
+            out.write(bytes, 0, length);
+            length = 0;
+        }
+
+        private void ensure(int more) {
+            if (length + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + more));
+            }
+        }
+    }
+
+    /**
+     * Read position in one column of a block.
+     */
+    private static final class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        void read(byte[] into) throws IOException {
+            need(into.length);
+            System.arraycopy(bytes, position, into, 0, into.length);
+            position += into.length;
+        }
+
+        long varLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                need(1);
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("Corrupt varint");
+        }
+
+        String text() throws IOException {
+            long length = varLong();
+            need(length);
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+
+        private void need(long n) throws IOException {
+            if (n < 0 || n > bytes.length - position) throw new IOException("Column ends early");
+        }
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length > MAX_COLUMN_BYTES) throw new IOException("Corrupt length " + length);
+        byte[] bytes = in.readNBytes((int) length);
+        if (bytes.length != length) throw new EOFException("Export ends early");
+        return bytes;
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Export ends early");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Corrupt varint");
+    }
+
+    private static byte[] bytes(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : NO_BYTES;
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Writes expenses as UTF-8 CSV with the header {@code date,amount,category,description}.
+ *
+ * Dates are local {@code yyyy-MM-dd HH:mm:ss}, with {@code .SSS} only when there are
+ * milliseconds; amounts are plain decimals such as {@code 1234.50}. Text containing a
+ * comma, quote, line break or edge space is quoted, so the file reads back through
+ * {@link ExpenseImporter} as the same expenses; only times in the hour repeated when
+ * clocks go back read back as the first of the two. An expense without a date gets an
+ * empty date field, which the importer reports as a bad row rather than guessing one. Bytes are written straight into the
+ * output buffer; the date of the current day and the zone offset in force are kept,
+ * since a scan moves forward through time.
+ */
+final class CsvExportWriter implements ExportFormat.RowWriter {
+
+    private static final byte[] HEADER = "date,amount,category,description\n".getBytes(StandardCharsets.US_ASCII);
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final ChannelOutput out;
+    private final ZoneRules rules;
+    private final byte[] digits = new byte[20];
+
+    // Offset in force for [offsetFrom, offsetTo)
+    private long offsetFrom = 1;
+    private long offsetTo = 0;
+    private long offsetMillis;
+
+    // "yyyy-MM-dd " of cachedDay
+    private long cachedDay = Long.MIN_VALUE;
+    private final byte[] dayText = new byte[11];
+
+    private boolean started;
+
+    CsvExportWriter(ChannelOutput out, ZoneId zone) {
+        this.out = out;
+        this.rules = zone.getRules();
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        if (!started) {
+            out.write(HEADER);
+            started = true;
+        }
+        if (expense.getDate() != null) {
+            writeDate(expense.getDate().getTime());
+        }
+        out.write(',');
+        writeAmount(expense.getAmountCents());
+        out.write(',');
+        writeText(expense.getCategory());
+        out.write(',');
+        writeText(expense.getDescription());
+        out.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!started) out.write(HEADER);
+        out.finish();
+    }
+
+    private void writeDate(long millis) throws IOException {
+        if (millis < offsetFrom || millis >= offsetTo) {
+            findOffset(millis);
+        }
+        long local = millis + offsetMillis;
+        long day = Math.floorDiv(local, DAY_MILLIS);
+        if (day != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            int year = date.getYear();
+            if (year < 0 || year > 9999) {
+                out.write(date.toString().getBytes(StandardCharsets.US_ASCII));
+                out.write(' ');
+                writeTime(Math.floorMod(local, DAY_MILLIS));
+                return;
+            }
+            put4(dayText, 0, year);
+            dayText[4] = '-';
+            put2(dayText, 5, date.getMonthValue());
+            dayText[7] = '-';
+            put2(dayText, 8, date.getDayOfMonth());
+            dayText[10] = ' ';
+            cachedDay = day;
+        }
+        out.write(dayText);
+        writeTime(Math.floorMod(local, DAY_MILLIS));
+    }
+
+    // HH:mm:ss[.SSS]
+    private void writeTime(long millisOfDay) throws IOException {
+        int seconds = (int) (millisOfDay / 1000);
+        int millis = (int) (millisOfDay % 1000);
+        put2(digits, 0, seconds / 3600);
+        digits[2] = ':';
+        put2(digits, 3, seconds / 60 % 60);
+        digits[5] = ':';
+        put2(digits, 6, seconds % 60);
+        int length = 8;
+        if (millis != 0) {
+            digits[8] = '.';
+            digits[9] = (byte) ('0' + millis / 100);
+            put2(digits, 10, millis % 100);
+            length = 12;
+        }
+        out.write(digits, 0, length);
+    }
+
+    private void findOffset(long millis) {
+        Instant instant = Instant.ofEpochMilli(millis);
+        offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+        ZoneOffsetTransition previous = rules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        offsetFrom = previous != null ? previous.toEpochSecond() * 1000 : Long.MIN_VALUE;
+        offsetTo = next != null ? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+    }
+
+    private void writeAmount(long cents) throws IOException {
+        if (cents < 0) out.write('-');
+        // Negated rather than Math.abs so Long.MIN_VALUE keeps its digits
+        long rest = cents < 0 ? cents : -cents;
+        int minor = (int) -(rest % 100);
+        rest /= 100;
+        int p = digits.length;
+        do {
+            digits[--p] = (byte) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        out.write(digits, p, digits.length - p);
+        out.write('.');
+        out.write('0' + minor / 10);
+        out.write('0' + minor % 10);
+    }
+
+    private void writeText(String text) throws IOException {
+        if (text == null || text.isEmpty()) return;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!needsQuotes(bytes)) {
+            out.write(bytes);
+            return;
+        }
+        out.write('"');
+        int from = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '"') {
+                out.write(bytes, from, i + 1 - from);
+                from = i; // Written again, doubling it
+            }
+        }
+        out.write(bytes, from, bytes.length - from);
+        out.write('"');
+    }
+
+    private static boolean needsQuotes(byte[] bytes) {
+        if (Fields.isSpace(bytes[0]) || Fields.isSpace(bytes[bytes.length - 1])) return true;
+        for (byte b : bytes) {
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') return true;
+        }
+        return false;
+    }
+
+    private static void put2(byte[] to, int at, int value) {
+        to[at] = (byte) ('0' + value / 10);
+        to[at + 1] = (byte) ('0' + value % 10);
+    }
+
+    private static void put4(byte[] to, int at, int value) {
+        put2(to, at, value / 100);
+        put2(to, at + 2, value % 100);
+    }
+}
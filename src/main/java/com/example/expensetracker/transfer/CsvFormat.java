@@ -0,0 +1,378 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Delimited text with a header row, as exported by banks, spreadsheets and SpendWise.
+ *
+ * The delimiter ({@code ,}, {@code ;}, tab or {@code |}) is taken from the header, and
+ * columns are found by name: a date column, and either an amount column or debit
+ * (withdrawal) and credit (deposit) columns, plus optional category and description
+ * (narration, details, memo...) columns. Fields may be quoted, with {@code ""} for a
+ * quote and line breaks inside quotes. Text is UTF-8.
+ *
+ * A positive amount is an expense; with {@code expensesNegative}, as in most bank
+ * exports, a negative one is. Rows going the other way, and credits, are skipped.
+ * Without a category column, or where it is empty, the category comes from the
+ * {@link CategoryRules}.
+ */
+final class CsvFormat implements ImportFormat {
+
+    private static final byte QUOTE = '"';
+    private static final byte[] DELIMITERS = {',', ';', '\t', '|'};
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    // Longest description kept; anything longer is cut
+    private static final int MAX_DESCRIPTION_BYTES = 4096;
+
+    private final boolean monthFirst;
+    private final boolean expensesNegative;
+
+    // Set by start()
+    private byte delimiter = ',';
+    private int columns;
+    private int required;
+    private int dateColumn = -1;
+    private int amountColumn = -1;
+    private int debitColumn = -1;
+    private int creditColumn = -1;
+    private int categoryColumn = -1;
+    private int descriptionColumn = -1;
+
+    CsvFormat(boolean monthFirst, boolean expensesNegative) {
+        this.monthFirst = monthFirst;
+        this.expensesNegative = expensesNegative;
+    }
+
+    @Override
+    public String name() {
+        return "CSV";
+    }
+
+    @Override
+    public int start(byte[] buf, int from, int to) {
+        if (Fields.indexOf(buf, from, Math.min(to, from + BOM.length), BOM) == from) {
+            from += BOM.length;
+        }
+        int end = firstRecordEnd(buf, from, to);
+        delimiter = guessDelimiter(buf, from, end);
+
+        Splitter splitter = new Splitter(delimiter, 256);
+        splitter.split(buf, from, end);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < splitter.fields; i++) {
+            names.add(Fields.decode(buf, splitter.starts[i], splitter.ends[i], splitter.escaped[i],
+                    new byte[splitter.ends[i] - splitter.starts[i]], StandardCharsets.UTF_8));
+        }
+        columns = names.size();
+        for (int i = 0; i < columns; i++) {
+            mapColumn(i, names.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", ""));
+        }
+        if (dateColumn < 0) {
+            throw new IllegalArgumentException("No date column in the header: " + names);
+        }
+        if (amountColumn < 0 && debitColumn < 0) {
+            throw new IllegalArgumentException("No amount or debit column in the header: " + names);
+        }
+        required = 1 + Math.max(Math.max(dateColumn, amountColumn), Math.max(Math.max(debitColumn, creditColumn),
+                Math.max(categoryColumn, descriptionColumn)));
+        return end;
+    }
+
+    // End of the header: the first line break outside quotes, or the end of the input
+    private static int firstRecordEnd(byte[] buf, int from, int to) {
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == QUOTE) {
+                quoted = !quoted;
+            } else if (buf[i] == '\n' && !quoted) {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    private void mapColumn(int index, String name) {
+        if (name.contains("debit") || name.contains("withdrawal")) {
+            if (debitColumn < 0) debitColumn = index;
+        } else if (name.contains("credit") || name.contains("deposit")) {
+            if (creditColumn < 0) creditColumn = index;
+        } else if (name.contains("date")) {
+            if (dateColumn < 0) dateColumn = index;
+        } else if (name.contains("amount") || name.equals("amt")) {
+            if (amountColumn < 0) amountColumn = index;
+        } else if (name.contains("category")) {
+            if (categoryColumn < 0) categoryColumn = index;
+        } else if (name.contains("description") || name.contains("narration") || name.contains("particular")
+                || name.contains("detail") || name.contains("memo") || name.contains("remark")
+                || name.equals("payee") || name.equals("merchant") || name.equals("name") || name.startsWith("note")) {
+            if (descriptionColumn < 0) descriptionColumn = index;
+        }
+    }
+
+    // The candidate that occurs most often outside quotes in the header
+    private static byte guessDelimiter(byte[] buf, int from, int to) {
+        int[] counts = new int[DELIMITERS.length];
+        boolean quoted = false;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b == QUOTE) quoted = !quoted;
+            if (quoted) continue;
+            for (int d = 0; d < DELIMITERS.length; d++) {
+                if (b == DELIMITERS[d]) counts[d]++;
+            }
+        }
+        int best = 0;
+        for (int d = 1; d < DELIMITERS.length; d++) {
+            if (counts[d] > counts[best]) best = d;
+        }
+        return DELIMITERS[best];
+    }
+
+    @Override
+    public int boundary(byte[] buf, int from, int to, boolean endOfInput) {
+        if (endOfInput) return to;
+        // Chunks always start outside quotes, so the state is known from here on
+        boolean quoted = false;
+        int end = from;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b == QUOTE) {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public RecordParser newParser(CategoryRules rules, ZoneId zone) {
+        return new Parser(rules, zone);
+    }
+
+    // ========== Parsing ==========
+
+    /**
+     * Splits one record into field bounds without copying.
+     */
+    private static final class Splitter {
+        final byte delimiter;
+        final int[] starts;
+        final int[] ends;
+        final boolean[] escaped;
+        int fields;
+        int lines;
+
+        Splitter(byte delimiter, int maxFields) {
+            this.delimiter = delimiter;
+            this.starts = new int[maxFields];
+            this.ends = new int[maxFields];
+            this.escaped = new boolean[maxFields];
+        }
+
+        /**
+         * Reads the record at {@code from}; fields past {@code maxFields} are counted but
+         * not kept.
+         *
+         * @return offset of the next record
+         */
+        int split(byte[] buf, int from, int to) {
+            int p = from;
+            fields = 0;
+            lines = 0;
+            while (true) {
+                int start;
+                int end;
+                boolean hasEscapes = false;
+                if (p < to && buf[p] == QUOTE) {
+                    start = ++p;
+                    while (p < to) {
+                        byte b = buf[p];
+                        if (b == QUOTE) {
+                            if (p + 1 < to && buf[p + 1] == QUOTE) {
+                                hasEscapes = true;
+                                p += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (b == '\n') lines++;
+                        p++;
+                    }
+                    end = p;
+                    if (p < to) p++; // Closing quote
+                    while (p < to && buf[p] != delimiter && buf[p] != '\n') p++;
+                } else {
+                    start = p;
+                    while (p < to && buf[p] != delimiter && buf[p] != '\n') p++;
+                    end = Fields.trimEnd(buf, start, p);
+                    start = Fields.trimStart(buf, start, end);
+                }
+                if (fields < starts.length) {
+                    starts[fields] = start;
+                    ends[fields] = end;
+                    escaped[fields] = hasEscapes;
+                }
+                fields++;
+                if (p < to && buf[p] == delimiter) {
+                    p++;
+                    continue;
+                }
+                if (p < to) {
+                    p++; // Line break
+                    lines++;
+                }
+                return p;
+            }
+        }
+    }
+
+    /**
+     * Category names seen in the category column, so each distinct name is decoded once.
+     */
+    private static final class Names {
+        private static final int CAPACITY = 256;
+
+        private final byte[][] keys = new byte[CAPACITY][];
+        private final String[] values = new String[CAPACITY];
+        private int size;
+
+        String get(byte[] buf, int from, int to) {
+            int hash = 0x811C9DC5;
+            for (int i = from; i < to; i++) {
+                hash = (hash ^ buf[i]) * 0x01000193;
+            }
+            int mask = CAPACITY - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    String name = new String(buf, from, to - from, StandardCharsets.UTF_8);
+                    if (size < CAPACITY / 2) {
+                        keys[slot] = Arrays.copyOfRange(buf, from, to);
+                        values[slot] = name;
+                        size++;
+                    }
+                    return name;
+                }
+                if (Arrays.equals(key, 0, key.length, buf, from, to)) {
+                    return values[slot];
+                }
+            }
+        }
+    }
+
+    private final class Parser implements RecordParser {
+        private final CategoryRules rules;
+        private final DateReader dates;
+        private final Splitter splitter = new Splitter(delimiter, columns);
+        private final Names names = new Names();
+        private final byte[] scratch = new byte[MAX_DESCRIPTION_BYTES];
+
+        Parser(CategoryRules rules, ZoneId zone) {
+            this.rules = rules;
+            this.dates = new DateReader(zone, monthFirst);
+        }
+
+        @Override
+        public void parse(byte[] buf, int from, int to, long firstLine, RecordSink sink) {
+            long line = firstLine;
+            int p = from;
+            while (p < to) {
+                p = splitter.split(buf, p, to);
+                long recordLine = line;
+                line += splitter.lines;
+                if (splitter.fields == 1 && splitter.starts[0] == splitter.ends[0]) {
+                    continue; // Blank line
+                }
+                record(buf, recordLine, sink);
+            }
+        }
+
+        private void record(byte[] buf, long line, RecordSink sink) {
+            int[] starts = splitter.starts;
+            int[] ends = splitter.ends;
+            if (splitter.fields < required) {
+                sink.reject(line, "Expected " + required + " fields, found " + splitter.fields);
+                return;
+            }
+
+            long millis = dates.parse(buf, starts[dateColumn], ends[dateColumn]);
+            if (millis == DateReader.INVALID) {
+                sink.reject(line, sink.wantsDetail()
+                        ? "Invalid date '" + Fields.text(buf, starts[dateColumn], ends[dateColumn]) + "'" : null);
+                return;
+            }
+
+            long cents;
+            if (debitColumn >= 0) {
+                long debit = Fields.parseAmount(buf, starts[debitColumn], ends[debitColumn]);
+                long credit = creditColumn >= 0
+                        ? Fields.parseAmount(buf, starts[creditColumn], ends[creditColumn]) : Fields.EMPTY;
+                if (debit == Fields.INVALID || credit == Fields.INVALID) {
+                    int column = debit == Fields.INVALID ? debitColumn : creditColumn;
+                    sink.reject(line, sink.wantsDetail()
+                            ? "Invalid amount '" + Fields.text(buf, starts[column], ends[column]) + "'" : null);
+                    return;
+                }
+                if (debit != Fields.EMPTY && debit != 0) {
+                    cents = Math.abs(debit);
+                } else if (credit != Fields.EMPTY) {
+                    sink.skip();
+                    return;
+                } else {
+                    sink.reject(line, "No amount");
+                    return;
+                }
+            } else {
+                long amount = Fields.parseAmount(buf, starts[amountColumn], ends[amountColumn]);
+                if (amount == Fields.EMPTY) {
+                    sink.reject(line, "No amount");
+                    return;
+                }
+                if (amount == Fields.INVALID) {
+                    sink.reject(line, sink.wantsDetail()
+                            ? "Invalid amount '" + Fields.text(buf, starts[amountColumn], ends[amountColumn]) + "'" : null);
+                    return;
+                }
+                cents = expensesNegative ? -amount : amount;
+                if (cents <= 0) {
+                    sink.skip();
+                    return;
+                }
+            }
+
+            String description = "";
+            int descriptionFrom = 0;
+            int descriptionTo = 0;
+            if (descriptionColumn >= 0) {
+                descriptionFrom = starts[descriptionColumn];
+                descriptionTo = Math.min(ends[descriptionColumn], descriptionFrom + MAX_DESCRIPTION_BYTES);
+                description = Fields.decode(buf, descriptionFrom, descriptionTo, splitter.escaped[descriptionColumn],
+                        scratch, StandardCharsets.UTF_8);
+            }
+
+            String category = null;
+            if (categoryColumn >= 0 && starts[categoryColumn] < ends[categoryColumn]) {
+                category = splitter.escaped[categoryColumn]
+                        ? Fields.decode(buf, starts[categoryColumn],
+                                Math.min(ends[categoryColumn], starts[categoryColumn] + MAX_DESCRIPTION_BYTES),
+                                true, scratch, StandardCharsets.UTF_8)
+                        : names.get(buf, starts[categoryColumn], ends[categoryColumn]);
+            }
+            if (category == null) {
+                category = rules.categorize(buf, descriptionFrom, descriptionTo);
+            }
+
+            sink.accept(new Expense(cents, category, description, new Date(millis)));
+        }
+    }
+}
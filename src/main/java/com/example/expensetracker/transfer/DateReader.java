@@ -0,0 +1,238 @@
+package com.example.expensetracker.transfer;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Turns date fields into epoch millis straight from the bytes.
+ *
+ * Accepts {@code 2024-01-31}, {@code 2024/01/31}, {@code 20240131}, {@code 31/01/2024},
+ * {@code 31-01-24}, {@code 31.01.2024}, {@code 31 Jan 2024} and {@code 31-Jan-2024},
+ * each optionally followed by a time ({@code T14:05}, {@code 14:05:09.250}). All-numeric
+ * dates with the year last are day first unless {@code monthFirst}. Times are local wall
+ * clock time in {@code zone}; a date without one is midnight. Statements are mostly in
+ * date order, so the start of the last day seen is kept and the time zone is only
+ * consulted when the day changes, or for every time on a day whose offset changes.
+ *
+ * One reader per parsing thread; not thread-safe.
+ */
+final class DateReader {
+
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final byte[][] MONTHS = {
+            "jan".getBytes(), "feb".getBytes(), "mar".getBytes(), "apr".getBytes(),
+            "may".getBytes(), "jun".getBytes(), "jul".getBytes(), "aug".getBytes(),
+            "sep".getBytes(), "oct".getBytes(), "nov".getBytes(), "dec".getBytes()};
+
+    private static final int MIN_YEAR = 1900;
+    private static final int MAX_YEAR = 2200;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final ZoneId zone;
+    private final boolean monthFirst;
+
+    private long cachedDay = Long.MIN_VALUE;
+    private long cachedMidnight;
+    // The cached day is not 24 hours long, e.g. daylight saving starts or ends on it
+    private boolean cachedDayShifts;
+
+    // Cursor of the field being read
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    DateReader(ZoneId zone, boolean monthFirst) {
+        this.zone = zone;
+        this.monthFirst = monthFirst;
+    }
+
+    /**
+     * @return epoch millis, or {@link #INVALID}
+     */
+    long parse(byte[] buf, int from, int to) {
+        this.buf = buf;
+        this.pos = Fields.trimStart(buf, from, to);
+        this.end = Fields.trimEnd(buf, pos, to);
+
+        int start = pos;
+        long first = number(8);
+        int firstDigits = pos - start;
+        if (first < 0) return INVALID;
+        int year;
+        int month;
+        int day;
+        if (firstDigits == 8) {
+            // 20240131
+            year = (int) (first / 10_000);
+            month = (int) (first / 100 % 100);
+            day = (int) (first % 100);
+        } else if (firstDigits == 4) {
+            // 2024-01-31
+            year = (int) first;
+            if (!separator()) return INVALID;
+            month = (int) number(2);
+            if (!separator()) return INVALID;
+            day = (int) number(2);
+        } else if (firstDigits <= 2) {
+            if (!separator()) return INVALID;
+            int second = monthName();
+            boolean named = second > 0;
+            if (!named) second = (int) number(2);
+            if (!separator()) return INVALID;
+            int yearStart = pos;
+            year = (int) number(4);
+            if (pos - yearStart == 2) year += 2000;
+            else if (pos - yearStart != 4) return INVALID;
+            if (named || !monthFirst) {
+                day = (int) first;
+                month = second;
+            } else {
+                month = (int) first;
+                day = second;
+            }
+        } else {
+            return INVALID;
+        }
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        long timeOfDay = time();
+        if (timeOfDay < 0) return INVALID;
+        return toMillis(epochDay(year, month, day), timeOfDay);
+    }
+
+    /**
+     * Parses an OFX date-time, {@code YYYYMMDD[HHMMSS[.XXX]][[offset:TZ]]}. The time
+     * zone bracket is ignored: the time is taken as written, like every other date.
+     *
+     * @return epoch millis, or {@link #INVALID}
+     */
+    long parseOfx(byte[] buf, int from, int to) {
+        this.buf = buf;
+        this.pos = Fields.trimStart(buf, from, to);
+        this.end = Fields.trimEnd(buf, pos, to);
+        int start = pos;
+        long date = number(8);
+        if (pos - start != 8) return INVALID;
+        int year = (int) (date / 10_000);
+        int month = (int) (date / 100 % 100);
+        int day = (int) (date % 100);
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        long timeOfDay = 0;
+        start = pos;
+        long clock = number(6);
+        if (pos - start == 6) {
+            int hours = (int) (clock / 10_000);
+            int minutes = (int) (clock / 100 % 100);
+            int seconds = (int) (clock % 100);
+            if (hours > 23 || minutes > 59 || seconds > 59) return INVALID;
+            timeOfDay = ((hours * 60L + minutes) * 60 + seconds) * 1000;
+        } else if (pos != start) {
+            return INVALID;
+        }
+        return toMillis(epochDay(year, month, day), timeOfDay);
+    }
+
+    // ========== Pieces ==========
+
+    // Up to maxDigits digits as a number, or -1 if there are none
+    private long number(int maxDigits) {
+        long value = 0;
+        int start = pos;
+        while (pos < end && pos - start < maxDigits && Fields.isDigit(buf[pos])) {
+            value = value * 10 + (buf[pos++] - '0');
+        }
+        return pos == start ? -1 : value;
+    }
+
+    private boolean separator() {
+        if (pos >= end) return false;
+        byte b = buf[pos];
+        if (b != '-' && b != '/' && b != '.' && b != ' ') return false;
+        pos++;
+        return true;
+    }
+
+    // 1-12 for a month name or its first three letters, 0 if there is none here
+    private int monthName() {
+        if (pos + 3 > end || !Fields.isLetter(buf[pos])) return 0;
+        for (int m = 0; m < MONTHS.length; m++) {
+            if (Fields.startsWithIgnoreCase(buf, pos, end, MONTHS[m])) {
+                pos += 3;
+                while (pos < end && Fields.isLetter(buf[pos])) pos++; // "January", "Sept"
+                return m + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Optional time after the date, in millis; 0 without one, -1 if malformed
+    private long time() {
+        if (pos >= end) return 0;
+        if (buf[pos] != 'T' && buf[pos] != ' ') return -1;
+        pos++;
+        long hours = number(2);
+        if (hours < 0 || hours > 23 || pos >= end || buf[pos++] != ':') return -1;
+        long minutes = number(2);
+        if (minutes < 0 || minutes > 59) return -1;
+        long seconds = 0;
+        long millis = 0;
+        if (pos < end && buf[pos] == ':') {
+            pos++;
+            seconds = number(2);
+            if (seconds < 0 || seconds > 59) return -1;
+            if (pos < end && buf[pos] == '.') {
+                pos++;
+                int start = pos;
+                millis = number(3);
+                if (millis < 0) return -1;
+                for (int digits = pos - start; digits < 3; digits++) millis *= 10;
+                while (pos < end && Fields.isDigit(buf[pos])) pos++; // Beyond millis
+            }
+        }
+        // Trailing zone such as Z or +05:30 is ignored, like the OFX bracket
+        return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+    }
+
+    private long toMillis(long epochDay, long timeOfDay) {
+        if (epochDay != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            cachedMidnight = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedDayShifts = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - cachedMidnight != DAY_MILLIS;
+            cachedDay = epochDay;
+        }
+        if (!cachedDayShifts) return cachedMidnight + timeOfDay;
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay().plus(timeOfDay, ChronoUnit.MILLIS)
+                .atZone(zone).toInstant().toEpochMilli();
+    }
+
+    // ========== Calendar ==========
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Streams expenses from a repository to a channel as CSV or {@link ColumnarFormat}.
+ *
+ * Rows come from {@link ExpenseRepository#scan}, oldest first, which reads the store a
+ * cursor batch at a time (see {@code spendwise.mongo.scanBatchSize}). Each row is encoded
+ * into a fixed-size buffer that is written out, through gzip if asked, whenever it
+ * fills. Nothing is collected along the way, so memory stays flat however many rows are
+ * exported.
+ *
+ * One export at a time per exporter.
+ */
+public class ExpenseExporter {
+
+    private static final long PROGRESS_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    // Rows between clock reads for progress
+    private static final int PROGRESS_ROWS = 1024;
+
+    private final ExpenseRepository repository;
+    private final ExportFormat format;
+    private final boolean compress;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Counter exportedRows = MetricsRegistry.get().counter("export.rows");
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param compress gzip the output
+     */
+    public ExpenseExporter(ExpenseRepository repository, ExportFormat format, boolean compress) {
+        this.repository = repository;
+        this.format = format;
+        this.compress = compress;
+    }
+
+    /**
+     * Exporter for the format and compression named by a file's extension, such as
+     * {@code expenses.csv.gz}.
+     *
+     * @throws IllegalArgumentException if the extension is not an export format
+     */
+    public static ExpenseExporter forFile(ExpenseRepository repository, Path file) {
+        ExportFormat format = ExportFormat.forFile(file);
+        if (format == null) {
+            throw new IllegalArgumentException("Unknown export format for " + file.getFileName()
+                    + "; use .csv or .spx, optionally followed by .gz");
+        }
+        return new ExpenseExporter(repository, format, ExportFormat.isCompressed(file));
+    }
+
+    /**
+     * Exports to a file. The rows go to a temporary file next to it, which replaces
+     * {@code file} only once complete; a failed or cancelled export leaves nothing behind.
+     *
+     * @param from     first date included, or null
+     * @param to       first date excluded, or null
+     * @param progress called about four times a second from the calling thread, or null
+     */
+    public ExportProgress exportFile(Path file, Date from, Date to, Consumer<? super ExportProgress> progress)
+            throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        boolean done = false;
+        try {
+            ExportProgress result;
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                result = exportTo(channel, from, to, progress);
+            }
+            if (!result.isCancelled()) {
+                Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+                done = true;
+            }
+            return result;
+        } finally {
+            if (!done) Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Exports expenses dated in {@code [from, to)} to a channel, which is left open.
+     *
+     * @param progress called about four times a second from the calling thread, or null
+     * @return the final counts; cancelled if {@link #cancel()} stopped it
+     */
+    public ExportProgress exportTo(WritableByteChannel channel, Date from, Date to,
+                                   Consumer<? super ExportProgress> progress) throws IOException {
+        cancelled = false;
+        long start = System.nanoTime();
+        long totalRows = from == null && to == null ? repository.countExpenses() : -1;
+        ChannelOutput out = new ChannelOutput(channel, compress);
+        ExportFormat.RowWriter writer = format.newWriter(out, zone);
+        long[] rows = new long[1];
+        long[] lastReport = {start};
+
+        try {
+            repository.scan(from, to, expense -> {
+                if (cancelled) throw Cancelled.INSTANCE;
+                try {
+                    writer.write(expense);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++rows[0] % PROGRESS_ROWS == 0 && progress != null) {
+                    long now = System.nanoTime();
+                    if (now - lastReport[0] >= PROGRESS_NANOS) {
+                        lastReport[0] = now;
+                        progress.accept(new ExportProgress(rows[0], totalRows, out.channelBytes(), now - start, false));
+                    }
+                }
+            });
+            writer.finish();
+        } catch (Cancelled e) {
+            return new ExportProgress(rows[0], totalRows, out.channelBytes(), System.nanoTime() - start, true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportedRows.add(rows[0]);
+        }
+
+        ExportProgress result = new ExportProgress(rows[0], totalRows, out.channelBytes(), System.nanoTime() - start, false);
+        if (progress != null) progress.accept(result);
+        return result;
+    }
+
+    // Stops the running export after the current row
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Unwinds the scan on cancel; carries no stack trace
+    private static final class Cancelled extends RuntimeException {
+        static final Cancelled INSTANCE = new Cancelled();
+
+        private Cancelled() {
+            super(null, null, false, false);
+        }
+    }
+}
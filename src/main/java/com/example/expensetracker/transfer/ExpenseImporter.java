@@ -0,0 +1,467 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.config.AppConfig;
+import com.example.expensetracker.dao.BatchReport;
+import com.example.expensetracker.dao.ExpenseRepository;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.LatencyHistogram;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams a CSV or OFX statement of any size into a repository.
+ *
+ * The calling thread reads the file through a channel into a small pool of fixed-size
+ * chunks, each cut after the last complete record (the rest moves to the next chunk).
+ * Parser threads turn chunks into expenses straight from the bytes and hand them on in
+ * batches; writer threads store each batch with
+ * {@link ExpenseRepository#insertExpenses}. Every hand-over is a bounded queue, so a slow
+ * store holds back the parsers and they hold back the reader: memory stays at the chunk
+ * pool plus a few batches, whatever the size of the file. Records arrive at the store
+ * out of file order; the store keeps them sorted by date anyway.
+ *
+ * Invalid records are counted and the first {@value #MAX_ERRORS} are reported with their
+ * line; the rest of the file carries on. The import stops early when it is cancelled,
+ * when the file cannot be read, or when the store refuses a whole batch. What was stored
+ * until then stays stored.
+ *
+ * One import at a time per importer.
+ */
+public class ExpenseImporter {
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    public static final int DEFAULT_BATCH_SIZE = 5_000;
+    public static final int DEFAULT_WRITERS = 2;
+
+    private static final int MAX_ERRORS = 100;
+    private static final long PROGRESS_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    // Queue markers telling a parser or writer that nothing more is coming
+    private static final Chunk END_OF_CHUNKS = new Chunk(0);
+    private static final List<Expense> END_OF_BATCHES = new ArrayList<>(0);
+
+    private final ExpenseRepository repository;
+    private final CategoryRules rules;
+    private final int parsers;
+    private final int writers;
+    private final int chunkBytes;
+    private final int batchSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private boolean monthFirst;
+    private boolean expensesNegative;
+
+    private final LatencyHistogram writeLatency = MetricsRegistry.get().histogram("import.writeBatch");
+    private final Counter importedRows = MetricsRegistry.get().counter("import.rows");
+
+    private volatile Job running;
+
+    /**
+     * @param parsers    threads parsing chunks
+     * @param writers    threads storing batches
+     * @param chunkBytes read size; also the longest record accepted
+     * @param batchSize  expenses per {@code insertExpenses} call
+     */
+    public ExpenseImporter(ExpenseRepository repository, CategoryRules rules,
+                           int parsers, int writers, int chunkBytes, int batchSize) {
+        if (parsers <= 0 || writers <= 0) throw new IllegalArgumentException("parsers and writers must be positive");
+        if (chunkBytes < 4096) throw new IllegalArgumentException("chunkBytes must be at least 4096");
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+        this.repository = repository;
+        this.rules = rules;
+        this.parsers = parsers;
+        this.writers = writers;
+        this.chunkBytes = chunkBytes;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Importer configured by the {@code spendwise.import.*} keys; loads the category
+     * rules file, if there is one.
+     */
+    public static ExpenseImporter fromConfig(ExpenseRepository repository, AppConfig config) throws IOException {
+        ExpenseImporter importer = new ExpenseImporter(repository,
+                CategoryRules.load(config.getLocalPath("spendwise.import.rules", "import-rules.properties")),
+                config.getInt("spendwise.import.parsers", Math.max(1, Runtime.getRuntime().availableProcessors() - 1)),
+                config.getInt("spendwise.import.writers", DEFAULT_WRITERS),
+                config.getInt("spendwise.import.chunkBytes", DEFAULT_CHUNK_BYTES),
+                config.getInt("spendwise.import.batchSize", DEFAULT_BATCH_SIZE));
+        importer.setMonthFirst(config.getBoolean("spendwise.import.monthFirst", false));
+        importer.setExpensesNegative(config.getBoolean("spendwise.import.expensesNegative", false));
+        return importer;
+    }
+
+    // CSV: read 01/02/2024 as 2 January rather than 1 February
+    public void setMonthFirst(boolean monthFirst) {
+        this.monthFirst = monthFirst;
+    }
+
+    // CSV: negative amounts are expenses and positive ones credits, as in most bank exports
+    public void setExpensesNegative(boolean expensesNegative) {
+        this.expensesNegative = expensesNegative;
+    }
+
+    /**
+     * Imports a file; {@code .gz} files are decompressed on the fly.
+     *
+     * @param progress called about four times a second from the import threads, or null
+     * @throws IOException if the file cannot be opened; later read errors end up in the report
+     */
+    public ImportReport importFile(Path file, Consumer<? super ImportProgress> progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!file.getFileName().toString().endsWith(".gz")) {
+                return run(channel, channel.size(), null, progress);
+            }
+            ReadableByteChannel in = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), 1 << 16));
+            return run(in, channel.size(), () -> {
+                try {
+                    return channel.position();
+                } catch (IOException e) {
+                    return -1;
+                }
+            }, progress);
+        }
+    }
+
+    /**
+     * Imports everything the channel delivers.
+     *
+     * @param totalBytes expected length for progress, or -1
+     */
+    public ImportReport importFrom(ReadableByteChannel in, long totalBytes, Consumer<? super ImportProgress> progress) {
+        return run(in, totalBytes, null, progress);
+    }
+
+    /**
+     * Stops the running import, if any, after the batches already being written.
+     */
+    public void cancel() {
+        Job job = running;
+        if (job != null) job.cancelled = true;
+    }
+
+    private synchronized ImportReport run(ReadableByteChannel in, long totalBytes, LongSupplier position,
+                                          Consumer<? super ImportProgress> progress) {
+        Job job = new Job(in, totalBytes, position, progress);
+        running = job;
+        try {
+            return job.run();
+        } finally {
+            running = null;
+        }
+    }
+
+    // ========== Pipeline ==========
+
+    private static final class Chunk {
+        final byte[] data;
+        int from;
+        int to;
+        long firstLine;
+
+        Chunk(int size) {
+            data = new byte[size];
+        }
+    }
+
+    private final class Job implements ImportFormat.RecordSink {
+        private final ReadableByteChannel in;
+        private final long totalBytes;
+        private final LongSupplier position;
+        private final Consumer<? super ImportProgress> progress;
+        private final long startNanos = System.nanoTime();
+
+        // Empty chunks to read into, and filled ones waiting for a parser
+        private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(parsers + 2);
+        private final BlockingQueue<Chunk> ready = new ArrayBlockingQueue<>(parsers + 2);
+        private final BlockingQueue<List<Expense>> batches = new ArrayBlockingQueue<>(writers * 2);
+        private final List<Thread> parserThreads = new ArrayList<>();
+        private final List<Thread> writerThreads = new ArrayList<>();
+
+        private final LongAdder parsed = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final List<String> errors = new ArrayList<>();
+        private volatile long bytesRead;
+        private long lastProgressNanos;
+
+        private ImportFormat format;
+        private boolean endOfInput;
+        volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        // Batch being filled by the calling parser thread
+        private final ThreadLocal<List<Expense>> batch = new ThreadLocal<>();
+
+        Job(ReadableByteChannel in, long totalBytes, LongSupplier position, Consumer<? super ImportProgress> progress) {
+            this.in = in;
+            this.totalBytes = totalBytes;
+            this.position = position;
+            this.progress = progress;
+            for (int i = 0; i < parsers + 2; i++) {
+                free.add(new Chunk(chunkBytes));
+            }
+        }
+
+        ImportReport run() {
+            try {
+                read();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            } finally {
+                finish();
+            }
+            report(true);
+            List<String> reported;
+            synchronized (errors) {
+                reported = new ArrayList<>(errors);
+            }
+            return new ImportReport(snapshot(), format != null ? format.name() : null, reported, cancelled, failure);
+        }
+
+        private boolean stopped() {
+            return cancelled || failure != null;
+        }
+
+        private void fail(Throwable e) {
+            synchronized (this) {
+                if (failure == null) failure = e;
+            }
+        }
+
+        // ========== Reading (calling thread) ==========
+
+        private void read() throws IOException, InterruptedException {
+            Chunk chunk = free.take();
+            int filled = 0;
+            long line = 1;
+            while (!stopped()) {
+                filled = fill(chunk.data, filled);
+                int from = 0;
+                if (format == null) {
+                    format = ImportFormat.detect(chunk.data, 0, filled, monthFirst, expensesNegative);
+                    from = format.start(chunk.data, 0, filled);
+                    line += Fields.countLines(chunk.data, 0, from);
+                    startThreads();
+                }
+                int end = format.boundary(chunk.data, from, filled, endOfInput);
+                if (end == from && !endOfInput) {
+                    throw new IllegalArgumentException("The record at line " + line + " is longer than " + chunkBytes + " bytes");
+                }
+                Chunk next = endOfInput ? null : free.take();
+                if (next != null) {
+                    System.arraycopy(chunk.data, end, next.data, 0, filled - end);
+                }
+                chunk.from = from;
+                chunk.to = end;
+                chunk.firstLine = line;
+                line += Fields.countLines(chunk.data, from, end);
+                ready.put(chunk);
+                report(false);
+                if (next == null) return;
+                filled -= end;
+                chunk = next;
+            }
+        }
+
+        // Reads until the chunk is full or the input ends; returns the new fill level
+        private int fill(byte[] data, int filled) throws IOException {
+            ByteBuffer target = ByteBuffer.wrap(data, filled, data.length - filled);
+            while (target.hasRemaining()) {
+                int n = in.read(target);
+                if (n < 0) {
+                    endOfInput = true;
+                    break;
+                }
+                if (position == null) bytesRead += n;
+            }
+            if (position != null) bytesRead = position.getAsLong();
+            return target.position();
+        }
+
+        private void startThreads() {
+            for (int i = 0; i < parsers; i++) {
+                ImportFormat.RecordParser parser = format.newParser(rules, zone);
+                Thread thread = new Thread(() -> parse(parser), "import-parser-" + i);
+                thread.setDaemon(true);
+                parserThreads.add(thread);
+                thread.start();
+            }
+            for (int i = 0; i < writers; i++) {
+                Thread thread = new Thread(this::write, "import-writer-" + i);
+                thread.setDaemon(true);
+                writerThreads.add(thread);
+                thread.start();
+            }
+        }
+
+        // Drains the pipeline: parsers first, then the writers behind them
+        private void finish() {
+            try {
+                for (int i = 0; i < parserThreads.size(); i++) {
+                    ready.put(END_OF_CHUNKS);
+                }
+                for (Thread thread : parserThreads) {
+                    thread.join();
+                }
+                for (int i = 0; i < writerThreads.size(); i++) {
+                    batches.put(END_OF_BATCHES);
+                }
+                for (Thread thread : writerThreads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                // Threads are daemons and see the flag; the report says what was stored
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+
+        // ========== Parsing (parser threads) ==========
+
+        private void parse(ImportFormat.RecordParser parser) {
+            try {
+                while (true) {
+                    Chunk chunk = ready.take();
+                    if (chunk == END_OF_CHUNKS) break;
+                    try {
+                        if (!stopped()) parser.parse(chunk.data, chunk.from, chunk.to, chunk.firstLine, this);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    } finally {
+                        free.add(chunk);
+                    }
+                }
+                List<Expense> rest = batch.get();
+                if (rest != null && !rest.isEmpty() && !stopped()) {
+                    batches.put(rest);
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void accept(Expense expense) {
+            List<Expense> current = batch.get();
+            if (current == null) {
+                current = new ArrayList<>(batchSize);
+                batch.set(current);
+            }
+            current.add(expense);
+            parsed.increment();
+            if (current.size() >= batchSize) {
+                batch.set(new ArrayList<>(batchSize));
+                try {
+                    batches.put(current); // Blocks while the writers are behind
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            }
+        }
+
+        @Override
+        public void skip() {
+            skipped.increment();
+        }
+
+        @Override
+        public void reject(long line, String reason) {
+            rejected.increment();
+            if (reason != null) error("line " + line + ": " + reason);
+        }
+
+        @Override
+        public boolean wantsDetail() {
+            synchronized (errors) {
+                return errors.size() < MAX_ERRORS;
+            }
+        }
+
+        private void error(String message) {
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) errors.add(message);
+            }
+        }
+
+        // ========== Writing (writer threads) ==========
+
+        private void write() {
+            try {
+                while (true) {
+                    List<Expense> next = batches.take();
+                    if (next == END_OF_BATCHES) break;
+                    if (stopped()) continue; // Drain so the parsers are not left blocked
+                    store(next);
+                    report(false);
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        }
+
+        private void store(List<Expense> expenses) {
+            long start = System.nanoTime();
+            try {
+                BatchReport result = repository.insertExpenses(expenses);
+                writeLatency.recordSince(start);
+                imported.add(result.getInserted());
+                importedRows.add(result.getInserted());
+                List<BatchReport.Failure> failures = result.getFailures();
+                failed.add(failures.size());
+                for (BatchReport.Failure f : failures) {
+                    if (!wantsDetail()) break;
+                    error("not stored: " + f.getMessage());
+                }
+                if (result.getInserted() == 0 && !failures.isEmpty()) {
+                    fail(new IOException("The store refused a whole batch: " + failures.get(0).getMessage()));
+                }
+            } catch (RuntimeException e) {
+                failed.add(expenses.size());
+                fail(e);
+            }
+        }
+
+        // ========== Progress ==========
+
+        private void report(boolean last) {
+            if (progress == null) return;
+            ImportProgress snapshot;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (!last && now - lastProgressNanos < PROGRESS_NANOS) return;
+                lastProgressNanos = now;
+                snapshot = snapshot();
+            }
+            progress.accept(snapshot);
+        }
+
+        private ImportProgress snapshot() {
+            return new ImportProgress(bytesRead, totalBytes, parsed.sum(), imported.sum(), rejected.sum(),
+                    skipped.sum(), failed.sum(), System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * File formats an {@link ExpenseExporter} can write.
+ *
+ * {@link #CSV} is readable by spreadsheets and by the {@link ExpenseImporter}.
+ * {@link #COLUMNAR} is the compact binary layout described in {@link ColumnarFormat},
+ * several times smaller before compression.
+ */
+public enum ExportFormat {
+
+    CSV("csv") {
+        @Override
+        RowWriter newWriter(ChannelOutput out, ZoneId zone) {
+            return new CsvExportWriter(out, zone);
+        }
+    },
+
+    COLUMNAR("spx") {
+        @Override
+        RowWriter newWriter(ChannelOutput out, ZoneId zone) {
+            return new ColumnarFormat.Writer(out);
+        }
+    };
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    // File extension without the dot, before any ".gz"
+    public String extension() {
+        return extension;
+    }
+
+    abstract RowWriter newWriter(ChannelOutput out, ZoneId zone);
+
+    // Format named by a file's extension, looking past ".gz"; null if not known
+    public static ExportFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        for (ExportFormat format : values()) {
+            if (name.endsWith("." + format.extension)) return format;
+        }
+        return null;
+    }
+
+    public static boolean isCompressed(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /**
+     * Encodes expenses one at a time, in the order they are scanned.
+     */
+    interface RowWriter {
+        void write(Expense expense) throws IOException;
+
+        // Writes anything still held back; the output is complete afterwards
+        void finish() throws IOException;
+    }
+}
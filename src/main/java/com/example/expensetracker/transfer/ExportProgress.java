@@ -0,0 +1,45 @@
+package com.example.expensetracker.transfer;
+
+/**
+ * Snapshot of a running export, and its outcome once {@link ExpenseExporter} returns it.
+ */
+public class ExportProgress {
+
+    private final long rowsWritten;
+    private final long totalRows;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+
+    public ExportProgress(long rowsWritten, long totalRows, long bytesWritten, long elapsedNanos, boolean cancelled) {
+        this.rowsWritten = rowsWritten;
+        this.totalRows = totalRows;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+
+    public long getRowsWritten() { return rowsWritten; }
+    // -1 if unknown, e.g. for a date range
+    public long getTotalRows() { return totalRows; }
+    // Reached the channel so far, after compression
+    public long getBytesWritten() { return bytesWritten; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    // Stopped by ExpenseExporter.cancel(); the output is then incomplete
+    public boolean isCancelled() { return cancelled; }
+
+    // 0..1, or -1 if the row count is unknown
+    public double getFraction() {
+        return totalRows > 0 ? Math.min(1.0, rowsWritten / (double) totalRows) : -1;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rowsWritten * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportProgress{rows=%d, bytes=%d, %.0f rows/s%s}",
+                rowsWritten, bytesWritten, getRowsPerSecond(), cancelled ? ", cancelled" : "");
+    }
+}
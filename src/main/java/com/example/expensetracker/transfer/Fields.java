@@ -0,0 +1,176 @@
+package com.example.expensetracker.transfer;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte-level helpers the import parsers share. Fields are addressed as {@code [from, to)}
+ * ranges of the chunk they were read into, so a value is only turned into a String when
+ * the expense needs one.
+ */
+final class Fields {
+
+    // parseAmount results that are not amounts
+    static final long EMPTY = Long.MIN_VALUE;
+    static final long INVALID = Long.MIN_VALUE + 1;
+
+    // Longest amount accepted, in digits; keeps the cents well inside a long
+    private static final int MAX_DIGITS = 15;
+
+    private Fields() {}
+
+    static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    // ASCII lower case; other bytes unchanged
+    static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    static int trimStart(byte[] buf, int from, int to) {
+        while (from < to && isSpace(buf[from])) from++;
+        return from;
+    }
+
+    static int trimEnd(byte[] buf, int from, int to) {
+        while (to > from && isSpace(buf[to - 1])) to--;
+        return to;
+    }
+
+    static int countLines(byte[] buf, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') lines++;
+        }
+        return lines;
+    }
+
+    // Index of the first occurrence of the ASCII pattern, or -1
+    static int indexOf(byte[] buf, int from, int to, byte[] pattern) {
+        int last = to - pattern.length;
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // Index of the last occurrence of the ASCII pattern, or -1
+    static int lastIndexOf(byte[] buf, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = to - pattern.length; i >= from; i--) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    // Case-insensitive (ASCII) comparison with a lower-case pattern
+    static boolean startsWithIgnoreCase(byte[] buf, int from, int to, byte[] lowerPattern) {
+        if (to - from < lowerPattern.length) return false;
+        for (int j = 0; j < lowerPattern.length; j++) {
+            if (lower(buf[from + j]) != lowerPattern[j]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses an amount such as {@code 1,234.50}, {@code -12}, {@code (7.25)} or
+     * {@code ₹ 99.9} into minor units. A currency symbol or code before or after the
+     * number and thousands separators are ignored; parentheses mean negative.
+     *
+     * @return the amount in minor units, {@link #EMPTY} for a blank field, or
+     *         {@link #INVALID} if the text is not an amount with at most two decimals
+     */
+    static long parseAmount(byte[] buf, int from, int to) {
+        from = trimStart(buf, from, to);
+        to = trimEnd(buf, from, to);
+        if (from == to) return EMPTY;
+        boolean negative = false;
+        // Sign, parenthesis and currency before the first digit
+        while (from < to && !isDigit(buf[from])) {
+            byte b = buf[from];
+            if (b == '.' && from + 1 < to && isDigit(buf[from + 1])) break;
+            if (b == '-' || b == '(') {
+                if (negative) return INVALID;
+                negative = true;
+            } else if (b != '+' && b != '.' && b != '$' && !isSpace(b) && !isLetter(b) && b >= 0) {
+                return INVALID; // Other ASCII punctuation; non-ASCII bytes are currency signs
+            }
+            from++;
+        }
+        long units = 0;
+        int digits = 0;
+        int i = from;
+        boolean decimalComma = false;
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (isDigit(b)) {
+                if (++digits > MAX_DIGITS) return INVALID;
+                units = units * 10 + (b - '0');
+            } else if (b == ',' && digits > 0) {
+                // One or two digits closing the number make the comma a decimal point
+                int end = i + 1;
+                while (end < to && isDigit(buf[end])) end++;
+                if (end - i - 1 <= 2 && end > i + 1 && (end == to || (buf[end] != ',' && buf[end] != '.'))) {
+                    decimalComma = true;
+                    break;
+                }
+            } else {
+                break;
+            }
+        }
+        long fraction = 0;
+        int decimals = 0;
+        if (i < to && (buf[i] == '.' || decimalComma)) {
+            for (i++; i < to && isDigit(buf[i]); i++) {
+                if (decimals < 2) {
+                    fraction = fraction * 10 + (buf[i] - '0');
+                } else if (buf[i] != '0') {
+                    return INVALID; // Below a paisa
+                }
+                decimals++;
+            }
+        }
+        if (digits == 0 && decimals == 0) return INVALID;
+        if (decimals == 1) fraction *= 10;
+        // Closing parenthesis and currency after the number
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b == ')' && negative) continue;
+            if (!isSpace(b) && !isLetter(b) && b >= 0) return INVALID;
+        }
+        long cents = units * 100 + fraction;
+        return negative ? -cents : cents;
+    }
+
+    // Decodes a field, turning the CSV escape "" back into "
+    static String decode(byte[] buf, int from, int to, boolean escapedQuotes, byte[] scratch, Charset charset) {
+        if (!escapedQuotes) return new String(buf, from, to - from, charset);
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            scratch[n++] = buf[i];
+            if (buf[i] == '"' && i + 1 < to && buf[i + 1] == '"') i++;
+        }
+        return new String(scratch, 0, n, charset);
+    }
+
+    // Field text for error messages, cut to a readable length
+    static String text(byte[] buf, int from, int to) {
+        return new String(buf, from, Math.min(to - from, 40), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+
+import java.time.ZoneId;
+
+/**
+ * A statement layout the importer reads: where records start and end in a chunk of
+ * bytes, and how to turn them into expenses.
+ *
+ * The reader calls {@link #start} once on the beginning of the file and then cuts every
+ * chunk at {@link #boundary}, so each chunk handed to a parser holds whole records only.
+ * Parsers run on several threads at once, one {@link RecordParser} per thread.
+ */
+interface ImportFormat {
+
+    // Shown in reports
+    String name();
+
+    /**
+     * Reads what comes before the first record, such as a CSV header.
+     *
+     * @return offset of the first record
+     * @throws IllegalArgumentException if the file cannot be read in this format
+     */
+    int start(byte[] buf, int from, int to);
+
+    /**
+     * @return end of the last complete record in {@code [from, to)}, or {@code from} if
+     *         none is complete yet; at the end of the input everything left counts
+     */
+    int boundary(byte[] buf, int from, int to, boolean endOfInput);
+
+    RecordParser newParser(CategoryRules rules, ZoneId zone);
+
+    /**
+     * OFX/QFX if the file opens like one (SGML or XML), CSV otherwise.
+     */
+    static ImportFormat detect(byte[] buf, int from, int to, boolean monthFirst, boolean expensesNegative) {
+        int i = Fields.trimStart(buf, from, to);
+        if (Fields.indexOf(buf, i, Math.min(to, i + 9), OfxFormat.SGML_HEADER) == i
+                || Fields.indexOf(buf, i, Math.min(to, i + 512), OfxFormat.OFX_TAG) >= 0) {
+            return new OfxFormat();
+        }
+        return new CsvFormat(monthFirst, expensesNegative);
+    }
+
+    /**
+     * Turns whole records into expenses. One per thread; not thread-safe.
+     */
+    interface RecordParser {
+        /**
+         * @param firstLine line number of the first byte at {@code from}, counting from 1
+         */
+        void parse(byte[] buf, int from, int to, long firstLine, RecordSink sink);
+    }
+
+    /**
+     * Receives the outcome of every record.
+     */
+    interface RecordSink {
+        void accept(Expense expense);
+
+        // A valid record that is not an expense, such as a credit
+        void skip();
+
+        void reject(long line, String reason);
+
+        // Whether reject messages are still kept; parsers skip formatting them otherwise
+        boolean wantsDetail();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.expensetracker.transfer;
+
+/**
+ * Snapshot of a running import: how far the file has been read and what became of the
+ * records so far.
+ */
+public class ImportProgress {
+
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long rowsParsed;
+    private final long rowsImported;
+    private final long rowsRejected;
+    private final long rowsSkipped;
+    private final long rowsFailed;
+    private final long elapsedNanos;
+
+    public ImportProgress(long bytesRead, long totalBytes, long rowsParsed, long rowsImported,
+                          long rowsRejected, long rowsSkipped, long rowsFailed, long elapsedNanos) {
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.rowsParsed = rowsParsed;
+        this.rowsImported = rowsImported;
+        this.rowsRejected = rowsRejected;
+        this.rowsSkipped = rowsSkipped;
+        this.rowsFailed = rowsFailed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Of the file on disk, so compressed bytes for a .gz
+    public long getBytesRead() { return bytesRead; }
+    // -1 if unknown
+    public long getTotalBytes() { return totalBytes; }
+    // Valid expenses handed to the writer
+    public long getRowsParsed() { return rowsParsed; }
+    // Stored by the repository
+    public long getRowsImported() { return rowsImported; }
+    // Not valid; see ImportReport.getErrors()
+    public long getRowsRejected() { return rowsRejected; }
+    // Valid, but not expenses (credits)
+    public long getRowsSkipped() { return rowsSkipped; }
+    // Valid, but refused by the repository
+    public long getRowsFailed() { return rowsFailed; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    // 0..1, or -1 if the size is unknown
+    public double getFraction() {
+        return totalBytes > 0 ? Math.min(1.0, bytesRead / (double) totalBytes) : -1;
+    }
+
+    // Stored rows per second since the start
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rowsImported * 1e9 / elapsedNanos : 0;
+    }
+}
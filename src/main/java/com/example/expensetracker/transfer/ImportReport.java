@@ -0,0 +1,43 @@
+package com.example.expensetracker.transfer;
+
+import java.util.List;
+
+/**
+ * Outcome of an import: the final counts, the first problems found, and whether it ran
+ * to the end.
+ */
+public class ImportReport extends ImportProgress {
+
+    private final String format;
+    private final List<String> errors;
+    private final boolean cancelled;
+    private final Throwable failure;
+
+    public ImportReport(ImportProgress totals, String format, List<String> errors, boolean cancelled, Throwable failure) {
+        super(totals.getBytesRead(), totals.getTotalBytes(), totals.getRowsParsed(), totals.getRowsImported(),
+                totals.getRowsRejected(), totals.getRowsSkipped(), totals.getRowsFailed(), totals.getElapsedNanos());
+        this.format = format;
+        this.errors = List.copyOf(errors);
+        this.cancelled = cancelled;
+        this.failure = failure;
+    }
+
+    // "CSV" or "OFX"; null if the file could not be read at all
+    public String getFormat() { return format; }
+    // "line N: reason", for the first rejected and failed rows only
+    public List<String> getErrors() { return errors; }
+    public boolean isCancelled() { return cancelled; }
+    // Why the import stopped early, or null
+    public Throwable getFailure() { return failure; }
+
+    public boolean isComplete() {
+        return !cancelled && failure == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportReport{format=%s, imported=%d, rejected=%d, skipped=%d, failed=%d, %.0f rows/s%s}",
+                format, getRowsImported(), getRowsRejected(), getRowsSkipped(), getRowsFailed(), getRowsPerSecond(),
+                cancelled ? ", cancelled" : failure != null ? ", failed: " + failure.getMessage() : "");
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * OFX and QFX bank statements, both the SGML flavour (1.x, leaf elements without end
+ * tags) and XML (2.x).
+ *
+ * Each {@code <STMTTRN>} is one record. A negative {@code TRNAMT} is money leaving the
+ * account and becomes an expense; credits are skipped. The description is {@code NAME},
+ * with {@code MEMO} appended when both are present, and the category comes from the
+ * {@link CategoryRules}. {@code DTPOSTED} is read as written, ignoring its time zone.
+ * Text is UTF-8 unless the SGML header declares {@code CHARSET:1252}.
+ */
+final class OfxFormat implements ImportFormat {
+
+    static final byte[] SGML_HEADER = "OFXHEADER".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] OFX_TAG = "<OFX>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] OPEN = "<STMTTRN>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "</STMTTRN>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TAG_START = "<".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHARSET_1252 = "CHARSET:1252".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TRNAMT = "TRNAMT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DTPOSTED = "DTPOSTED".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NAME = "NAME".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMO = "MEMO".getBytes(StandardCharsets.US_ASCII);
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    @Override
+    public String name() {
+        return "OFX";
+    }
+
+    @Override
+    public int start(byte[] buf, int from, int to) {
+        int body = Fields.indexOf(buf, from, to, OFX_TAG);
+        if (body < 0) {
+            throw new IllegalArgumentException("No <OFX> element near the start of the file");
+        }
+        if (Fields.indexOf(buf, from, body, CHARSET_1252) >= 0) {
+            charset = Charset.forName("windows-1252");
+        }
+        return body;
+    }
+
+    @Override
+    public int boundary(byte[] buf, int from, int to, boolean endOfInput) {
+        if (endOfInput) return to;
+        int close = Fields.lastIndexOf(buf, from, to, CLOSE);
+        int afterClose = close >= 0 ? close + CLOSE.length : from;
+        if (Fields.indexOf(buf, afterClose, to, OPEN) >= 0) {
+            return afterClose; // A transaction is still open
+        }
+        // Nothing open: only a tag cut off at the end may be incomplete
+        int lastTag = Fields.lastIndexOf(buf, afterClose, to, TAG_START);
+        return lastTag >= 0 ? lastTag : to;
+    }
+
+    @Override
+    public RecordParser newParser(CategoryRules rules, ZoneId zone) {
+        return new Parser(rules, zone);
+    }
+
+    private final class Parser implements RecordParser {
+        private final CategoryRules rules;
+        private final DateReader dates;
+
+        // Bounds of the fields of the current transaction; from == -1 when absent
+        private int amountFrom;
+        private int amountTo;
+        private int dateFrom;
+        private int dateTo;
+        private int nameFrom;
+        private int nameTo;
+        private int memoFrom;
+        private int memoTo;
+
+        Parser(CategoryRules rules, ZoneId zone) {
+            this.rules = rules;
+            this.dates = new DateReader(zone, false);
+        }
+
+        @Override
+        public void parse(byte[] buf, int from, int to, long firstLine, RecordSink sink) {
+            long line = firstLine;
+            int p = from;
+            while (true) {
+                int open = Fields.indexOf(buf, p, to, OPEN);
+                if (open < 0) return;
+                int close = Fields.indexOf(buf, open, to, CLOSE);
+                int end = close >= 0 ? close : to;
+                line += Fields.countLines(buf, p, open);
+                transaction(buf, open + OPEN.length, end, line, sink);
+                line += Fields.countLines(buf, open, end);
+                p = close >= 0 ? close + CLOSE.length : to;
+            }
+        }
+
+        private void transaction(byte[] buf, int from, int to, long line, RecordSink sink) {
+            amountFrom = dateFrom = nameFrom = memoFrom = -1;
+            int p = from;
+            while (p < to) {
+                int lt = indexOf(buf, p, to, (byte) '<');
+                if (lt < 0) break;
+                int gt = indexOf(buf, lt, to, (byte) '>');
+                if (gt < 0) break;
+                int valueFrom = gt + 1;
+                int valueTo = valueFrom;
+                while (valueTo < to && buf[valueTo] != '<' && buf[valueTo] != '\n' && buf[valueTo] != '\r') valueTo++;
+                valueTo = Fields.trimEnd(buf, valueFrom, valueTo);
+                valueFrom = Fields.trimStart(buf, valueFrom, valueTo);
+                if (tag(buf, lt + 1, gt, TRNAMT)) {
+                    amountFrom = valueFrom;
+                    amountTo = valueTo;
+                } else if (tag(buf, lt + 1, gt, DTPOSTED)) {
+                    dateFrom = valueFrom;
+                    dateTo = valueTo;
+                } else if (tag(buf, lt + 1, gt, NAME)) {
+                    nameFrom = valueFrom;
+                    nameTo = valueTo;
+                } else if (tag(buf, lt + 1, gt, MEMO)) {
+                    memoFrom = valueFrom;
+                    memoTo = valueTo;
+                }
+                p = Math.max(valueTo, gt + 1);
+            }
+
+            if (amountFrom < 0 || dateFrom < 0) {
+                sink.reject(line, amountFrom < 0 ? "No TRNAMT" : "No DTPOSTED");
+                return;
+            }
+            long amount = Fields.parseAmount(buf, amountFrom, amountTo);
+            if (amount == Fields.INVALID || amount == Fields.EMPTY) {
+                sink.reject(line, sink.wantsDetail() ? "Invalid TRNAMT '" + Fields.text(buf, amountFrom, amountTo) + "'" : null);
+                return;
+            }
+            if (amount >= 0) {
+                sink.skip();
+                return;
+            }
+            long millis = dates.parseOfx(buf, dateFrom, dateTo);
+            if (millis == DateReader.INVALID) {
+                sink.reject(line, sink.wantsDetail() ? "Invalid DTPOSTED '" + Fields.text(buf, dateFrom, dateTo) + "'" : null);
+                return;
+            }
+
+            String description;
+            String category;
+            if (nameFrom >= 0 && nameFrom < nameTo) {
+                description = text(buf, nameFrom, nameTo);
+                category = rules.categorize(buf, nameFrom, nameTo);
+                if (memoFrom >= 0 && memoFrom < memoTo) {
+                    description = description + " - " + text(buf, memoFrom, memoTo);
+                    if (category.equals(rules.fallback())) category = rules.categorize(buf, memoFrom, memoTo);
+                }
+            } else if (memoFrom >= 0) {
+                description = text(buf, memoFrom, memoTo);
+                category = rules.categorize(buf, memoFrom, memoTo);
+            } else {
+                description = "";
+                category = rules.fallback();
+            }
+            sink.accept(new Expense(-amount, category, description, new Date(millis)));
+        }
+
+        private String text(byte[] buf, int from, int to) {
+            String text = new String(buf, from, to - from, charset);
+            if (text.indexOf('&') < 0) return text;
+            return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                    .replace("&apos;", "'").replace("&amp;", "&");
+        }
+    }
+
+    // Whether the tag name in [from, to) is exactly the given one
+    private static boolean tag(byte[] buf, int from, int to, byte[] name) {
+        return to - from == name.length && Fields.indexOf(buf, from, to, name) == from;
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.expensetracker.ui;
+
+import com.example.expensetracker.metrics.MetricsRegistry;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * DiagnosticsDialog - Live view of the application's metrics.
+ *
+ * Shows the latency histograms, counters and gauges of the {@link MetricsRegistry} as a
+ * plain-text table that refreshes every second while the dialog is open. The same text
+ * can be saved to a file, and the histograms and counters can be reset to measure a
+ * single action.
+ */
+public class DiagnosticsDialog extends JDialog {
+
+    // ========== Constants ==========
+
+    /** How often the table is rebuilt while the dialog is visible */
+    private static final int REFRESH_MILLIS = 1_000;
+
+    // ========== Instance Variables ==========
+
+    /** Source of the metrics shown */
+    private final MetricsRegistry registry;
+
+    /** Monospaced text area holding the current dump */
+    private final JTextArea text = new JTextArea(30, 110);
+
+    /** Rebuilds the text while the dialog is showing; stopped when it closes */
+    private final Timer refreshTimer;
+
+    // ========== Constructor ==========
+
+    /**
+     * Creates the dialog; it starts refreshing when shown.
+     *
+     * @param owner    Frame the dialog belongs to
+     * @param registry Metrics to display
+     */
+    public DiagnosticsDialog(Frame owner, MetricsRegistry registry) {
+        super(owner, "Diagnostics", false);
+        this.registry = registry;
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JButton saveBtn = new JButton("Save to File…");
+        saveBtn.addActionListener(e -> saveToFile());
+        JButton resetBtn = new JButton("Reset");
+        resetBtn.setToolTipText("Clear latencies and counters");
+        resetBtn.addActionListener(e -> {
+            registry.reset();
+            refresh();
+        });
+        JButton closeBtn = new JButton("Close");
+        closeBtn.addActionListener(e -> dispose());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        buttons.setBorder(new EmptyBorder(8, 0, 0, 0));
+        buttons.add(saveBtn);
+        buttons.add(resetBtn);
+        buttons.add(closeBtn);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBorder(new EmptyBorder(10, 10, 10, 10));
+        content.add(new JScrollPane(text), BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+        setContentPane(content);
+        pack();
+        setLocationRelativeTo(owner);
+
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+        refresh();
+    }
+
+    // ========== Lifecycle ==========
+
+    @Override
+    public void setVisible(boolean visible) {
+        if (visible) {
+            refresh();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+        super.setVisible(visible);
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    // ========== Actions ==========
+
+    /**
+     * Replaces the text with a fresh dump, keeping the scroll position.
+     */
+    private void refresh() {
+        int caret = text.getCaretPosition();
+        String dump = registry.dump();
+        text.setText(dump);
+        text.setCaretPosition(Math.min(caret, dump.length()));
+    }
+
+    /**
+     * Asks for a file and writes the current dump to it.
+     */
+    private void saveToFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("spendwise-metrics.txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            registry.dumpTo(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this,
+                    "Could not save metrics: " + ex.getMessage(),
+                    "Save Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -1,58 +1,256 @@
 package com.example.expensetracker.ui;
 
-import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.LatencyHistogram;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.ExpenseRow;
+import com.example.expensetracker.model.Money;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * ExpenseTableModel - Custom TableModel for displaying Expense objects in a JTable.
- * Handles formatting of data such as date and amount, and notifies JTable when data changes.
+ * ExpenseTableModel - Virtual TableModel for displaying expense rows in a JTable.
+ *
+ * Each row is an {@link ExpenseRow}, a projected view carrying only the displayed fields;
+ * the full Expense is fetched by id when a row is opened.
+ *
+ * The model only knows the total row count up front. Rows are fetched in fixed-size
+ * blocks the first time the JTable asks for them, kept in a bounded LRU cache, and
+ * the blocks ahead of the current scroll direction are prefetched. While a block is
+ * loading its cells render as placeholders and are repainted once the data arrives.
+ * A block whose load fails is counted, logged and not asked for again until a back-off
+ * delay has passed, which doubles with each failure in a row.
+ *
+ * All state is confined to the Event Dispatch Thread; only {@link BlockLoader#loadBlock}
+ * runs in the background.
  */
 public class ExpenseTableModel extends AbstractTableModel {
 
+    /** Rows fetched per round trip */
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    /** Blocks kept in memory before the least recently used one is dropped */
+    public static final int DEFAULT_MAX_BLOCKS = 30;
+
+    /** Blocks loaded ahead of the scroll direction */
+    public static final int DEFAULT_PREFETCH_BLOCKS = 2;
+
+    /**
+     * Source of row blocks, called off the EDT.
+     */
+    public interface BlockLoader {
+        /**
+         * Loads rows {@code [offset, offset + limit)} of the table.
+         *
+         * @param offset   Index of the first row
+         * @param limit    Maximum number of rows
+         * @param previous Row just before {@code offset} when it is cached, so the loader can
+         *                 continue with a keyset query instead of skipping; null otherwise
+         * @return Rows of the block, in table order
+         */
+        List<ExpenseRow> loadBlock(int offset, int limit, ExpenseRow previous) throws Exception;
+    }
+
+    /** Time from requesting a block to its rows being repainted */
+    private static final LatencyHistogram BLOCK_LATENCY = MetricsRegistry.get().histogram("ui.table.blockLoad");
+
+    /** Block loads that threw */
+    private static final Counter LOAD_FAILURES = MetricsRegistry.get().counter("ui.table.blockLoadFailures");
+
+    /** Back-off before a failed block is requested again, doubled per failure up to the max */
+    private static final int RETRY_MIN_MILLIS = 500;
+    private static final int RETRY_MAX_MILLIS = 30_000;
+
     // Column headers for the JTable
     private final String[] columns = {"Date", "Category", "Description", "Amount"};
 
-    // Formatter for displaying dates
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private final int blockSize;
+    private final int prefetchBlocks;
+    private final Executor executor;
+
+    // Loaded blocks keyed by block index, in access order so the eldest is the LRU one
+    private final Map<Integer, List<ExpenseRow>> blocks;
+
+    // Blocks requested but not yet delivered
+    private final Set<Integer> pending = new HashSet<>();
+
+    // Blocks whose last load failed, until a load of them succeeds
+    private final Map<Integer, Backoff> failed = new HashMap<>();
 
-    // List to hold Expense objects
-    private List<Expense> items = new ArrayList<>();
+    private BlockLoader loader;
+    private int rowCount;
+    private int lastBlock;
+    private int scrollDirection = 1;
+
+    // Bumped on every reset so late results of an older load are discarded
+    private int generation;
+
+    // Amount cells are formatted into this one builder; EDT only
+    private final StringBuilder amountText = new StringBuilder(24);
 
     /**
-     * Sets the list of expenses to be displayed in the table.
-     * Automatically refreshes the table view.
-     *
-     * @param items List of Expense objects
+     * Creates a model with default block sizes and its own background loader thread.
+     */
+    public ExpenseTableModel() {
+        this(DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS, DEFAULT_PREFETCH_BLOCKS, newLoaderThread());
+    }
+
+    /**
+     * @param blockSize      Rows per block
+     * @param maxBlocks      Capacity of the block cache
+     * @param prefetchBlocks Blocks to load ahead of the scroll direction
+     * @param executor       Runs block loads off the EDT
      */
-    public void setItems(List<Expense> items) {
-        if (items != null) {
-            this.items = items;
-        } else {
-            this.items = new ArrayList<>();
+    public ExpenseTableModel(int blockSize, int maxBlocks, int prefetchBlocks, Executor executor) {
+        if (blockSize <= 0 || maxBlocks <= prefetchBlocks) {
+            throw new IllegalArgumentException("Block cache must hold more than the prefetch window");
         }
+        this.blockSize = blockSize;
+        this.prefetchBlocks = prefetchBlocks;
+        this.executor = executor;
+        this.blocks = new LinkedHashMap<>(maxBlocks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<ExpenseRow>> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    /**
+     * Drops all cached rows and starts over with a new row count.
+     * Rows are loaded again as the JTable asks for them.
+     *
+     * @param rowCount Total number of rows
+     * @param loader   Source of row blocks
+     */
+    public void reset(int rowCount, BlockLoader loader) {
+        this.loader = loader;
+        this.rowCount = Math.max(0, rowCount);
+        generation++;
+        blocks.clear();
+        pending.clear();
+        failed.clear();
+        lastBlock = 0;
+        scrollDirection = 1;
         fireTableDataChanged(); // Notify JTable that data has changed
     }
 
     /**
-     * Returns the Expense object at a specific row.
+     * Shows rows known ahead of time, e.g. from a local cache, before a loader is
+     * available. Rows beyond the given ones render as placeholders until the next
+     * {@link #reset}.
+     *
+     * @param rowCount Total number of rows
+     * @param rows     The first rows of the table, in table order
+     */
+    public void preload(int rowCount, List<ExpenseRow> rows) {
+        reset(rowCount, null);
+        int count = Math.min(rows.size(), this.rowCount);
+        for (int from = 0; from < count; from += blockSize) {
+            blocks.put(from / blockSize, new ArrayList<>(rows.subList(from, Math.min(from + blockSize, count))));
+        }
+        if (count > 0) {
+            fireTableRowsUpdated(0, count - 1);
+        }
+    }
+
+    /**
+     * Returns up to {@code max} rows from the top of the table that are currently cached,
+     * stopping at the first block that is not loaded.
+     */
+    public List<ExpenseRow> leadingRows(int max) {
+        List<ExpenseRow> rows = new ArrayList<>();
+        for (int block = 0; rows.size() < max; block++) {
+            List<ExpenseRow> cached = peekBlock(block);
+            if (cached == null) break;
+            rows.addAll(cached.subList(0, Math.min(cached.size(), max - rows.size())));
+            if (cached.size() < blockSize) break;
+        }
+        return rows;
+    }
+
+    /**
+     * Inserts one row without reloading the table.
+     *
+     * The expense is placed in its cached block and the last row of each following
+     * block spills into the next one. The shift stops at the first block that is not
+     * cached; blocks past it are dropped and reloaded when they are shown again.
+     *
+     * @param row     Index the new row takes in the table order
+     * @param expense Row to insert
+     */
+    public void insertRow(int row, ExpenseRow expense) {
+        row = Math.max(0, Math.min(row, rowCount));
+        rowCount++;
+
+        // Loads issued before the shift would land at the old offsets
+        generation++;
+        pending.clear();
+        failed.clear();
+
+        int block = row / blockSize;
+        int index = row - block * blockSize;
+        ExpenseRow carry = expense;
+        while (carry != null) {
+            List<ExpenseRow> rows = blocks.get(block);
+            if (rows == null) {
+                dropBlocksAfter(block);
+                break;
+            }
+            rows.add(index, carry);
+            carry = rows.size() > blockSize ? rows.remove(rows.size() - 1) : null;
+            block++;
+            index = 0;
+        }
+
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Returns the expense row at a specific index.
+     * If its block is not loaded yet, a load is scheduled and null is returned.
      *
      * @param row Row index
-     * @return Expense at the given row
+     * @return Row at the given index, or null if out of range or still loading
      */
-    public Expense getExpenseAt(int row) {
-        if (row >= 0 && row < items.size()) {
-            return items.get(row);
+    public ExpenseRow getRowAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
         }
-        return null;
+
+        int block = row / blockSize;
+        if (block != lastBlock) {
+            scrollDirection = block > lastBlock ? 1 : -1;
+            lastBlock = block;
+            prefetch(block);
+        }
+
+        List<ExpenseRow> rows = blocks.get(block);
+        if (rows == null) {
+            requestBlock(block);
+            return null;
+        }
+        int index = row - block * blockSize;
+        return index < rows.size() ? rows.get(index) : null;
     }
 
     @Override
     public int getRowCount() {
-        return items.size();
+        return rowCount;
     }
 
     @Override
@@ -73,22 +271,25 @@ public class ExpenseTableModel extends AbstractTableModel {
      *
      * @param rowIndex    Row index
      * @param columnIndex Column index
-     * @return Formatted value for the cell
+     * @return Formatted value for the cell, or a placeholder while the row is loading
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        if (rowIndex < 0 || rowIndex >= items.size()) return "";
+        ExpenseRow expense = getRowAt(rowIndex);
+        if (expense == null) {
+            return columnIndex == 2 && rowIndex < rowCount ? "Loading…" : "";
+        }
 
-        Expense expense = items.get(rowIndex);
         switch (columnIndex) {
-            case 0: // Date column
-                return expense.getDate() != null ? dateFormat.format(expense.getDate()) : "";
+            case 0: // Date column, ISO yyyy-MM-dd
+                return LocalDate.ofEpochDay(expense.epochDay()).toString();
             case 1: // Category column
-                return expense.getCategory();
-            case 2: // Description column
-                return expense.getDescription();
+                return expense.category();
+            case 2: // Description column, marked when only a preview was fetched
+                return expense.descriptionTruncated() ? expense.descriptionPreview() + "…" : expense.descriptionPreview();
             case 3: // Amount column formatted to 2 decimal places
-                return String.format("%.2f", expense.getAmount());
+                amountText.setLength(0);
+                return Money.append(amountText, expense.amountCents()).toString();
             default:
                 return "";
         }
@@ -122,4 +323,145 @@ public class ExpenseTableModel extends AbstractTableModel {
     public boolean isCellEditable(int rowIndex, int columnIndex) {
         return false;
     }
+
+    // ========== Block Loading ==========
+
+    /**
+     * Requests the blocks following {@code block} in the current scroll direction.
+     */
+    private void prefetch(int block) {
+        int lastIndex = blockCount() - 1;
+        for (int i = 1; i <= prefetchBlocks; i++) {
+            int next = block + i * scrollDirection;
+            if (next < 0 || next > lastIndex) break;
+            if (!blocks.containsKey(next)) {
+                requestBlock(next);
+            }
+        }
+    }
+
+    /**
+     * Schedules a background load of one block unless it is already on its way
+     * or its last load failed less than the back-off delay ago.
+     */
+    private void requestBlock(int block) {
+        Backoff backoff = failed.get(block);
+        if (loader == null || (backoff != null && System.nanoTime() - backoff.retryAt < 0) || !pending.add(block)) {
+            return;
+        }
+
+        final int loadGeneration = generation;
+        final BlockLoader blockLoader = loader;
+        final int offset = block * blockSize;
+        final ExpenseRow previous = lastRowOf(block - 1);
+        final long requested = System.nanoTime();
+
+        executor.execute(() -> {
+            List<ExpenseRow> rows;
+            try {
+                rows = blockLoader.loadBlock(offset, blockSize, previous);
+            } catch (Exception e) {
+                LOAD_FAILURES.increment();
+                System.err.println("Loading table rows " + offset + "-" + (offset + blockSize - 1) + " failed: " + e);
+                rows = null;
+            }
+            final List<ExpenseRow> loaded = rows;
+            SwingUtilities.invokeLater(() -> {
+                blockLoaded(loadGeneration, block, loaded);
+                BLOCK_LATENCY.recordSince(requested);
+            });
+        });
+    }
+
+    /**
+     * Stores a delivered block and repaints its rows. Runs on the EDT.
+     */
+    private void blockLoaded(int loadGeneration, int block, List<ExpenseRow> rows) {
+        if (loadGeneration != generation) {
+            return; // Result of a load issued before the last reset
+        }
+        pending.remove(block);
+        if (rows == null) {
+            retryLater(block);
+            return;
+        }
+        failed.remove(block);
+
+        blocks.put(block, new ArrayList<>(rows)); // Mutable copy so insertRow can shift it
+        int first = block * blockSize;
+        int last = Math.min(first + blockSize, rowCount) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    /**
+     * Backs off from a block whose load failed, then repaints its rows so their next
+     * paint asks for it again. Runs on the EDT.
+     */
+    private void retryLater(int block) {
+        Backoff backoff = failed.computeIfAbsent(block, b -> new Backoff());
+        int delayMillis = (int) Math.min(RETRY_MAX_MILLIS, (long) RETRY_MIN_MILLIS << Math.min(backoff.failures, 16));
+        backoff.failures++;
+        backoff.retryAt = System.nanoTime() + delayMillis * 1_000_000L;
+
+        final int loadGeneration = generation;
+        Timer retry = new Timer(delayMillis, e -> {
+            int first = block * blockSize;
+            int last = Math.min(first + blockSize, rowCount) - 1;
+            if (loadGeneration == generation && first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+
+    /**
+     * Returns the last row of a cached block without touching its LRU position.
+     */
+    private ExpenseRow lastRowOf(int block) {
+        List<ExpenseRow> rows = peekBlock(block);
+        return rows != null && rows.size() == blockSize ? rows.get(rows.size() - 1) : null;
+    }
+
+    /**
+     * Returns a cached block without touching its LRU position, or null.
+     */
+    private List<ExpenseRow> peekBlock(int block) {
+        if (block < 0) return null;
+        for (Map.Entry<Integer, List<ExpenseRow>> entry : blocks.entrySet()) {
+            if (entry.getKey() == block) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void dropBlocksAfter(int block) {
+        Iterator<Integer> keys = blocks.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next() > block) keys.remove();
+        }
+    }
+
+    private int blockCount() {
+        return (rowCount + blockSize - 1) / blockSize;
+    }
+
+    private static ExecutorService newLoaderThread() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "expense-table-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Failures in a row of one block and when it may be requested again.
+     */
+    private static final class Backoff {
+        int failures;
+        long retryAt;
+    }
 }
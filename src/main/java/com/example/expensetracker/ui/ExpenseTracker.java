@@ -1,17 +1,47 @@
 package com.example.expensetracker.ui;
 
-import com.example.expensetracker.dao.ExpenseDAO;
+import com.example.expensetracker.analytics.Anomaly;
+import com.example.expensetracker.analytics.AnomalyDetector;
+import com.example.expensetracker.budget.Budget;
+import com.example.expensetracker.budget.BudgetEngine;
+import com.example.expensetracker.budget.BudgetEvent;
+import com.example.expensetracker.budget.BudgetStore;
+import com.example.expensetracker.config.AppConfig;
+import com.example.expensetracker.dao.ExpensePage;
+import com.example.expensetracker.dao.ExpenseRepositories;
+import com.example.expensetracker.db.CategoryRegistry;
 import com.example.expensetracker.db.MongoConnection;
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.LatencyHistogram;
+import com.example.expensetracker.metrics.MetricsRegistry;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import com.example.expensetracker.model.Money;
+import com.example.expensetracker.service.AsyncExpenseService;
+import com.example.expensetracker.service.InsertOutcome;
+import com.example.expensetracker.store.FirstPageCache;
+import com.example.expensetracker.transfer.ExpenseExporter;
+import com.example.expensetracker.transfer.ExpenseImporter;
+import com.example.expensetracker.transfer.ExportFormat;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * ExpenseTracker - Main UI class for the Expense Tracker application.
@@ -21,7 +51,8 @@ import java.util.List;
  * - Viewing all expenses in a formatted table
  * - Real-time calculation and display of total expenses
  * - Modern, user-friendly interface with professional styling
- * The application uses MongoDB for persistent storage through the ExpenseDAO layer.
+ * The application stores expenses through an ExpenseRepository: MongoDB via ExpenseDAO by
+ * default, or an in-memory engine when {@code spendwise.storage=memory}.
  *
  * @author Your Name
  * @version 1.0
@@ -51,17 +82,60 @@ public class ExpenseTracker extends JFrame {
     /** Success/positive color */
     private static final Color SUCCESS_COLOR = new Color(40, 167, 69);
 
+    /** Fallback start of the launch clock when the process start time is unavailable */
+    private static final long CLASS_INIT_NANOS = System.nanoTime();
+
     // ========== Instance Variables ==========
 
-    /** Data Access Object for performing CRUD operations on expenses */
-    private final ExpenseDAO dao = new ExpenseDAO();
+    /** Runs all DAO calls off the Event Dispatch Thread and reports back on it */
+    private final AsyncExpenseService service = new AsyncExpenseService();
 
     /** Custom table model that manages the expense data displayed in the JTable */
-    private final ExpenseTableModel tableModel = new ExpenseTableModel();
+    private final ExpenseTableModel tableModel = new ExpenseTableModel(
+            ExpenseTableModel.DEFAULT_BLOCK_SIZE,
+            ExpenseTableModel.DEFAULT_MAX_BLOCKS,
+            ExpenseTableModel.DEFAULT_PREFETCH_BLOCKS,
+            service.executor());
 
     /** Label displaying the sum of all expenses */
     private final JLabel totalLabel = new JLabel("Total: ₹0.00");
 
+    /** Label describing background database activity */
+    private final JLabel statusLabel = new JLabel(" ");
+
+    /** Indeterminate progress bar shown while database work is running */
+    private final JProgressBar progressBar = new JProgressBar();
+
+    /** Running total of all expenses in minor units, kept up to date incrementally after each insert */
+    private long totalCents;
+
+    /** Reused for the total label so updates do not build format strings */
+    private final StringBuilder totalText = new StringBuilder(32);
+
+    /** Time from asking for a refresh to the table and total showing the new data */
+    private final LatencyHistogram refreshLatency = MetricsRegistry.get().histogram("ui.refreshTable");
+
+    /** Time spent on the EDT resetting the table model */
+    private final LatencyHistogram resetLatency = MetricsRegistry.get().histogram("ui.tableReset");
+
+    /** Refreshes that could not read the count and total */
+    private final Counter refreshFailures = MetricsRegistry.get().counter("ui.refreshFailures");
+
+    /** Open diagnostics window, or null */
+    private DiagnosticsDialog diagnosticsDialog;
+
+    /** Set while a statement import runs; anomaly warnings are not shown for imported history */
+    private volatile boolean importing;
+
+    /** First rows, count and total saved at the last exit; null when disabled */
+    private final FirstPageCache firstPageCache = openFirstPageCache();
+
+    /** Launch-to-first-paint time in milliseconds, or -1 before the first paint */
+    private long firstPaintMillis = -1;
+
+    /** Whether the launch-to-live-data time has been reported */
+    private boolean liveDataReported;
+
     // ========== Constructor ==========
 
     /**
@@ -89,9 +163,27 @@ public class ExpenseTracker extends JFrame {
             add(createTablePanel(table), BorderLayout.CENTER);
             add(bottomPanel, BorderLayout.SOUTH);
 
+            // Expose metrics over JMX and to a file on exit, if configured
+            startMetricsExport();
+
+            // Show the rows saved at the last exit until the store answers
+            showCachedFirstPage();
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    saveFirstPage();
+                }
+            });
+
             // Load and display existing expenses from database
             refreshTable();
 
+            // Flag unusual spending as it is entered
+            startAnomalyDetection();
+
+            // Warn when category budgets are approached or exceeded
+            startBudgetTracking();
+
         } catch (Exception e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(null,
@@ -169,12 +261,15 @@ public class ExpenseTracker extends JFrame {
         styleTextField(amountField);
         amountField.setToolTipText("Enter the expense amount (e.g., 150.50)");
 
-        // Category dropdown - predefined expense categories
-        JComboBox<String> categoryBox = new JComboBox<>(
-                new String[]{"Food", "Transport", "Shopping", "Bills", "Entertainment", "Healthcare", "Other"}
-        );
+        // Category dropdown - starts with the defaults, then lists the store's registry;
+        // editable so a new category can be typed in and is registered on save
+        DefaultComboBoxModel<String> categories = new DefaultComboBoxModel<>(
+                CategoryRegistry.DEFAULTS.toArray(new String[0]));
+        JComboBox<String> categoryBox = new JComboBox<>(categories);
+        categoryBox.setEditable(true);
         styleComboBox(categoryBox);
-        categoryBox.setToolTipText("Select the expense category");
+        categoryBox.setToolTipText("Select the expense category, or type a new one");
+        loadCategories(categories);
 
         // Date spinner - allows date selection with formatted display
         JSpinner dateSpinner = new JSpinner(new SpinnerDateModel());
@@ -236,8 +331,8 @@ public class ExpenseTracker extends JFrame {
 
         /*
          * Add button action listener.
-         * Validates input, creates an Expense object, saves to database,
-         * refreshes the table, and resets the form.
+         * Validates input and creates an Expense object on the EDT, then saves it
+         * in the background; the row is merged into the table and the form reset once it is stored.
          */
         addBtn.addActionListener(e -> {
             try {
@@ -247,7 +342,7 @@ public class ExpenseTracker extends JFrame {
                     showError("Amount cannot be empty");
                     return;
                 }
-                double amount = Double.parseDouble(amountText);
+                long amount = Money.parse(amountText);
 
                 // Validate amount is positive
                 if (amount <= 0) {
@@ -256,36 +351,155 @@ public class ExpenseTracker extends JFrame {
                 }
 
                 // Extract other form values
-                String category = (String) categoryBox.getSelectedItem();
+                Object selected = categoryBox.getSelectedItem();
+                String category = selected != null ? selected.toString().trim() : "";
+                if (category.isEmpty()) {
+                    showError("Category cannot be empty");
+                    return;
+                }
                 String description = descArea.getText().trim();
                 Date date = (Date) dateSpinner.getValue();
 
-                // Create and save expense object
+                // Create expense object and save it without blocking the EDT
                 Expense expense = new Expense(amount, category, description, date);
-                dao.insertExpense(expense);
-
-                // Update UI
-                refreshTable();
-
-                // Reset form fields
-                amountField.setText("");
-                descArea.setText("");
-                categoryBox.setSelectedIndex(0);
-                dateSpinner.setValue(new Date());
-
-                // Show success feedback
-                showSuccess("Expense added successfully!");
+                addBtn.setEnabled(false);
+                service.insertExpense(expense, saved -> {
+                    addBtn.setEnabled(true);
+
+                    // Merge the new row in place instead of reloading everything
+                    applyInsert(saved);
+
+                    // A newly typed category is now registered; offer it from now on
+                    if (categories.getIndexOf(category) < 0) {
+                        categories.addElement(category);
+                    }
+
+                    // Reset form fields
+                    amountField.setText("");
+                    descArea.setText("");
+                    categoryBox.setSelectedIndex(0);
+                    dateSpinner.setValue(new Date());
+
+                    // Show success feedback
+                    showSuccess("Expense added successfully!");
+                }, ex -> {
+                    addBtn.setEnabled(true);
+                    showError("Failed to add expense: " + ex.getMessage());
+                });
 
             } catch (NumberFormatException ex) {
-                showError("Please enter a valid numeric amount");
-            } catch (Exception ex) {
-                showError("Failed to add expense: " + ex.getMessage());
+                showError("Please enter a valid amount with at most two decimals");
             }
         });
 
         return panel;
     }
 
+    /**
+     * Replaces the category choices with the names in the store's category registry,
+     * which includes custom categories added earlier. Reading the registry may connect
+     * to the database, so it runs in the background; the defaults stay until then.
+     *
+     * @param categories The model of the category dropdown
+     */
+    private void loadCategories(DefaultComboBoxModel<String> categories) {
+        service.submit(() -> service.getRepository().categories().names(), names -> {
+            for (String name : names) {
+                if (!name.isEmpty() && categories.getIndexOf(name) < 0) {
+                    categories.addElement(name);
+                }
+            }
+        }, ex -> System.err.println("Could not load categories: " + ex.getMessage()));
+    }
+
+    /**
+     * Registers the metrics MBean when {@code spendwise.metrics.jmx=true}, and writes the
+     * metrics to {@code spendwise.metrics.dumpFile} on exit when that key is set.
+     */
+    private void startMetricsExport() {
+        AppConfig config = AppConfig.get();
+        if (!config.getBoolean("spendwise.metrics.enabled", true)) {
+            return;
+        }
+        MetricsRegistry registry = MetricsRegistry.get();
+        if (config.getBoolean("spendwise.metrics.jmx", false)) {
+            try {
+                registry.registerMBean();
+            } catch (Exception e) {
+                System.err.println("Could not register metrics MBean: " + e.getMessage());
+            }
+        }
+        String dumpFile = config.getString("spendwise.metrics.dumpFile", null);
+        if (dumpFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    registry.dumpTo(Path.of(dumpFile));
+                } catch (IOException e) {
+                    System.err.println("Could not write metrics: " + e.getMessage());
+                }
+            }));
+        }
+    }
+
+    /**
+     * Attaches an {@link AnomalyDetector} to the repository, unless
+     * {@code spendwise.anomaly.enabled=false}. The detector and its checkpoint are opened
+     * in the background; its state is checkpointed again when the application exits.
+     */
+    private void startAnomalyDetection() {
+        AppConfig config = AppConfig.get();
+        if (!config.getBoolean("spendwise.anomaly.enabled", true)) {
+            return;
+        }
+        service.submit(() -> {
+            AnomalyDetector detector = new AnomalyDetector(
+                    config.getLocalPath("spendwise.anomaly.file", "anomaly.state"),
+                    config.getDouble("spendwise.anomaly.zScore", 3.0),
+                    config.getDouble("spendwise.anomaly.alpha", 0.05),
+                    config.getInt("spendwise.anomaly.warmup", 20),
+                    config.getLong("spendwise.anomaly.checkpointMillis", 60_000));
+            detector.addListener(anomaly -> {
+                if (!importing) {
+                    SwingUtilities.invokeLater(() -> showAnomaly(anomaly));
+                }
+            });
+            service.getRepository().addInsertListener(detector);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    detector.close();
+                } catch (IOException e) {
+                    System.err.println("Could not save anomaly state: " + e.getMessage());
+                }
+            }));
+            return detector;
+        }, detector -> {}, ex -> System.err.println("Anomaly detection is off: " + ex.getMessage()));
+    }
+
+    /**
+     * Loads the budgets from {@code spendwise.budget.file} and, if there are any, seeds a
+     * {@link BudgetEngine} from the repository and attaches it, all in the background.
+     * From then on crossings are shown as they happen, without querying the database.
+     */
+    private void startBudgetTracking() {
+        AppConfig config = AppConfig.get();
+        service.submit(() -> {
+            List<Budget> budgets = BudgetStore.load(config.getLocalPath("spendwise.budget.file", "budgets.properties"));
+            if (budgets.isEmpty()) {
+                return null;
+            }
+            BudgetEngine engine = new BudgetEngine(budgets, config.getDouble("spendwise.budget.warnAt", 0.8));
+            engine.addListener(event -> SwingUtilities.invokeLater(() -> showBudgetEvent(event)));
+            // Listening first: the engine holds back what arrives while it seeds
+            service.getRepository().addInsertListener(engine);
+            try {
+                engine.seed(service.getRepository());
+            } catch (RuntimeException e) {
+                System.err.println("Could not read spending so far; budgets count new expenses only: " + e.getMessage());
+            }
+            return engine;
+        }, engine -> {}, ex -> System.err.println("Budget tracking is off: " + ex.getMessage()));
+    }
+
     /**
      * Creates a wrapper panel for the expense table with proper styling.
      *
@@ -323,12 +537,25 @@ public class ExpenseTracker extends JFrame {
      * - Center-aligned amount column
      * - Professional header styling
      * - Optimal row height and spacing
+     * - Double-click to open the full expense
      *
      * @return Configured JTable instance
      */
     private JTable createExpenseTable() {
         JTable table = new JTable(tableModel);
 
+        // Rows only carry a description preview; fetch the full expense when one is opened
+        table.addMouseListener(new java.awt.event.MouseAdapter() {
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                if (evt.getClickCount() == 2) {
+                    ExpenseRow row = tableModel.getRowAt(table.rowAtPoint(evt.getPoint()));
+                    if (row != null) {
+                        openExpense(row);
+                    }
+                }
+            }
+        });
+
         // Basic table configuration
         table.setFillsViewportHeight(true);
         table.setRowHeight(32); // Comfortable row height
@@ -386,6 +613,10 @@ public class ExpenseTracker extends JFrame {
      * Creates the bottom panel displaying the total sum of all expenses.
      *
      * The panel includes:
+     * - Status label and progress bar for background database work
+     * - Refresh button forcing a full resync with the database
+     * - Import button loading a CSV or OFX bank statement
+     * - Export button saving every expense as CSV or compact binary
      * - Total amount label with formatted currency
      * - Professional styling with emphasis
      * - Right-aligned for natural reading flow
@@ -393,7 +624,7 @@ public class ExpenseTracker extends JFrame {
      * @return JPanel containing the total expenses label
      */
     private JPanel createTotalPanel() {
-        JPanel panel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JPanel panel = new JPanel(new BorderLayout(10, 0));
         panel.setBackground(Color.WHITE);
         panel.setBorder(BorderFactory.createCompoundBorder(
                 new LineBorder(BORDER_COLOR, 1, true),
@@ -404,7 +635,49 @@ public class ExpenseTracker extends JFrame {
         totalLabel.setFont(new Font("Segoe UI", Font.BOLD, 20));
         totalLabel.setForeground(SUCCESS_COLOR);
 
-        panel.add(totalLabel);
+        // Status area on the left, hidden progress bar until work is running
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        statusLabel.setForeground(HEADER_COLOR);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        progressBar.setPreferredSize(new Dimension(120, 14));
+
+        JButton refreshBtn = new JButton("Refresh");
+        styleButton(refreshBtn);
+        refreshBtn.setToolTipText("Reload all expenses from the database");
+        refreshBtn.addActionListener(e -> refreshTable());
+
+        JButton importBtn = new JButton("Import…");
+        styleButton(importBtn);
+        importBtn.setToolTipText("Import expenses from a CSV or OFX bank statement");
+        importBtn.addActionListener(e -> importStatement(importBtn));
+
+        JButton exportBtn = new JButton("Export…");
+        styleButton(exportBtn);
+        exportBtn.setToolTipText("Save all expenses as CSV or compact binary (.spx), optionally gzipped");
+        exportBtn.addActionListener(e -> exportExpenses(exportBtn));
+
+        JButton diagnosticsBtn = new JButton("Diagnostics");
+        styleButton(diagnosticsBtn);
+        diagnosticsBtn.setToolTipText("Show operation latencies and database pool usage");
+        diagnosticsBtn.addActionListener(e -> showDiagnostics());
+
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        statusPanel.setOpaque(false);
+        statusPanel.add(refreshBtn);
+        statusPanel.add(importBtn);
+        statusPanel.add(exportBtn);
+        statusPanel.add(diagnosticsBtn);
+        statusPanel.add(progressBar);
+        statusPanel.add(statusLabel);
+
+        service.setBusyListener(running -> {
+            progressBar.setVisible(running > 0);
+            statusLabel.setText(running > 0 ? "Syncing with database…" : " ");
+        });
+
+        panel.add(statusPanel, BorderLayout.WEST);
+        panel.add(totalLabel, BorderLayout.EAST);
         return panel;
     }
 
@@ -414,26 +687,254 @@ public class ExpenseTracker extends JFrame {
      * Refreshes the table display and total amount from the database.
      *
      * This method:
-     * 1. Fetches all expenses from MongoDB via DAO
-     * 2. Updates the table model with the retrieved data
-     * 3. Recalculates and updates the total amount label
+     * 1. Asks the background service for the expense count and server-side total
+     * 2. Resets the virtual table model on the EDT, which then loads only the visible rows
+     * 3. Updates the total amount label
      *
-     * Called after adding a new expense or on initial load.
+     * Called on initial load, from the Refresh button, and when {@link #applyInsert}
+     * detects that the table has drifted from the database. Calls made while a refresh
+     * is still running are coalesced into one.
      */
     private void refreshTable() {
-        // Retrieve all expenses from database
-        List<Expense> expenses = dao.getAllExpenses();
+        long start = System.nanoTime();
+        service.refresh(summary -> {
+            // Continue from the previous block by keyset when it is cached, otherwise jump with skip
+            long resetStart = System.nanoTime();
+            tableModel.reset((int) Math.min(summary.getCount(), Integer.MAX_VALUE), (offset, limit, previous) ->
+                    previous != null
+                            ? service.getRepository().findRowPage(ExpensePage.encodeCursor(previous), limit).getItems()
+                            : service.getRepository().findRowRange(offset, limit));
+            resetLatency.recordSince(resetStart);
+
+            totalCents = summary.getTotalCents();
+            updateTotalLabel();
+            refreshLatency.recordSince(start);
+            reportLiveData();
+        }, ex -> {
+            refreshFailures.increment();
+            System.err.println("Refreshing the expense table failed: " + ex);
+            statusLabel.setText("Could not load expenses: " + ex.getMessage());
+        });
+    }
 
-        // Update table model with fresh data
-        tableModel.setItems(expenses);
+    /**
+     * Merges a newly stored expense into the table and running total.
+     *
+     * The row is inserted at its sorted position and the total is increased by its amount.
+     * If the collection size reported after the write does not match the table, another
+     * client has changed the data and a full refresh is issued instead. A full refresh is
+     * also issued when the repository could not tell where the row belongs.
+     *
+     * @param outcome The stored expense with its position and the collection size
+     */
+    private void applyInsert(InsertOutcome outcome) {
+        if (!outcome.isPositionKnown()) {
+            refreshTable();
+            return;
+        }
+        tableModel.insertRow((int) Math.min(outcome.getPosition(), Integer.MAX_VALUE),
+                ExpenseRow.of(outcome.getExpense(), ZoneId.systemDefault()));
+        totalCents += outcome.getExpense().getAmountCents();
+        updateTotalLabel();
 
-        // Calculate total using stream API
-        double total = expenses.stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
+        if (outcome.getCount() != tableModel.getRowCount()) {
+            refreshTable();
+        }
+    }
 
-        // Update total label with formatted currency
-        totalLabel.setText(String.format("Total: ₹%.2f", total));
+    /**
+     * Asks for a CSV or OFX statement and imports it, showing progress in an
+     * {@link ImportDialog}. The importer is set up in the background, since it may load
+     * the rules file and connect to the database; the table is refreshed when it ends.
+     *
+     * @param importBtn Disabled while the import runs
+     */
+    private void importStatement(JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Bank statements (CSV, OFX, QFX, gzip)",
+                "csv", "txt", "ofx", "qfx", "gz"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        importBtn.setEnabled(false);
+        service.submit(() -> ExpenseImporter.fromConfig(service.getRepository(), AppConfig.get()), importer -> {
+            importing = true;
+            new ImportDialog(this, importer, file, report -> {
+                importing = false;
+                importBtn.setEnabled(true);
+                if (report != null && report.getRowsImported() > 0) {
+                    refreshTable();
+                }
+            }).start();
+        }, ex -> {
+            importBtn.setEnabled(true);
+            showError("Could not start the import: " + ex.getMessage());
+        });
+    }
+
+    /**
+     * Asks where to save and streams every expense there in the background. The format
+     * follows the file name: {@code .csv} or {@code .spx}, gzipped when it ends in
+     * {@code .gz}; a name without a known extension gets {@code .csv}. Rows written so
+     * far are shown in the status bar.
+     *
+     * @param exportBtn Disabled while the export runs
+     */
+    private void exportExpenses(JButton exportBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Expense exports (CSV, SPX, gzip)", "csv", "spx", "gz"));
+        chooser.setSelectedFile(new File("expenses.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path chosen = chooser.getSelectedFile().toPath();
+        Path file = ExportFormat.forFile(chosen) != null ? chosen : chosen.resolveSibling(chosen.getFileName() + ".csv");
+        if (Files.exists(file) && JOptionPane.showConfirmDialog(this,
+                file.getFileName() + " already exists. Replace it?", "Export",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        exportBtn.setEnabled(false);
+        service.submit(() -> ExpenseExporter.forFile(service.getRepository(), file).exportFile(file, null, null,
+                progress -> SwingUtilities.invokeLater(() -> statusLabel.setText(String.format(
+                        "Exporting… %,d rows", progress.getRowsWritten())))), result -> {
+            exportBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this,
+                    String.format("Exported %,d expenses to %s (%,d KB) in %.1f s",
+                            result.getRowsWritten(), file.getFileName(), result.getBytesWritten() / 1024,
+                            result.getElapsedNanos() / 1e9),
+                    "Export", JOptionPane.INFORMATION_MESSAGE);
+        }, ex -> {
+            exportBtn.setEnabled(true);
+            showError("Could not export: " + ex.getMessage());
+        });
+    }
+
+    /**
+     * Loads the full expense behind a table row and shows it in a dialog.
+     *
+     * @param row The row that was opened
+     */
+    private void openExpense(ExpenseRow row) {
+        service.submit(() -> service.getRepository().findById(row.id()), expense -> {
+            if (expense == null) {
+                showError("This expense no longer exists");
+                refreshTable();
+                return;
+            }
+            JTextArea details = new JTextArea(expense.getDescription(), 6, 40);
+            details.setLineWrap(true);
+            details.setWrapStyleWord(true);
+            details.setEditable(false);
+            details.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+
+            JPanel panel = new JPanel(new BorderLayout(0, 8));
+            panel.add(createStyledLabel(String.format("%s  ·  %s  ·  ₹%s",
+                    LocalDate.ofEpochDay(row.epochDay()), expense.getCategory(), Money.format(expense.getAmountCents()))),
+                    BorderLayout.NORTH);
+            panel.add(new JScrollPane(details), BorderLayout.CENTER);
+            JOptionPane.showMessageDialog(this, panel, "Expense Details", JOptionPane.PLAIN_MESSAGE);
+        }, ex -> showError("Failed to load expense: " + ex.getMessage()));
+    }
+
+    /**
+     * Updates the total label with formatted currency.
+     */
+    private void updateTotalLabel() {
+        totalText.setLength(0);
+        totalLabel.setText(Money.append(totalText.append("Total: ₹"), totalCents).toString());
+    }
+
+    // ========== Fast Start ==========
+
+    /**
+     * Opens the first-page cache named by {@code spendwise.startup.cacheFile}, unless
+     * {@code spendwise.startup.cache=false}.
+     *
+     * @return The cache, or null when disabled
+     */
+    private static FirstPageCache openFirstPageCache() {
+        AppConfig config = AppConfig.get();
+        if (!config.getBoolean("spendwise.startup.cache", true)) {
+            return null;
+        }
+        return new FirstPageCache(config.getLocalPath("spendwise.startup.cacheFile", "firstpage.cache"),
+                ExpenseRepositories.source(config));
+    }
+
+    /**
+     * Fills the table and total from the cache so the first frame already shows data.
+     * The file holds one block of rows, so it is read on the EDT; the refresh that
+     * follows replaces everything with live data.
+     */
+    private void showCachedFirstPage() {
+        if (firstPageCache == null) {
+            return;
+        }
+        FirstPageCache.FirstPage page = firstPageCache.load();
+        if (page == null) {
+            return;
+        }
+        tableModel.preload((int) Math.min(page.getCount(), Integer.MAX_VALUE), page.getRows());
+        totalCents = page.getTotalCents();
+        updateTotalLabel();
+    }
+
+    /**
+     * Saves the top of the table, the row count and the total for the next start.
+     * Only live data is saved, never rows that came from the cache itself.
+     */
+    private void saveFirstPage() {
+        if (firstPageCache == null || !liveDataReported) {
+            return;
+        }
+        try {
+            firstPageCache.save(tableModel.getRowCount(), totalCents,
+                    tableModel.leadingRows(ExpenseTableModel.DEFAULT_BLOCK_SIZE));
+        } catch (IOException e) {
+            System.err.println("Could not save first page: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records the launch-to-first-paint time the first time the frame is painted.
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (firstPaintMillis < 0) {
+            long millis = millisSinceLaunch();
+            firstPaintMillis = millis;
+            MetricsRegistry.get().gauge("startup.firstPaintMillis", () -> millis);
+        }
+    }
+
+    /**
+     * Records the launch-to-live-data time after the first successful refresh, and prints
+     * it when {@code spendwise.startup.report} is set.
+     */
+    private void reportLiveData() {
+        if (liveDataReported) {
+            return;
+        }
+        liveDataReported = true;
+        long millis = millisSinceLaunch();
+        MetricsRegistry.get().gauge("startup.liveDataMillis", () -> millis);
+        if (AppConfig.get().getBoolean("spendwise.startup.report", false)) {
+            System.out.printf("Startup: first paint %d ms, live data %d ms after launch%n", firstPaintMillis, millis);
+        }
+    }
+
+    /**
+     * Milliseconds since the JVM process started, or since this class was loaded if the
+     * platform does not report process start times.
+     */
+    private static long millisSinceLaunch() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> System.currentTimeMillis() - start.toEpochMilli())
+                .orElse((System.nanoTime() - CLASS_INIT_NANOS) / 1_000_000);
     }
 
     // ========== Styling Helper Methods ==========
@@ -514,6 +1015,17 @@ public class ExpenseTracker extends JFrame {
 
     // ========== User Feedback Methods ==========
 
+    /**
+     * Opens the diagnostics window, or brings it to the front if it is already open.
+     */
+    private void showDiagnostics() {
+        if (diagnosticsDialog == null || !diagnosticsDialog.isDisplayable()) {
+            diagnosticsDialog = new DiagnosticsDialog(this, MetricsRegistry.get());
+        }
+        diagnosticsDialog.setVisible(true);
+        diagnosticsDialog.toFront();
+    }
+
     /**
      * Displays an error message dialog to the user.
      *
@@ -528,6 +1040,47 @@ public class ExpenseTracker extends JFrame {
         );
     }
 
+    /**
+     * Warns the user about an expense the anomaly detector flagged.
+     *
+     * @param anomaly The flagged expense and how far it is from the usual amount
+     */
+    private void showAnomaly(Anomaly anomaly) {
+        String usual = Money.format(Math.round(anomaly.getExpectedCents()));
+        String value = Money.format(anomaly.getValueCents());
+        String message = anomaly.getKind() == Anomaly.Kind.AMOUNT
+                ? String.format("₹%s for %s is unusually high (usually about ₹%s, %.1f standard deviations above).",
+                        value, anomaly.getCategory(), usual, anomaly.getZScore())
+                : String.format("%s spending for the day has reached ₹%s (usually about ₹%s a day, %.1f standard deviations above).",
+                        anomaly.getCategory(), value, usual, anomaly.getZScore());
+        JOptionPane.showMessageDialog(
+                this,
+                message,
+                "Unusual Spending",
+                JOptionPane.WARNING_MESSAGE
+        );
+    }
+
+    /**
+     * Tells the user a budget's warning level or limit was just crossed.
+     *
+     * @param event The budget, the level crossed and the spending so far
+     */
+    private void showBudgetEvent(BudgetEvent event) {
+        Budget budget = event.getBudget();
+        String period = budget.getPeriod().name().toLowerCase(Locale.ROOT);
+        String message = String.format("%s: ₹%s spent this %s of a ₹%s budget%s.",
+                budget.describe(), Money.format(event.getSpentCents()), period,
+                Money.format(budget.getLimitCents()),
+                event.getLevel() == BudgetEvent.Level.EXCEEDED ? " - budget exceeded" : "");
+        JOptionPane.showMessageDialog(
+                this,
+                message,
+                event.getLevel() == BudgetEvent.Level.EXCEEDED ? "Budget Exceeded" : "Budget Warning",
+                JOptionPane.WARNING_MESSAGE
+        );
+    }
+
     /**
      * Displays a success message dialog to the user.
      *
@@ -549,7 +1102,8 @@ public class ExpenseTracker extends JFrame {
      *
      * This method:
      * 1. Launches the application on the Event Dispatch Thread (EDT)
-     * 2. Registers a shutdown hook to properly close MongoDB connection
+     * 2. Warms up the MongoDB connection pool in the background (unless disabled)
+     * 3. Registers a shutdown hook to properly close MongoDB connection
      *
      * @param args Command line arguments (not used)
      */
@@ -567,6 +1121,12 @@ public class ExpenseTracker extends JFrame {
             tracker.setVisible(true);
         });
 
+        // Open the MongoDB pool in the background while the window is being built
+        AppConfig config = AppConfig.get();
+        if ("mongo".equals(ExpenseRepositories.storage(config)) && config.getBoolean("spendwise.mongo.warmUp", true)) {
+            Thread.startVirtualThread(MongoConnection::warmUp);
+        }
+
         // Ensure MongoDB connection is closed when application exits
         Runtime.getRuntime().addShutdownHook(new Thread(MongoConnection::closeConnection));
     }
@@ -0,0 +1,194 @@
+package com.example.expensetracker.ui;
+
+import com.example.expensetracker.transfer.ExpenseImporter;
+import com.example.expensetracker.transfer.ImportProgress;
+import com.example.expensetracker.transfer.ImportReport;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * ImportDialog - Runs a statement import and shows how it is going.
+ *
+ * The import runs on its own thread; the dialog shows how much of the file has been
+ * read, the rows stored so far and the current rate in rows per second. Cancel stops
+ * the import after the batches already being written. When it ends, the counts and the
+ * first problems found are listed until the dialog is closed.
+ */
+public class ImportDialog extends JDialog {
+
+    // ========== Instance Variables ==========
+
+    /** Importer doing the work; cancelled from here */
+    private final ExpenseImporter importer;
+
+    /** File being imported */
+    private final Path file;
+
+    /** Told about the outcome on the EDT, once */
+    private final Consumer<ImportReport> onFinished;
+
+    /** Share of the file read, in tenths of a percent */
+    private final JProgressBar progressBar = new JProgressBar(0, 1000);
+
+    /** Rows and rate so far */
+    private final JLabel statusLabel = new JLabel("Starting…");
+
+    /** Summary and problems, filled in at the end */
+    private final JTextArea details = new JTextArea(8, 60);
+
+    /** Cancel while running, Close afterwards */
+    private final JButton button = new JButton("Cancel");
+
+    /** Whether the import has ended */
+    private boolean finished;
+
+    // ========== Constructor ==========
+
+    /**
+     * Creates the dialog; the import starts with {@link #start()}.
+     *
+     * @param owner      Frame the dialog belongs to
+     * @param importer   Importer to run
+     * @param file       Statement to import
+     * @param onFinished Called on the EDT with the report when the import ends
+     */
+    public ImportDialog(Frame owner, ExpenseImporter importer, Path file, Consumer<ImportReport> onFinished) {
+        super(owner, "Import " + file.getFileName(), false);
+        this.importer = importer;
+        this.file = file;
+        this.onFinished = onFinished;
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+        progressBar.setStringPainted(true);
+        details.setEditable(false);
+        details.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        button.addActionListener(e -> closeOrCancel());
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeOrCancel();
+            }
+        });
+
+        JPanel top = new JPanel(new BorderLayout(0, 6));
+        top.add(progressBar, BorderLayout.NORTH);
+        top.add(statusLabel, BorderLayout.SOUTH);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        buttons.setBorder(new EmptyBorder(8, 0, 0, 0));
+        buttons.add(button);
+
+        JPanel content = new JPanel(new BorderLayout(0, 8));
+        content.setBorder(new EmptyBorder(10, 10, 10, 10));
+        content.add(top, BorderLayout.NORTH);
+        content.add(new JScrollPane(details), BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+        setContentPane(content);
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    // ========== Lifecycle ==========
+
+    /**
+     * Shows the dialog and starts the import on a background thread.
+     */
+    public void start() {
+        setVisible(true);
+        Thread worker = new Thread(() -> {
+            ImportReport report;
+            try {
+                report = importer.importFile(file, progress -> SwingUtilities.invokeLater(() -> showProgress(progress)));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> showFailure(e));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> showReport(report));
+        }, "expense-import");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // ========== Updates ==========
+
+    /**
+     * Updates the bar and the rate while the import runs.
+     */
+    private void showProgress(ImportProgress progress) {
+        if (finished) {
+            return;
+        }
+        double fraction = progress.getFraction();
+        progressBar.setIndeterminate(fraction < 0);
+        if (fraction >= 0) {
+            progressBar.setValue((int) Math.round(fraction * 1000));
+            progressBar.setString(String.format("%.1f%%", fraction * 100));
+        }
+        statusLabel.setText(String.format("%,d rows imported · %,.0f rows/s · %,d rejected · %,d skipped",
+                progress.getRowsImported(), progress.getRowsPerSecond(),
+                progress.getRowsRejected(), progress.getRowsSkipped()));
+    }
+
+    /**
+     * Shows the final counts and the problems found.
+     */
+    private void showReport(ImportReport report) {
+        showProgress(report);
+        finished = true;
+        button.setText("Close");
+        button.setEnabled(true);
+
+        StringBuilder text = new StringBuilder();
+        String outcome = report.isComplete() ? "Finished" : report.isCancelled() ? "Cancelled" : "Stopped";
+        text.append(String.format("%s in %.1f s (%s)%n", outcome, report.getElapsedNanos() / 1e9,
+                report.getFormat() != null ? report.getFormat() : "unknown format"));
+        text.append(String.format("Imported %,d · rejected %,d · skipped (credits) %,d · not stored %,d%n",
+                report.getRowsImported(), report.getRowsRejected(), report.getRowsSkipped(), report.getRowsFailed()));
+        if (report.getFailure() != null) {
+            text.append("Stopped because: ").append(report.getFailure().getMessage()).append('\n');
+        }
+        if (!report.getErrors().isEmpty()) {
+            text.append("\nFirst problems:\n");
+            for (String error : report.getErrors()) {
+                text.append("  ").append(error).append('\n');
+            }
+        }
+        details.setText(text.toString());
+        details.setCaretPosition(0);
+        onFinished.accept(report);
+    }
+
+    /**
+     * Shows why the file could not be opened.
+     */
+    private void showFailure(Exception e) {
+        finished = true;
+        button.setText("Close");
+        button.setEnabled(true);
+        progressBar.setIndeterminate(false);
+        statusLabel.setText("Could not import the file");
+        details.setText(e.getMessage());
+        onFinished.accept(null);
+    }
+
+    // ========== Actions ==========
+
+    /**
+     * Cancels a running import, or closes the dialog once it has ended.
+     */
+    private void closeOrCancel() {
+        if (finished) {
+            dispose();
+        } else {
+            button.setEnabled(false);
+            statusLabel.setText("Cancelling…");
+            importer.cancel();
+        }
+    }
+}
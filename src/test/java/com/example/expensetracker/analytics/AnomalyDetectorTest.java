@@ -0,0 +1,103 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnomalyDetectorTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void flagsAnAmountFarAboveTheUsualOnceWarmedUp() throws IOException {
+        List<Anomaly> found = new ArrayList<>();
+        try (AnomalyDetector detector = detector()) {
+            detector.addListener(found::add);
+            for (int i = 0; i < 30; i++) {
+                detector.inserted(List.of(expense(i, 1_000 + (i % 3) * 50, "Food")));
+            }
+            assertTrue(found.isEmpty());
+
+            detector.inserted(List.of(expense(30, 25_000, "Food"), expense(30, 25_000, "Rent")));
+        }
+
+        assertFalse(found.isEmpty());
+        for (Anomaly anomaly : found) {
+            assertEquals("Food", anomaly.getCategory()); // Rent has no history yet
+        }
+        assertEquals(Anomaly.Kind.AMOUNT, found.get(0).getKind());
+        assertEquals(25_000, found.get(0).getValueCents());
+    }
+
+    @Test
+    void dailyTotalIsFlaggedOncePerDay() throws IOException {
+        List<Anomaly> found = new ArrayList<>();
+        try (AnomalyDetector detector = detector()) {
+            detector.addListener(found::add);
+            for (int i = 0; i < 30; i++) {
+                detector.inserted(List.of(expense(i, 1_000, "Food")));
+            }
+            for (int i = 0; i < 20; i++) {
+                detector.inserted(List.of(expense(30, 1_000, "Food")));
+            }
+        }
+
+        assertEquals(1, found.stream().filter(a -> a.getKind() == Anomaly.Kind.DAILY_TOTAL).count());
+    }
+
+    @Test
+    void stateSurvivesACheckpoint() throws IOException {
+        try (AnomalyDetector detector = detector()) {
+            for (int i = 0; i < 30; i++) {
+                detector.inserted(List.of(expense(i, 1_000, "Food")));
+            }
+        }
+
+        List<Anomaly> found = new ArrayList<>();
+        try (AnomalyDetector detector = detector()) {
+            detector.addListener(found::add);
+            detector.inserted(List.of(expense(30, 25_000, "Food")));
+        }
+        assertFalse(found.isEmpty());
+    }
+
+    @Test
+    void closeWaitsForAPeriodicCheckpoint() throws Exception {
+        // Checkpoints every millisecond while close writes the final one
+        for (int round = 0; round < 20; round++) {
+            Path file = dir.resolve("round-" + round).resolve("anomalies.bin");
+            AnomalyDetector detector = new AnomalyDetector(file, 3, 0.1, 5, 1);
+            for (int i = 0; i < 200; i++) {
+                detector.inserted(List.of(expense(i, 1_000 + i, "Category " + (i % 20))));
+            }
+            detector.close();
+            assertTrue(Files.exists(file));
+            assertFalse(Files.exists(file.resolveSibling("anomalies.bin.tmp")));
+        }
+    }
+
+    private AnomalyDetector detector() throws IOException {
+        return new AnomalyDetector(dir.resolve("anomalies.bin"), 3, 0.1, 5, 0);
+    }
+
+    private static Expense expense(int day, long cents, String category) {
+        Date date = Date.from(START.plusDays(day).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+        return new Expense(cents, category, category, date);
+    }
+}
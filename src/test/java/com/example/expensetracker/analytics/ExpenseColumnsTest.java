@@ -0,0 +1,58 @@
+package com.example.expensetracker.analytics;
+
+import com.example.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpenseColumnsTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    @Test
+    void leavesOutExpensesWithoutADate() {
+        ExpenseColumns columns = new ExpenseColumns.Builder(ZONE)
+                .add(expense(LocalDate.of(2024, 1, 31), 100, "Food"))
+                .add(new Expense(5_000, "Food", "No date", null))
+                .add(expense(LocalDate.of(2024, 3, 1), 250, "Rent"))
+                .build();
+
+        assertEquals(2, columns.size());
+        assertEquals(350, columns.sumCents());
+        assertEquals(ExpenseColumns.monthKey(YearMonth.of(2024, 1)), columns.firstMonth());
+        assertArrayEquals(new long[] {100, 0, 250}, columns.sumByMonth());
+    }
+
+    @Test
+    void filtersByDayAndCategory() {
+        LocalDate day = LocalDate.of(2024, 5, 10);
+        ExpenseColumns columns = new ExpenseColumns.Builder(ZONE)
+                .add(expense(day, 100, "Food"))
+                .add(expense(day.plusDays(1), 200, "Rent"))
+                .add(expense(day.plusDays(2), 400, "Food"))
+                .build();
+        int food = columns.categoryCode("Food");
+        int from = (int) day.toEpochDay();
+
+        assertEquals(100, columns.sumCents(from, from + 2, food));
+        assertEquals(300, columns.sumCents(from, from + 2, ExpenseColumns.ANY_CATEGORY));
+        assertEquals(0, columns.sumCents(from, from + 3, columns.categoryCode("Travel")));
+
+        int[] selection = new int[columns.size()];
+        int count = columns.select(from, from + 3, food, selection);
+        assertEquals(2, count);
+        assertEquals(500, columns.sumCents(selection, count));
+    }
+
+    private static Expense expense(LocalDate day, long cents, String category) {
+        // Late evening, so a UTC date would already be the next day
+        Date date = Date.from(day.atTime(23, 30).atZone(ZONE).toInstant());
+        return new Expense(cents, category, category, date);
+    }
+}
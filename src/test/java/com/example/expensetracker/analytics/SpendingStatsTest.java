@@ -0,0 +1,85 @@
+package com.example.expensetracker.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SpendingStatsTest {
+
+    @Test
+    void matchesTheTwoPassFormulas() {
+        long[] amounts = {1_250, 99, 40_000, 7, 1_250, 320};
+        SpendingStats stats = new SpendingStats();
+        for (long cents : amounts) {
+            stats.add(cents);
+        }
+
+        double mean = 0;
+        for (long cents : amounts) mean += cents;
+        mean /= amounts.length;
+        double variance = 0;
+        for (long cents : amounts) variance += (cents - mean) * (cents - mean);
+        variance /= amounts.length;
+
+        assertEquals(6, stats.getCount());
+        assertEquals(42_926, stats.getSumCents());
+        assertEquals(mean, stats.getMeanCents(), 1e-9);
+        assertEquals(variance, stats.getVariance(), 1e-6);
+        assertEquals(7, stats.getMinCents());
+        assertEquals(40_000, stats.getMaxCents());
+    }
+
+    @Test
+    void mergedPartsEqualOnePass() {
+        Random random = new Random(11);
+        SpendingStats whole = new SpendingStats();
+        SpendingStats[] parts = new SpendingStats[7];
+        for (int p = 0; p < parts.length; p++) {
+            parts[p] = new SpendingStats();
+        }
+        for (int i = 0; i < 100_000; i++) {
+            // Large, close amounts are where a naive sum of squares loses its digits
+            long cents = 1_000_000_000L + random.nextInt(1_000);
+            whole.add(cents);
+            parts[random.nextInt(parts.length - 1)].add(cents); // The last part stays empty
+        }
+
+        SpendingStats merged = new SpendingStats();
+        for (SpendingStats part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.getSumCents(), merged.getSumCents());
+        assertEquals(whole.getMeanCents(), merged.getMeanCents(), 1e-3);
+        assertEquals(whole.getVariance(), merged.getVariance(), whole.getVariance() * 1e-9);
+        assertEquals(1_000 * 1_000 / 12.0, merged.getVariance(), 1_000);
+        assertEquals(whole.getMinCents(), merged.getMinCents());
+        assertEquals(whole.getMaxCents(), merged.getMaxCents());
+    }
+
+    @Test
+    void mergeHandlesEmptySidesAndLeavesTheOtherUnchanged() {
+        SpendingStats empty = new SpendingStats();
+        SpendingStats some = new SpendingStats();
+        some.add(100);
+        some.add(300);
+
+        assertSame(some, some.merge(new SpendingStats()));
+        assertEquals(2, some.getCount());
+
+        empty.merge(some);
+        assertEquals(200, empty.getMeanCents(), 0);
+        assertEquals(10_000, empty.getVariance(), 0);
+        empty.add(200);
+        assertEquals(2, some.getCount());
+
+        SpendingStats none = new SpendingStats();
+        assertEquals(0, none.getMinCents());
+        assertEquals(0, none.getMaxCents());
+        assertEquals(0, none.getVariance(), 0);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.expensetracker.budget;
+
+import com.example.expensetracker.dao.InMemoryExpenseRepository;
+import com.example.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BudgetEngineTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+    private final MutableClock clock = new MutableClock(at(2024, 3, 15, 12));
+    private final Budget food = new Budget("Food", BudgetPeriod.MONTH, 10_000);
+    private final Budget everything = new Budget(null, BudgetPeriod.MONTH, 50_000);
+    private final List<BudgetEvent> events = new ArrayList<>();
+
+    @Test
+    void warnsThenReportsTheLimitOncePerPeriod() {
+        BudgetEngine engine = engine();
+
+        engine.inserted(List.of(expense(2024, 3, 15, 7_000, "Food"), expense(2024, 3, 15, 5_000, "Rent")));
+        assertTrue(events.isEmpty());
+
+        engine.inserted(List.of(expense(2024, 3, 15, 1_000, "Food")));
+        assertEquals(1, events.size());
+        assertSame(food, events.get(0).getBudget());
+        assertEquals(BudgetEvent.Level.WARNING, events.get(0).getLevel());
+
+        engine.inserted(List.of(expense(2024, 3, 15, 500, "Food"), expense(2024, 3, 15, 2_000, "Food")));
+        assertEquals(2, events.size());
+        assertEquals(BudgetEvent.Level.EXCEEDED, events.get(1).getLevel());
+        assertEquals(10_500, events.get(1).getSpentCents());
+
+        engine.inserted(List.of(expense(2024, 3, 15, 100, "Food")));
+        assertEquals(2, events.size());
+        assertEquals(10_600, engine.spending().get(food));
+        assertEquals(15_600, engine.spending().get(everything));
+    }
+
+    @Test
+    void ignoresExpensesOutsideThePeriodAndWithoutADate() {
+        BudgetEngine engine = engine();
+
+        engine.inserted(List.of(expense(2024, 2, 29, 9_000, "Food"), expense(2024, 4, 1, 9_000, "Food"),
+                new Expense(9_000, "Food", "No date", null)));
+
+        assertEquals(0, engine.spending().get(food));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void counterStartsOverWhenThePeriodEnds() {
+        BudgetEngine engine = engine();
+        engine.inserted(List.of(expense(2024, 3, 20, 9_000, "Food")));
+        assertEquals(1, events.size());
+
+        clock.now = at(2024, 4, 2, 9);
+        engine.inserted(List.of(expense(2024, 4, 2, 8_500, "Food")));
+
+        assertEquals(8_500, engine.spending().get(food));
+        assertEquals(2, events.size());
+        assertEquals(BudgetEvent.Level.WARNING, events.get(1).getLevel());
+    }
+
+    @Test
+    void seedReadsThePeriodSoFarWithoutReportingOldCrossings() {
+        InMemoryExpenseRepository repository = new InMemoryExpenseRepository();
+        repository.insertExpenses(List.of(expense(2024, 2, 10, 40_000, "Food"),
+                expense(2024, 3, 1, 8_000, "Food"), expense(2024, 3, 10, 3_000, "Bills")));
+        BudgetEngine engine = engine();
+        repository.addInsertListener(engine);
+
+        engine.seed(repository);
+
+        assertEquals(8_000, engine.spending().get(food));
+        assertEquals(11_000, engine.spending().get(everything));
+        assertTrue(events.isEmpty()); // Food was past its warning level before startup
+
+        repository.insertExpense(expense(2024, 3, 15, 2_500, "Food"));
+        assertEquals(1, events.size());
+        assertEquals(BudgetEvent.Level.EXCEEDED, events.get(0).getLevel());
+    }
+
+    private BudgetEngine engine() {
+        BudgetEngine engine = new BudgetEngine(List.of(food, everything), 0.8, clock);
+        engine.addListener(events::add);
+        return engine;
+    }
+
+    private static Expense expense(int year, int month, int day, long cents, String category) {
+        return new Expense(cents, category, category, Date.from(at(year, month, day, 10)));
+    }
+
+    private static Instant at(int year, int month, int day, int hour) {
+        return LocalDateTime.of(year, month, day, hour, 0).atZone(ZONE).toInstant();
+    }
+
+    /**
+     * Clock the test moves forward by hand.
+     */
+    private static final class MutableClock extends Clock {
+        Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
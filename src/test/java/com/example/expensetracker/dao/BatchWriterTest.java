@@ -0,0 +1,143 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchWriterTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final List<List<Expense>> sent = new ArrayList<>();
+    private final List<Expense> stored = new ArrayList<>();
+
+    @Test
+    void writesFullBatchesAndTheRestOnClose() {
+        BatchWriter writer = writer(batch -> null, 3, false);
+        List<Expense> expenses = expenses(7);
+        try (writer) {
+            expenses.forEach(writer::add);
+        }
+
+        assertEquals(List.of(3, 3, 1), sent.stream().map(List::size).toList());
+        assertEquals(3, writer.getReport().getBatches());
+        assertEquals(7, writer.getReport().getInserted());
+        assertEquals(expenses, stored);
+        for (Expense expense : expenses) {
+            assertNotNull(expense.getId());
+        }
+    }
+
+    @Test
+    void unorderedBatchReportsOnlyTheRejectedDocuments() {
+        List<Expense> expenses = expenses(4);
+        BatchWriter writer = writer(batch -> bulkFailure(batch.size() - 1, 1), 4, false);
+        try (writer) {
+            expenses.forEach(writer::add);
+        }
+
+        BatchReport report = writer.getReport();
+        assertEquals(3, report.getInserted());
+        assertEquals(1, report.getFailures().size());
+        BatchReport.Failure failure = report.getFailures().get(0);
+        assertSame(expenses.get(1), failure.getExpense());
+        assertEquals(DUPLICATE_KEY, failure.getCode());
+        assertEquals(1, failure.getBatchNumber());
+        assertEquals(List.of(expenses.get(0), expenses.get(2), expenses.get(3)), stored);
+    }
+
+    @Test
+    void orderedBatchReportsWhatWasNotAttempted() {
+        List<Expense> expenses = expenses(4);
+        BatchWriter writer = writer(batch -> bulkFailure(1, 1), 4, true);
+        try (writer) {
+            expenses.forEach(writer::add);
+        }
+
+        List<BatchReport.Failure> failures = writer.getReport().getFailures();
+        assertEquals(3, failures.size());
+        assertEquals(DUPLICATE_KEY, failures.get(0).getCode());
+        assertSame(expenses.get(2), failures.get(1).getExpense());
+        assertSame(expenses.get(3), failures.get(2).getExpense());
+        assertTrue(failures.get(1).getMessage().startsWith("Not attempted"));
+        assertEquals(List.of(expenses.get(0)), stored);
+    }
+
+    @Test
+    void failedBatchIsReportedAndTheLoadCarriesOn() {
+        List<Expense> expenses = expenses(4);
+        BatchWriter writer = writer(batch -> sent.size() == 1 ? new MongoException(-3, "timed out") : null, 2, false);
+        try (writer) {
+            expenses.forEach(writer::add);
+        }
+
+        BatchReport report = writer.getReport();
+        assertEquals(2, report.getBatches());
+        assertEquals(2, report.getInserted());
+        assertEquals(2, report.getFailures().size());
+        assertEquals(-3, report.getFailures().get(0).getCode());
+        assertEquals(expenses.subList(2, 4), stored);
+    }
+
+    @Test
+    void datelessExpenseIsReportedWithoutBeingSent() {
+        Expense dateless = new Expense(100, "Food", "No date", null);
+        BatchWriter writer = writer(batch -> null, 10, false);
+        try (writer) {
+            writer.add(expenses(1).get(0));
+            writer.add(dateless);
+        }
+
+        assertEquals(1, sent.get(0).size());
+        assertEquals(1, writer.getReport().getInserted());
+        assertSame(dateless, writer.getReport().getFailures().get(0).getExpense());
+    }
+
+    // A collection whose insertMany records the batch and then throws what outcome returns, if anything
+    private BatchWriter writer(Function<List<Expense>, RuntimeException> outcome, int batchSize, boolean ordered) {
+        @SuppressWarnings("unchecked")
+        MongoCollection<Expense> collection = (MongoCollection<Expense>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] {MongoCollection.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("insertMany")) throw new UnsupportedOperationException(method.getName());
+                    @SuppressWarnings("unchecked")
+                    List<Expense> batch = new ArrayList<>((List<Expense>) args[0]);
+                    sent.add(batch);
+                    RuntimeException failure = outcome.apply(batch);
+                    if (failure != null) throw failure;
+                    return null;
+                });
+        return new BatchWriter(collection, null, stored::addAll, batchSize, 0, ordered);
+    }
+
+    private static MongoBulkWriteException bulkFailure(int inserted, int failedIndex) {
+        BulkWriteError error = new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key", new BsonDocument(), failedIndex);
+        return new MongoBulkWriteException(BulkWriteResult.acknowledged(inserted, 0, 0, 0, List.of(), List.of()),
+                List.of(error), null, new ServerAddress(), Set.of());
+    }
+
+    private static List<Expense> expenses(int count) {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expenses.add(new Expense(100 + i, "Food", "Expense " + i, new Date(1_700_000_000_000L + i)));
+        }
+        return expenses;
+    }
+}
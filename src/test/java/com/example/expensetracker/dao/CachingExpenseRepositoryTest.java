@@ -0,0 +1,177 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachingExpenseRepositoryTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long BASE = 1_700_000_000_000L;
+    private static final AtomicInteger foreignCounter = new AtomicInteger();
+
+    private Store store;
+    private CachingExpenseRepository cache;
+
+    @BeforeEach
+    void setUp() {
+        store = new Store();
+        for (int day = 0; day < 30; day++) {
+            store.insertExpense(foreign(day * 10, 100 + day));
+        }
+        cache = new CachingExpenseRepository(store, CachingExpenseRepository.DEFAULT_MAX_ROWS);
+    }
+
+    @Test
+    void insertShiftsCachedRanges() throws InterruptedException {
+        cache.findRowRange(0, 10);
+        cache.findRowRange(10, 10);
+        cache.findRowRange(20, 10);
+        settle();
+
+        // Lands inside the second range, pushing one row from each range into the next
+        Expense change = foreign(145, 7);
+        store.insertExpense(change);
+        cache.inserted(change);
+
+        int reads = store.rangeReads.get();
+        assertEquals(store.findRowRange(0, 10), cache.findRowRange(0, 10));
+        assertEquals(store.findRowRange(10, 10), cache.findRowRange(10, 10));
+        assertEquals(store.findRowRange(20, 10), cache.findRowRange(20, 10));
+        assertEquals(reads + 3, store.rangeReads.get()); // Only the store's own reads above
+    }
+
+    @Test
+    void entryLoadedJustBeforeAChangeIsReloaded() {
+        cache.findRowRange(0, 10);
+
+        Expense change = foreign(1_000, 5);
+        store.insertExpense(change);
+        cache.inserted(change);
+
+        int reads = store.rangeReads.get();
+        assertEquals(store.findRowRange(0, 10), cache.findRowRange(0, 10));
+        assertEquals(reads + 2, store.rangeReads.get());
+    }
+
+    @Test
+    void loadOverlappingAChangeIsNotKept() {
+        Expense change = foreign(1_000, 5);
+        store.duringNextRead = () -> {
+            store.insertExpense(change);
+            cache.inserted(change);
+        };
+        List<ExpenseRow> stale = cache.findRowRange(0, 10);
+        assertEquals(290 * DAY + BASE, stale.get(0).dateMillis());
+
+        int reads = store.rangeReads.get();
+        List<ExpenseRow> rows = cache.findRowRange(0, 10);
+        assertEquals(change.getId(), rows.get(0).id());
+        assertEquals(reads + 1, store.rangeReads.get());
+    }
+
+    @Test
+    void insertSeenLocallyAndOnTheStreamCountsOnce() throws InterruptedException {
+        assertEquals(30, cache.countExpenses());
+        cache.findRowRange(0, 10);
+        settle();
+
+        // A write-behind replay from another process: reported locally, then by the stream
+        Expense replayed = foreign(1_000, 5);
+        store.insertExpense(replayed);
+        store.reportStored(replayed);
+        cache.inserted(replayed);
+
+        // Our own insert whose stream event arrives late
+        Expense own = new Expense(9, "Food", "own", new Date(BASE + 1_001 * DAY));
+        own.setId(new ObjectId());
+        store.insertExpense(own);
+        store.reportStored(own);
+        cache.inserted(own);
+
+        assertEquals(32, cache.countExpenses());
+        assertEquals(store.findRowRange(0, 10), cache.findRowRange(0, 10));
+    }
+
+    @Test
+    void pollDropsTheCacheWhenTheStoreChangedUnseen() {
+        cache.poll();
+        cache.findRowRange(0, 10);
+        assertEquals(30, cache.countExpenses());
+
+        // Our own writes move the polled figures along with the store
+        Expense own = new Expense(9, "Food", "own", new Date(BASE + 500 * DAY));
+        own.setId(new ObjectId());
+        store.insertExpense(own);
+        store.reportStored(own);
+        long resyncs = resyncs();
+        cache.poll();
+        assertEquals(resyncs, resyncs());
+
+        // Another client's write that no stream reported
+        store.insertExpense(foreign(1_000, 5));
+        cache.poll();
+        assertEquals(resyncs + 1, resyncs());
+        assertEquals(32, cache.countExpenses());
+        assertEquals(store.findRowRange(0, 10), cache.findRowRange(0, 10));
+    }
+
+    private static long resyncs() {
+        return MetricsRegistry.get().counter("cache.resyncs").get();
+    }
+
+    private static void settle() throws InterruptedException {
+        Thread.sleep(CachingExpenseRepository.SETTLE_MILLIS + 100);
+    }
+
+    // An expense with an ObjectId from another process
+    private static Expense foreign(int day, long cents) {
+        ByteBuffer bytes = ByteBuffer.allocate(12)
+                .putInt((int) ((BASE + day * DAY) / 1000))
+                .put(new byte[] {(byte) 0xFE, (byte) 0xED, (byte) 0xFA, (byte) 0xCE, 0x01})
+                .put((byte) 0).putShort((short) foreignCounter.incrementAndGet());
+        Expense expense = new Expense(cents, "Food", "day " + day, new Date(BASE + day * DAY));
+        expense.setId(new ObjectId(bytes.array()));
+        return expense;
+    }
+
+    /**
+     * In-memory store whose insert listeners only hear what a test reports, so writes can
+     * be made to look like another client's, and that counts range reads.
+     */
+    private static final class Store extends InMemoryExpenseRepository {
+        final AtomicInteger rangeReads = new AtomicInteger();
+        final List<InsertListener> localListeners = new ArrayList<>();
+        Runnable duringNextRead;
+
+        @Override
+        public void addInsertListener(InsertListener listener) {
+            localListeners.add(listener);
+        }
+
+        void reportStored(Expense expense) {
+            localListeners.forEach(listener -> listener.inserted(List.of(expense)));
+        }
+
+        @Override
+        public List<ExpenseRow> findRowRange(int offset, int limit) {
+            rangeReads.incrementAndGet();
+            List<ExpenseRow> rows = super.findRowRange(offset, limit);
+            Runnable hook = duringNextRead;
+            duringNextRead = null;
+            if (hook != null) hook.run();
+            return rows;
+        }
+    }
+}
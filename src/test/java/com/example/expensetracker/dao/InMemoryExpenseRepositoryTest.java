@@ -0,0 +1,109 @@
+package com.example.expensetracker.dao;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryExpenseRepositoryTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void mergedBatchesMatchSingleInserts() {
+        Random random = new Random(42);
+        InMemoryExpenseRepository merged = new InMemoryExpenseRepository();
+        InMemoryExpenseRepository single = new InMemoryExpenseRepository();
+        long total = 0;
+
+        for (int round = 0; round < 30; round++) {
+            List<Expense> batch = new ArrayList<>();
+            int count = random.nextInt(200);
+            for (int i = 0; i < count; i++) {
+                // Few distinct dates, so rows tie on the date and are ordered by id
+                Expense expense = expense(random.nextInt(50), 1 + random.nextInt(10_000));
+                batch.add(expense);
+                total += expense.getAmountCents();
+            }
+            merged.insertExpenses(batch);
+            for (Expense expense : batch) {
+                single.insertExpense(copy(expense));
+            }
+        }
+
+        assertEquals(single.countExpenses(), merged.countExpenses());
+        assertEquals(total, merged.totalCents());
+        List<ExpenseRow> rows = merged.findRowRange(0, Integer.MAX_VALUE);
+        assertEquals(single.findRowRange(0, Integer.MAX_VALUE), rows);
+        for (int r = 1; r < rows.size(); r++) {
+            ExpenseRow newer = rows.get(r - 1);
+            ExpenseRow older = rows.get(r);
+            boolean ordered = newer.dateMillis() > older.dateMillis()
+                    || newer.dateMillis() == older.dateMillis() && newer.id().compareTo(older.id()) > 0;
+            assertTrue(ordered, "rows " + (r - 1) + " and " + r + " out of order");
+        }
+    }
+
+    @Test
+    void rangeBoundsAndCountsUseTheSortOrder() {
+        InMemoryExpenseRepository repository = new InMemoryExpenseRepository();
+        List<Expense> expenses = new ArrayList<>();
+        for (int minute = 0; minute < 10; minute++) {
+            expenses.add(expense(minute, 100));
+            expenses.add(expense(minute, 200));
+        }
+        repository.insertExpenses(expenses);
+
+        List<Expense> scanned = new ArrayList<>();
+        repository.scan(new Date(START + 3 * 60_000L), new Date(START + 6 * 60_000L), scanned::add);
+        assertEquals(6, scanned.size());
+        assertEquals(new Date(START + 3 * 60_000L), scanned.get(0).getDate());
+        assertEquals(new Date(START + 5 * 60_000L), scanned.get(5).getDate());
+
+        // Same-minute rows are ordered by id, so the first of minute 3 has its twin after it
+        assertEquals(13, repository.countNewerThan(scanned.get(0)));
+        assertEquals(0, repository.countNewerThan(expenses.get(19)));
+
+        Expense any = expenses.get(7);
+        assertEquals(any.getDescription(), repository.findById(any.getId()).getDescription());
+        assertNull(repository.findById(new ObjectId()));
+    }
+
+    @Test
+    void batchReportsDatelessExpensesAndStoresTheRest() {
+        InMemoryExpenseRepository repository = new InMemoryExpenseRepository();
+        Expense dateless = new Expense(500, "Food", "No date", null);
+
+        BatchReport report = repository.insertExpenses(List.of(expense(1, 100), dateless, expense(2, 200)));
+
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailures().size());
+        assertSame(dateless, report.getFailures().get(0).getExpense());
+        assertEquals(2, repository.countExpenses());
+        assertEquals(300, repository.totalCents());
+    }
+
+    private static Expense expense(int minute, long cents) {
+        Expense expense = new Expense(cents, minute % 2 == 0 ? "Food" : "Bills", "At minute " + minute,
+                new Date(START + minute * 60_000L));
+        expense.setId(new ObjectId());
+        return expense;
+    }
+
+    private static Expense copy(Expense expense) {
+        Expense copy = new Expense(expense.getAmountCents(), expense.getCategory(), expense.getDescription(),
+                expense.getDate());
+        copy.setId(expense.getId());
+        return copy;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.expensetracker.db;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExpenseCodecTest {
+
+    private static final long DATE = 1_700_000_000_000L;
+
+    private final CategoryRegistry categories = new CategoryRegistry();
+    private final ExpenseCodec codec = new ExpenseCodec(categories);
+
+    @Test
+    void roundTripsAnExpense() {
+        Expense expense = new Expense(1_234, "Transport", "Bus", new Date(DATE));
+        expense.setId(new ObjectId());
+
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), expense, EncoderContext.builder().build());
+
+        assertEquals(new BsonInt32(categories.find("Transport")), document.get("categoryId"));
+        Expense decoded = decode(document);
+        assertEquals(expense.getId(), decoded.getId());
+        assertEquals(1_234, decoded.getAmountCents());
+        assertEquals("Transport", decoded.getCategory());
+        assertEquals("Bus", decoded.getDescription());
+        assertEquals(new Date(DATE), decoded.getDate());
+    }
+
+    @Test
+    void writesAnUnregisteredCategoryByNameWithoutRegisteringIt() {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), new Expense(1, "Pets", "Vet", new Date(DATE)),
+                EncoderContext.builder().build());
+
+        assertNull(categories.find("Pets"));
+        assertEquals(new BsonString("Pets"), document.get("category"));
+        assertEquals("Pets", decode(document).getCategory());
+    }
+
+    @Test
+    void readsLegacyAmountAndCategoryName() {
+        Expense decoded = decode(new BsonDocument("amount", new BsonDouble(12.5))
+                .append("category", new BsonString("Food"))
+                .append("date", new BsonDateTime(DATE)));
+
+        assertEquals(1_250, decoded.getAmountCents());
+        assertEquals("Food", decoded.getCategory());
+    }
+
+    @Test
+    void centsWinOverTheLegacyAmountInEitherOrder() {
+        assertEquals(700, decode(new BsonDocument("amount", new BsonDouble(9.99))
+                .append("amountCents", new BsonInt32(700))).getAmountCents());
+        assertEquals(700, decode(new BsonDocument("amountCents", new BsonInt64(700))
+                .append("amount", new BsonDouble(9.99))).getAmountCents());
+    }
+
+    @Test
+    void readsCategoryIdsOfAnyNumericType() {
+        int bills = categories.find("Bills");
+
+        assertEquals("Bills", decode(new BsonDocument("categoryId", new BsonInt64(bills))).getCategory());
+        assertEquals("Bills", decode(new BsonDocument("categoryId", new BsonDouble(bills))).getCategory());
+
+        ExpenseRow row = new ExpenseRowCodec(categories).decode(
+                new BsonDocumentReader(new BsonDocument("_id", new BsonObjectId(new ObjectId()))
+                        .append("categoryId", new BsonInt64(bills))
+                        .append("amountCents", new BsonInt32(5))
+                        .append("date", new BsonDateTime(DATE))),
+                DecoderContext.builder().build());
+        assertEquals("Bills", row.category());
+    }
+
+    @Test
+    void skipsNullAndUnknownFields() {
+        Expense decoded = decode(new BsonDocument("description", BsonNull.VALUE)
+                .append("date", BsonNull.VALUE)
+                .append("note", new BsonString("ignored"))
+                .append("amountCents", new BsonInt32(1)));
+
+        assertNull(decoded.getDescription());
+        assertNull(decoded.getDate());
+        assertEquals(1, decoded.getAmountCents());
+    }
+
+    private Expense decode(BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.expensetracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void parsesUpToTwoDecimals() {
+        assertEquals(1_200, Money.parse("12"));
+        assertEquals(1_250, Money.parse("12.5"));
+        assertEquals(1_250, Money.parse("12.50"));
+        assertEquals(-75, Money.parse(" -0.75 "));
+        assertEquals(0, Money.parse("0.00"));
+    }
+
+    @Test
+    void rejectsMoreDecimalsAndNonNumbers() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.234"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12,50"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+    }
+
+    @Test
+    void appendsUnitsAndTwoDigitFraction() {
+        assertEquals("1234.56", Money.format(123_456));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.07", Money.format(7));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-12.30", Money.format(-1_230));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    void appendsToTheCallersBuilder() {
+        StringBuilder out = new StringBuilder("Total: ");
+        assertSame(out, Money.append(out, 99));
+        assertEquals("Total: 0.99", out.toString());
+        out.setLength(0);
+        Money.append(out, 100);
+        assertEquals("1.00", out.toString());
+    }
+
+    @Test
+    void formatReadsBackThroughParse() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong() / 1_000;
+            assertEquals(cents, Money.parse(Money.format(cents)));
+        }
+    }
+
+    @Test
+    void legacyDecimalsRoundToTheNearestMinorUnit() {
+        assertEquals(30, Money.fromDecimal(0.1 + 0.2));
+        assertEquals(1_999, Money.fromDecimal(19.99));
+        assertEquals(-1_999, Money.fromDecimal(-19.99));
+    }
+}
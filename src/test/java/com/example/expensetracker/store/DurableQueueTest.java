@@ -0,0 +1,109 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversWhatWasNotAcknowledged() throws IOException {
+        Path file = dir.resolve("queue.log");
+        List<Expense> expenses = expenses(3);
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            List<DurableQueue.Entry> entries = queue.append(expenses);
+            queue.acknowledge(entries.get(0).endOffset());
+        }
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            assertEquals(ids(expenses.subList(1, 3)), ids(queue.recovered()));
+            assertEquals(expenses.get(2).getAmountCents(), queue.recovered().get(1).expense().getAmountCents());
+        }
+    }
+
+    @Test
+    void drainedQueueIsCutBackToItsHeader() throws IOException {
+        Path file = dir.resolve("queue.log");
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            List<DurableQueue.Entry> entries = queue.append(expenses(2));
+            queue.acknowledge(entries.get(1).endOffset());
+            // Offsets of later appends start over from the header
+            List<DurableQueue.Entry> next = queue.append(expenses(1));
+            assertEquals(entries.get(0).endOffset(), next.get(0).endOffset());
+        }
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            assertEquals(1, queue.recovered().size());
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDiscarded() throws IOException {
+        Path file = dir.resolve("queue.log");
+        List<Expense> expenses = expenses(2);
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            queue.append(expenses);
+        }
+        long intact = Files.size(file);
+        Files.write(file, new byte[] {0, 0, 0, 42, 7}, StandardOpenOption.APPEND);
+
+        Expense later = expenses(1).get(0);
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            assertEquals(ids(expenses), ids(queue.recovered()));
+            assertEquals(intact, Files.size(file));
+            queue.append(List.of(later));
+        }
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            List<ObjectId> expected = new ArrayList<>(ids(expenses));
+            expected.add(later.getId());
+            assertEquals(expected, ids(queue.recovered()));
+        }
+    }
+
+    @Test
+    void missingAckFileReplaysEverything() throws IOException {
+        Path file = dir.resolve("queue.log");
+        List<Expense> expenses = expenses(2);
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            List<DurableQueue.Entry> entries = queue.append(expenses);
+            queue.acknowledge(entries.get(0).endOffset());
+        }
+        Files.delete(dir.resolve("queue.log.ack"));
+        try (DurableQueue queue = new DurableQueue(file, false)) {
+            assertEquals(ids(expenses), ids(queue.recovered()));
+            assertTrue(Files.exists(dir.resolve("queue.log.ack")));
+        }
+    }
+
+    private static List<Expense> expenses(int n) {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Expense expense = new Expense(100 + i, "Food", "lunch " + i, new Date(1_700_000_000_000L + i * 60_000L));
+            expense.setId(new ObjectId());
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    private static List<ObjectId> ids(List<?> items) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (Object item : items) {
+            Expense expense = item instanceof DurableQueue.Entry entry ? entry.expense() : (Expense) item;
+            ids.add(expense.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.expensetracker.store;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalExpenseRepositoryTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysTheJournalOnRestart() throws IOException {
+        List<ExpenseRow> before;
+        try (JournalExpenseRepository repository = open()) {
+            repository.insertExpense(expense(1, 250, "Food"));
+            repository.insertExpenses(List.of(expense(3, 1_000, "Rent"), expense(2, 75, "Transport")));
+            before = repository.findRowRange(0, 10);
+        }
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(3, repository.countExpenses());
+            assertEquals(1_325, repository.totalCents());
+            assertEquals(before, repository.findRowRange(0, 10));
+        }
+    }
+
+    @Test
+    void compactionFoldsJournalsIntoTheSnapshot() throws IOException {
+        List<ExpenseRow> before;
+        try (JournalExpenseRepository repository = open()) {
+            for (int i = 0; i < 50; i++) {
+                repository.insertExpense(expense(i, 100 + i, i % 2 == 0 ? "Food" : "Bills"));
+            }
+            repository.compact();
+            repository.insertExpense(expense(25, 9_999, "Shopping"));
+            before = repository.findRowRange(0, 100);
+        }
+        assertTrue(Files.exists(dir.resolve(JournalExpenseRepository.SNAPSHOT_FILE)));
+        assertEquals(1, journals().size());
+
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(51, repository.countExpenses());
+            assertEquals(before, repository.findRowRange(0, 100));
+        }
+    }
+
+    @Test
+    void compactingAgainKeepsEverything() throws IOException {
+        try (JournalExpenseRepository repository = open()) {
+            repository.insertExpense(expense(1, 100, "Food"));
+            repository.compact();
+            repository.insertExpense(expense(2, 200, "Food"));
+            repository.compact();
+        }
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(2, repository.countExpenses());
+            assertEquals(300, repository.totalCents());
+        }
+    }
+
+    @Test
+    void tornRecordIsCutSoLaterWritesSurvive() throws IOException {
+        try (JournalExpenseRepository repository = open()) {
+            repository.insertExpense(expense(1, 100, "Food"));
+            repository.insertExpense(expense(2, 200, "Food"));
+        }
+        Path journal = journals().get(0);
+        Files.write(journal, new byte[] {0, 0, 1, 0, 9, 9, 9}, StandardOpenOption.APPEND);
+
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(2, repository.countExpenses());
+            repository.insertExpense(expense(3, 300, "Food"));
+        }
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(3, repository.countExpenses());
+            assertEquals(600, repository.totalCents());
+        }
+    }
+
+    @Test
+    void replaysRecordsAcrossAndLargerThanTheReadBuffer() throws IOException {
+        String description = "x".repeat(3 << 20);
+        try (JournalExpenseRepository repository = open()) {
+            for (int i = 0; i < 20_000; i++) {
+                repository.insertExpense(expense(i % 365, 1, "Food"));
+            }
+            repository.insertExpense(new Expense(5, "Gifts", description, new Date(1_700_000_000_000L)));
+            repository.insertExpense(expense(1, 7, "Food"));
+            repository.compact();
+            repository.insertExpense(new Expense(5, "Gifts", description, new Date(1_700_000_000_000L)));
+        }
+        try (JournalExpenseRepository repository = open()) {
+            assertEquals(20_003, repository.countExpenses());
+            assertEquals(20_017, repository.totalCents());
+        }
+    }
+
+    private JournalExpenseRepository open() throws IOException {
+        return new JournalExpenseRepository(dir, Long.MAX_VALUE, false);
+    }
+
+    private List<Path> journals() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> journals = new ArrayList<>();
+            files.filter(f -> f.getFileName().toString().startsWith("journal-")).forEach(journals::add);
+            return journals;
+        }
+    }
+
+    private static Expense expense(int day, long cents, String category) {
+        return new Expense(cents, category, category + " on day " + day, new Date(1_700_000_000_000L + day * DAY));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.dao.InMemoryExpenseRepository;
+import com.example.expensetracker.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseImporterTest {
+
+    private static final CategoryRules RULES = new CategoryRules(Map.of("Food", List.of("swiggy", "zomato")), "Other");
+
+    private final InMemoryExpenseRepository repository = new InMemoryExpenseRepository();
+
+    @Test
+    void importsCsvRowsAndCountsTheOthers() {
+        String csv = "Date,Amount,Category,Description\n"
+                + "2024-01-15,12.50,Rent,\"Flat, January\"\n"
+                + "2024-01-16,3.00,,Swiggy order\n"
+                + "2024-01-17,4.25,Bills,\"Line one\nline two\"\n"
+                + "not a date,1.00,Food,Bad date\n"
+                + "2024-01-18,abc,Food,Bad amount\n"
+                + "2024-01-19,-5.00,Food,Refund\n";
+
+        ImportReport report = importText(csv, 1);
+
+        assertTrue(report.isComplete(), report.toString());
+        assertEquals("CSV", report.getFormat());
+        assertEquals(3, report.getRowsImported());
+        assertEquals(2, report.getRowsRejected());
+        assertEquals(1, report.getRowsSkipped());
+        assertEquals(2, report.getErrors().size());
+
+        List<Expense> stored = stored();
+        assertEquals("Flat, January", stored.get(0).getDescription());
+        assertEquals(1_250, stored.get(0).getAmountCents());
+        assertEquals("Food", stored.get(1).getCategory()); // Empty category: from the rules
+        assertEquals("Line one\nline two", stored.get(2).getDescription());
+        assertEquals(date(2024, 1, 15, 0, 0), stored.get(0).getDate());
+    }
+
+    @Test
+    void bankCsvWithDebitAndCreditColumns() {
+        String csv = "Txn Date;Narration;Withdrawal Amt;Deposit Amt\n"
+                + "15/01/2024;ZOMATO 1234;250.00;\n"
+                + "16/01/2024;SALARY;;50000.00\n"
+                + "17/01/2024;ATM CASH;1000.00;\n";
+
+        ImportReport report = importText(csv, 1);
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(1, report.getRowsSkipped());
+        List<Expense> stored = stored();
+        assertEquals("Food", stored.get(0).getCategory());
+        assertEquals(25_000, stored.get(0).getAmountCents());
+        assertEquals("Other", stored.get(1).getCategory());
+        assertEquals(date(2024, 1, 17, 0, 0), stored.get(1).getDate());
+    }
+
+    @Test
+    void recordsSpanningChunksAreImportedOnce() {
+        StringBuilder csv = new StringBuilder("date,amount,description\n");
+        long total = 0;
+        for (int i = 0; i < 5_000; i++) {
+            csv.append("2024-02-").append(1 + i % 28).append(',').append(i).append(".01,Row ").append(i).append('\n');
+            total += i * 100L + 1;
+        }
+
+        ImportReport report = importText(csv.toString(), 3);
+
+        assertEquals(5_000, report.getRowsImported());
+        assertEquals(5_000, repository.countExpenses());
+        assertEquals(total, repository.totalCents());
+    }
+
+    @Test
+    void importsOfxDebitsAndSkipsCredits() {
+        String ofx = "OFXHEADER:100\nDATA:OFXSGML\nCHARSET:1252\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240115120000[+5.5:IST]<TRNAMT>-499.00<NAME>Swiggy<MEMO>Dinner</STMTTRN>\n"
+                + "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20240116<TRNAMT>1000.00<NAME>Salary</STMTTRN>\n"
+                + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240117<TRNAMT>-20.00<NAME>Café</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+        ImportReport report = importBytes(ofx.getBytes(Charset.forName("windows-1252")), 1);
+
+        assertEquals("OFX", report.getFormat());
+        assertEquals(2, report.getRowsImported());
+        assertEquals(1, report.getRowsSkipped());
+        List<Expense> stored = stored();
+        assertEquals(49_900, stored.get(0).getAmountCents());
+        assertEquals("Food", stored.get(0).getCategory());
+        assertTrue(stored.get(0).getDescription().contains("Dinner"), stored.get(0).getDescription());
+        assertEquals(date(2024, 1, 15, 12, 0), stored.get(0).getDate());
+        assertEquals("Café", stored.get(1).getDescription());
+    }
+
+    @Test
+    void csvExportReadsBackAsTheSameExpenses() throws IOException {
+        List<Expense> expenses = List.of(
+                new Expense(1_250, "Rent", "Flat, \"January\"", date(2024, 1, 15, 9, 30)),
+                new Expense(7, "Food", " padded ", date(2024, 1, 16, 0, 0)),
+                new Expense(99_999, "Bills", "Line one\nline two", new Date(date(2024, 1, 17, 8, 0).getTime() + 250)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportFormat.RowWriter writer = ExportFormat.CSV.newWriter(
+                new ChannelOutput(Channels.newChannel(out), false), ZoneId.systemDefault());
+        for (Expense expense : expenses) {
+            writer.write(expense);
+        }
+        writer.finish();
+
+        ImportReport report = importBytes(out.toByteArray(), 1);
+
+        assertEquals(3, report.getRowsImported());
+        List<Expense> stored = stored();
+        for (int i = 0; i < expenses.size(); i++) {
+            assertEquals(expenses.get(i).getDate(), stored.get(i).getDate());
+            assertEquals(expenses.get(i).getAmountCents(), stored.get(i).getAmountCents());
+            assertEquals(expenses.get(i).getCategory(), stored.get(i).getCategory());
+            assertEquals(expenses.get(i).getDescription(), stored.get(i).getDescription());
+        }
+    }
+
+    private ImportReport importText(String text, int parsers) {
+        return importBytes(text.getBytes(StandardCharsets.UTF_8), parsers);
+    }
+
+    private ImportReport importBytes(byte[] bytes, int parsers) {
+        // Smallest chunks and batches, so records cross chunk and batch boundaries
+        ExpenseImporter importer = new ExpenseImporter(repository, RULES, parsers, 2, 4096, 3);
+        return importer.importFrom(Channels.newChannel(new ByteArrayInputStream(bytes)), bytes.length, null);
+    }
+
+    // Oldest first
+    private List<Expense> stored() {
+        List<Expense> expenses = new ArrayList<>();
+        repository.scan(null, null, expenses::add);
+        return expenses;
+    }
+
+    private static Date date(int year, int month, int day, int hour, int minute) {
+        return Date.from(LocalDateTime.of(year, month, day, hour, minute).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
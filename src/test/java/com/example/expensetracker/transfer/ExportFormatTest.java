@@ -0,0 +1,107 @@
+package com.example.expensetracker.transfer;
+
+import com.example.expensetracker.model.Expense;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExportFormatTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void columnarRoundTripsAcrossBlocks() throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < ColumnarFormat.BLOCK_ROWS * 2 + 17; i++) {
+            // Dates step back now and then, so deltas go negative too
+            Expense expense = new Expense(i % 7 == 0 ? -i : i * 13L, "Category " + (i % 40),
+                    "Row " + i, new Date(START + (i % 5 == 4 ? -60_000L : i * 60_000L)));
+            if (i % 3 != 0) expense.setId(new ObjectId());
+            expenses.add(expense);
+        }
+
+        for (boolean compress : new boolean[] {false, true}) {
+            List<Expense> read = readColumnar(write(ExportFormat.COLUMNAR, expenses, compress), compress);
+            assertEquals(expenses.size(), read.size());
+            for (int i = 0; i < expenses.size(); i++) {
+                assertSameExpense(expenses.get(i), read.get(i));
+            }
+        }
+    }
+
+    @Test
+    void columnarKeepsMissingDatesAndEmptiesMissingText() throws IOException {
+        Expense dated = new Expense(100, "Food", "Lunch", new Date(START));
+        Expense dateless = new Expense(200, null, null, null);
+        Expense after = new Expense(300, "Food", "Dinner", new Date(START + 5_000));
+
+        List<Expense> read = readColumnar(write(ExportFormat.COLUMNAR, List.of(dated, dateless, after), false), false);
+
+        assertSameExpense(dated, read.get(0));
+        assertNull(read.get(1).getDate());
+        assertEquals(200, read.get(1).getAmountCents());
+        assertEquals("", read.get(1).getCategory());
+        assertEquals("", read.get(1).getDescription());
+        assertSameExpense(after, read.get(2));
+    }
+
+    @Test
+    void csvWritesAnEmptyFieldForAMissingDate() throws IOException {
+        List<Expense> expenses = List.of(
+                new Expense(123_450, "Rent, flat", "Say \"hi\"", new Date(START)),
+                new Expense(5, "Food", "No date", null));
+
+        String csv = new String(write(ExportFormat.CSV, expenses, false), StandardCharsets.UTF_8);
+
+        assertEquals("date,amount,category,description\n"
+                + "2023-11-14 23:13:20,1234.50,\"Rent, flat\",\"Say \"\"hi\"\"\"\n"
+                + ",0.05,Food,No date\n", csv);
+    }
+
+    @Test
+    void columnarRejectsOtherFiles() {
+        byte[] csv = "date,amount\n".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> ColumnarFormat.read(new ByteArrayInputStream(csv), e -> {}));
+    }
+
+    private static byte[] write(ExportFormat format, List<Expense> expenses, boolean compress) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ExportFormat.RowWriter writer = format.newWriter(new ChannelOutput(Channels.newChannel(bytes), compress), ZONE);
+        for (Expense expense : expenses) {
+            writer.write(expense);
+        }
+        writer.finish();
+        return bytes.toByteArray();
+    }
+
+    private static List<Expense> readColumnar(byte[] bytes, boolean compressed) throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes);
+        List<Expense> read = new ArrayList<>();
+        ColumnarFormat.read(compressed ? new GZIPInputStream(in) : in, read::add);
+        return read;
+    }
+
+    private static void assertSameExpense(Expense expected, Expense actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getAmountCents(), actual.getAmountCents());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getDescription(), actual.getDescription());
+    }
+}
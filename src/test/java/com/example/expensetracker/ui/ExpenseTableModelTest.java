@@ -0,0 +1,138 @@
+package com.example.expensetracker.ui;
+
+import com.example.expensetracker.metrics.Counter;
+import com.example.expensetracker.metrics.MetricsRegistry;
+import com.example.expensetracker.model.ExpenseRow;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseTableModelTest {
+
+    private static final int BLOCK = 4;
+
+    @Test
+    void insertShiftsCachedBlocksWithoutReloading() throws Exception {
+        List<ExpenseRow> data = rows(10);
+        AtomicInteger calls = new AtomicInteger();
+        ExpenseTableModel model = model();
+        List<TableModelEvent> events = new ArrayList<>();
+
+        onEdt(() -> model.reset(data.size(), (offset, limit, previous) -> {
+            calls.incrementAndGet();
+            return List.copyOf(data.subList(offset, Math.min(offset + limit, data.size())));
+        }));
+        onEdt(() -> model.getRowAt(0));
+        onEdt(() -> model.getRowAt(4)); // Loads block 1 and prefetches block 2
+        assertEquals(3, calls.get());
+
+        ExpenseRow inserted = row(100);
+        data.add(2, inserted);
+        onEdt(() -> {
+            model.addTableModelListener(events::add);
+            model.insertRow(2, inserted);
+        });
+
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        onEdt(() -> {
+            assertEquals(11, model.getRowCount());
+            for (int r = 0; r < data.size(); r++) {
+                assertEquals(data.get(r), model.getRowAt(r), "row " + r);
+            }
+        });
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void insertDropsBlocksPastTheFirstOneNotCached() throws Exception {
+        List<ExpenseRow> data = rows(10);
+        AtomicInteger calls = new AtomicInteger();
+        ExpenseTableModel model = model();
+
+        onEdt(() -> model.reset(data.size(), (offset, limit, previous) -> {
+            calls.incrementAndGet();
+            return List.copyOf(data.subList(offset, Math.min(offset + limit, data.size())));
+        }));
+        onEdt(() -> model.getRowAt(0));
+        assertEquals(1, calls.get());
+
+        // Block 0 overflows into block 1, which is not cached, so the rest is read again
+        ExpenseRow inserted = row(100);
+        data.add(1, inserted);
+        onEdt(() -> model.insertRow(1, inserted));
+        onEdt(() -> {
+            assertEquals(inserted, model.getRowAt(1));
+            assertEquals(data.get(3), model.getRowAt(3));
+            model.getRowAt(4);
+        });
+        onEdt(() -> {
+            for (int r = 4; r < 8; r++) {
+                assertEquals(data.get(r), model.getRowAt(r), "row " + r);
+            }
+        });
+        assertEquals(3, calls.get()); // Block 1 read again, block 2 prefetched
+    }
+
+    @Test
+    void failedBlockIsCountedAndRetriedOnlyAfterABackOff() throws Exception {
+        Counter failures = MetricsRegistry.get().counter("ui.table.blockLoadFailures");
+        long failuresBefore = failures.get();
+        AtomicInteger calls = new AtomicInteger();
+        ExpenseTableModel model = model();
+        CountDownLatch repainted = new CountDownLatch(1);
+
+        onEdt(() -> {
+            model.reset(10, (offset, limit, previous) -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("server down");
+            });
+            model.addTableModelListener(e -> {
+                if (e.getType() == TableModelEvent.UPDATE) repainted.countDown();
+            });
+            assertNull(model.getRowAt(0));
+        });
+        onEdt(() -> assertNull(model.getRowAt(1)));
+
+        assertEquals(1, calls.get());
+        assertEquals(failuresBefore + 1, failures.get());
+
+        // The rows are repainted once the back-off has passed, and that paint asks again
+        assertTrue(repainted.await(5, TimeUnit.SECONDS));
+        onEdt(() -> model.getRowAt(1));
+        assertEquals(2, calls.get());
+    }
+
+    private static ExpenseTableModel model() {
+        // Loads run on the calling thread; their results still arrive through invokeLater
+        return new ExpenseTableModel(BLOCK, 3, 1, Runnable::run);
+    }
+
+    private static ExpenseRow row(int i) {
+        return new ExpenseRow(null, 19_000 + i, i, "Food", i, "Row " + i, false);
+    }
+
+    private static List<ExpenseRow> rows(int count) {
+        List<ExpenseRow> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(row(i));
+        }
+        return rows;
+    }
+
+    // Runs on the EDT and then lets the invokeLater calls it caused run too
+    private static void onEdt(Runnable action) throws Exception {
+        SwingUtilities.invokeAndWait(action);
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+}